@@ -0,0 +1,75 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.mandas.docker.Nullable;
+
+/**
+ * The merged log streams of several containers, see
+ * {@link DockerClient#aggregateLogs(java.util.Collection, DockerClient.LogsParam...)}.
+ *
+ * <p>The stream ends once the logs of every container have been read, and it blocks while all
+ * containers are idle when following. Closing the stream closes the stream of every container.</p>
+ *
+ * <p>When the log stream of a container fails and is not reopened, {@link #hasNext()} and
+ * {@link #next()} throw a {@link RuntimeException} caused by the failure once the messages of
+ * the container read before it have been consumed; the stream goes on with the other containers
+ * afterwards.</p>
+ */
+public interface AggregatedLogStream extends Iterator<ContainerLogMessage>, Closeable {
+
+  /**
+   * Returns how far the consumer of this stream lags behind every container.
+   *
+   * @return the lag per container id
+   */
+  Map<String, Lag> lag();
+
+  /**
+   * The consumption progress of a single container.
+   *
+   * @param messages the number of messages received from the container
+   * @param bytes the number of content bytes received from the container
+   * @param bufferedMessages the number of messages received but not yet consumed
+   * @param bufferedBytes the number of content bytes received but not yet consumed
+   * @param lastTimestamp the timestamp of the last message received, if any
+   * @param lag the age of the oldest message not yet consumed, zero if all have been consumed
+   * @param resubscriptions the number of times the log stream was reopened after a failure
+   * @param finished whether the log stream of the container has ended
+   */
+  record Lag(
+    long messages,
+    long bytes,
+    int bufferedMessages,
+    long bufferedBytes,
+    @Nullable
+    Instant lastTimestamp,
+    Duration lag,
+    int resubscriptions,
+    boolean finished
+  ) {}
+}
@@ -0,0 +1,213 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Objects;
+
+import org.mandas.docker.client.exceptions.DockerException;
+import org.mandas.docker.client.messages.ProgressDetail;
+import org.mandas.docker.client.messages.ProgressMessage;
+
+/**
+ * Folds the per-layer progress of a pull, push or build into one summary, passed to another
+ * handler at most once per interval.
+ *
+ * <p>Messages carrying a progress detail, which docker sends for every layer and every few 
+ * hundred kilobytes, only update a table of layers. Every interval, the handler receives one
+ * message with no id, the total bytes of all layers as its progress detail and a line such as
+ * {@code "3/7 layers, 12.3 MB/40.1 MB, 5.2 MB/s"} as its progress. Any other message, such as
+ * the digest of the image or the output of a build step, is passed on right away after a last 
+ * summary, and errors are passed on immediately so that the handler can fail the operation.</p>
+ *
+ * <pre>
+ * docker.pull("busybox", new AggregatingProgressHandler(new LoggingPullHandler("busybox"),
+ *     Duration.ofSeconds(1)));
+ * </pre>
+ *
+ * <p>A handler may be shared by the pulls of several threads, layers with the same id are then
+ * counted once.</p>
+ */
+public class AggregatingProgressHandler implements ProgressHandler {
+
+  private final ProgressHandler delegate;
+  private final long intervalNanos;
+
+  private String[] ids = new String[16];
+  private String[] stages = new String[16];
+  private long[] current = new long[16];
+  private long[] total = new long[16];
+  private boolean[] complete = new boolean[16];
+  private int layers;
+  private long bytes;
+  private long emittedBytes;
+  private long emittedAt = System.nanoTime();
+  private boolean changed;
+
+  /**
+   * Passes a summary to the given handler at most once per second.
+   *
+   * @param delegate the handler receiving the summaries and the other messages
+   */
+  public AggregatingProgressHandler(ProgressHandler delegate) {
+    this(delegate, Duration.ofSeconds(1));
+  }
+
+  public AggregatingProgressHandler(ProgressHandler delegate, Duration interval) {
+    this.delegate = delegate;
+    this.intervalNanos = interval.toNanos();
+  }
+
+  @Override
+  public void progress(ProgressMessage message) throws DockerException {
+    if (message.error() != null) {
+      delegate.progress(message);
+      return;
+    }
+    final ProgressMessage summary;
+    synchronized (this) {
+      if (message.progressDetail() != null && message.id() != null) {
+        update(message.id(), message.status(), message.progressDetail());
+        if (System.nanoTime() - emittedAt < intervalNanos) {
+          return;
+        }
+      }
+      summary = changed ? summary() : null;
+    }
+    if (summary != null) {
+      delegate.progress(summary);
+    }
+    if (message.progressDetail() == null || message.id() == null) {
+      delegate.progress(message);
+    }
+  }
+
+  /**
+   * @return the progress of the layers seen so far
+   */
+  public synchronized Snapshot snapshot() {
+    int completeLayers = 0;
+    long currentBytes = 0;
+    long totalBytes = 0;
+    for (int i = 0; i < layers; i++) {
+      if (complete[i]) {
+        completeLayers++;
+      }
+      currentBytes += complete[i] ? total[i] : current[i];
+      totalBytes += total[i];
+    }
+    final double seconds = (System.nanoTime() - emittedAt) / 1e9;
+    return new Snapshot(layers, completeLayers, currentBytes, totalBytes, bytes,
+        seconds > 0 ? (bytes - emittedBytes) / seconds : 0);
+  }
+
+  private void update(final String id, final String status, final ProgressDetail detail) {
+    int layer = 0;
+    while (layer < layers && !ids[layer].equals(id)) {
+      layer++;
+    }
+    if (layer == layers) {
+      if (layers == ids.length) {
+        ids = Arrays.copyOf(ids, layers * 2);
+        stages = Arrays.copyOf(stages, layers * 2);
+        current = Arrays.copyOf(current, layers * 2);
+        total = Arrays.copyOf(total, layers * 2);
+        complete = Arrays.copyOf(complete, layers * 2);
+      }
+      ids[layers++] = id;
+    }
+    if (detail.current() != null) {
+      // a layer is downloaded and then extracted, its current restarts from 0 for every stage
+      if (!Objects.equals(status, stages[layer])) {
+        stages[layer] = status;
+        current[layer] = 0;
+      }
+      bytes += Math.max(0, detail.current() - current[layer]);
+      current[layer] = detail.current();
+    }
+    if (detail.total() != null && detail.total() > 0) {
+      total[layer] = detail.total();
+    }
+    if (status != null && isComplete(status)) {
+      complete[layer] = true;
+    }
+    changed = true;
+  }
+
+  private static boolean isComplete(final String status) {
+    return status.equals("Pull complete") || status.equals("Already exists")
+        || status.equals("Pushed") || status.equals("Layer already exists")
+        || status.startsWith("Mounted from");
+  }
+
+  private ProgressMessage summary() {
+    final Snapshot snapshot = snapshot();
+    emittedAt = System.nanoTime();
+    emittedBytes = bytes;
+    changed = false;
+    return ProgressMessage.builder()
+        .status(snapshot.completeLayers() == snapshot.layers() ? "Complete" : "In progress")
+        .progress(snapshot.toString())
+        .progressDetail(new ProgressDetail(snapshot.current(), 0L, snapshot.total()))
+        .build();
+  }
+
+  /**
+   * The progress of all layers at a point in time.
+   *
+   * @param layers the number of layers seen
+   * @param completeLayers the number of layers pulled or pushed
+   * @param current the bytes of the current stage of every layer, or the whole layer once complete
+   * @param total the size of all layers, as far as reported
+   * @param bytes the bytes downloaded, extracted or uploaded so far, over all stages
+   * @param bytesPerSecond the rate of {@code bytes} since the last summary
+   */
+  public record Snapshot(
+    int layers,
+    int completeLayers,
+    long current,
+    long total,
+    long bytes,
+    double bytesPerSecond
+  ) {
+
+    @Override
+    public String toString() {
+      return String.format(Locale.ROOT, "%d/%d layers, %s/%s, %s/s", completeLayers, layers,
+          size(current), size(total), size((long) bytesPerSecond));
+    }
+
+    private static String size(final long bytes) {
+      if (bytes < 1000) {
+        return bytes + " B";
+      }
+      if (bytes < 1000 * 1000) {
+        return String.format(Locale.ROOT, "%.1f kB", bytes / 1e3);
+      }
+      if (bytes < 1000 * 1000 * 1000) {
+        return String.format(Locale.ROOT, "%.1f MB", bytes / 1e6);
+      }
+      return String.format(Locale.ROOT, "%.1f GB", bytes / 1e9);
+    }
+  }
+}
@@ -0,0 +1,215 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A bounded pipe whose input side is fed by a producer running on its own thread, used to send an
+ * archive to dockerd while it is still being written.
+ *
+ * <p>The producer writes into chunks handed over through a bounded queue, so at most
+ * {@code chunkSize * (capacity + 2)} bytes are buffered. A failure of the producer is rethrown
+ * by the reader once the data written before it has been read. Closing the input side before the
+ * end of the archive interrupts the producer.</p>
+ */
+class ArchivePipe extends InputStream {
+
+  /**
+   * Writes the content of the pipe.
+   */
+  @FunctionalInterface
+  interface Producer {
+    void writeTo(OutputStream out) throws IOException;
+  }
+
+  static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+  static final int DEFAULT_CAPACITY = 16;
+
+  private static final byte[] END = new byte[0];
+
+  private final BlockingQueue<byte[]> chunks;
+  private final int chunkSize;
+  private final Thread thread;
+  private volatile IOException failure;
+  private volatile boolean closed;
+  private byte[] chunk;
+  private int position;
+  private boolean ended;
+
+  private ArchivePipe(final Producer producer, final String name, final int chunkSize,
+                      final int capacity) {
+    this.chunks = new ArrayBlockingQueue<>(capacity);
+    this.chunkSize = chunkSize;
+    this.thread = Thread.ofVirtual().name(name).unstarted(() -> produce(producer));
+  }
+
+  /**
+   * Starts the producer on a virtual thread and returns the input side of the pipe.
+   *
+   * @param producer the producer writing the content
+   * @param name the name of the producer thread
+   * @return the input side
+   */
+  static ArchivePipe start(final Producer producer, final String name) {
+    return start(producer, name, DEFAULT_CHUNK_SIZE, DEFAULT_CAPACITY);
+  }
+
+  static ArchivePipe start(final Producer producer, final String name, final int chunkSize,
+                           final int capacity) {
+    final ArchivePipe pipe = new ArchivePipe(producer, name, chunkSize, capacity);
+    pipe.thread.start();
+    return pipe;
+  }
+
+  private void produce(final Producer producer) {
+    try (final OutputStream out = new ChunkOutputStream()) {
+      producer.writeTo(out);
+    } catch (IOException e) {
+      failure = e;
+    } catch (RuntimeException e) {
+      failure = new IOException(e);
+    }
+    if (!closed) {
+      try {
+        chunks.put(END);
+      } catch (InterruptedException e) {
+        // closed by the reader, nobody is waiting for the end anymore
+      }
+    }
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!next()) {
+      return -1;
+    }
+    return chunk[position++] & 0xff;
+  }
+
+  @Override
+  public int read(final byte[] b, final int off, final int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (!next()) {
+      return -1;
+    }
+    final int count = Math.min(len, chunk.length - position);
+    System.arraycopy(chunk, position, b, off, count);
+    position += count;
+    return count;
+  }
+
+  @Override
+  public int available() {
+    return chunk == null ? 0 : chunk.length - position;
+  }
+
+  private boolean next() throws IOException {
+    if (closed) {
+      throw new IOException("Pipe closed");
+    }
+    while (!ended && (chunk == null || position == chunk.length)) {
+      try {
+        chunk = chunks.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for the archive");
+      }
+      position = 0;
+      ended = chunk == END;
+    }
+    if (ended) {
+      if (failure != null) {
+        throw new IOException("Failed to write the archive", failure);
+      }
+      return false;
+    }
+    return true;
+  }
+
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    thread.interrupt();
+    chunks.clear();
+  }
+
+  private class ChunkOutputStream extends OutputStream {
+    private byte[] buffer = new byte[chunkSize];
+    private int length;
+
+    @Override
+    public void write(final int b) throws IOException {
+      buffer[length++] = (byte) b;
+      if (length == buffer.length) {
+        hand();
+      }
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+      int offset = off;
+      int remaining = len;
+      while (remaining > 0) {
+        final int count = Math.min(remaining, buffer.length - length);
+        System.arraycopy(b, offset, buffer, length, count);
+        length += count;
+        offset += count;
+        remaining -= count;
+        if (length == buffer.length) {
+          hand();
+        }
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (length > 0) {
+        hand();
+      }
+    }
+
+    private void hand() throws IOException {
+      if (closed) {
+        throw new IOException("Pipe closed");
+      }
+      final byte[] full = length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
+      try {
+        chunks.put(full);
+      } catch (InterruptedException e) {
+        throw new InterruptedIOException("Pipe closed");
+      }
+      buffer = new byte[chunkSize];
+      length = 0;
+    }
+  }
+}
@@ -0,0 +1,311 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.mandas.docker.client.DockerClient.ListContainersParam;
+import org.mandas.docker.client.DockerClient.ListImagesParam;
+import org.mandas.docker.client.DockerClient.ListNetworksParam;
+import org.mandas.docker.client.DockerClient.ListVolumesParam;
+import org.mandas.docker.client.DockerClient.RemoveContainerParam;
+import org.mandas.docker.client.DockerClient.Signal;
+import org.mandas.docker.client.messages.Container;
+import org.mandas.docker.client.messages.ContainerConfig;
+import org.mandas.docker.client.messages.ContainerCreation;
+import org.mandas.docker.client.messages.ContainerExit;
+import org.mandas.docker.client.messages.ContainerInfo;
+import org.mandas.docker.client.messages.ContainerStats;
+import org.mandas.docker.client.messages.ExecState;
+import org.mandas.docker.client.messages.Image;
+import org.mandas.docker.client.messages.ImageInfo;
+import org.mandas.docker.client.messages.Info;
+import org.mandas.docker.client.messages.Network;
+import org.mandas.docker.client.messages.RemovedImage;
+import org.mandas.docker.client.messages.TopResults;
+import org.mandas.docker.client.messages.Version;
+import org.mandas.docker.client.messages.Volume;
+import org.mandas.docker.client.messages.VolumeList;
+
+/**
+ * A non-blocking view of a {@link DockerClient}, obtained through {@link DockerClient#async()}.
+ *
+ * <p>Every operation returns immediately with a {@link CompletableFuture} which completes once
+ * dockerd has answered. Failures complete the future exceptionally with the same
+ * {@link org.mandas.docker.client.exceptions.DockerException} subclass that the blocking
+ * counterpart would throw (e.g. a
+ * {@link org.mandas.docker.client.exceptions.ContainerNotFoundException} for an unknown
+ * container).
+ *
+ * <p>Only the short control-plane operations are offered here. Streaming operations (logs,
+ * events, attach, pull, push, build etc.) keep their blocking form on {@link DockerClient}.
+ */
+public interface AsyncDockerClient {
+
+  /**
+   * Ping the docker daemon.
+   *
+   * @return a future completing with "OK"
+   * @see DockerClient#ping()
+   */
+  CompletableFuture<String> ping();
+
+  /**
+   * Get the docker version.
+   *
+   * @return a future completing with the docker version
+   * @see DockerClient#version()
+   */
+  CompletableFuture<Version> version();
+
+  /**
+   * Get docker instance information.
+   *
+   * @return a future completing with the docker info
+   * @see DockerClient#info()
+   */
+  CompletableFuture<Info> info();
+
+  /**
+   * List docker containers.
+   *
+   * @param params Container listing and filtering options.
+   * @return a future completing with a list of containers
+   * @see DockerClient#listContainers(ListContainersParam...)
+   */
+  CompletableFuture<List<Container>> listContainers(ListContainersParam... params);
+
+  /**
+   * Inspect a docker container.
+   *
+   * @param containerId The id of the container to inspect.
+   * @return a future completing with the container info
+   * @see DockerClient#inspectContainer(String)
+   */
+  CompletableFuture<ContainerInfo> inspectContainer(String containerId);
+
+  /**
+   * Create a docker container.
+   *
+   * @param config The container configuration.
+   * @return a future completing with the container creation result
+   * @see DockerClient#createContainer(ContainerConfig)
+   */
+  CompletableFuture<ContainerCreation> createContainer(ContainerConfig config);
+
+  /**
+   * Create a docker container.
+   *
+   * @param config The container configuration.
+   * @param name   The container name.
+   * @return a future completing with the container creation result
+   * @see DockerClient#createContainer(ContainerConfig, String)
+   */
+  CompletableFuture<ContainerCreation> createContainer(ContainerConfig config, String name);
+
+  /**
+   * Start a docker container.
+   *
+   * @param containerId The id of the container to start.
+   * @return a future completing when the container has been started
+   * @see DockerClient#startContainer(String)
+   */
+  CompletableFuture<Void> startContainer(String containerId);
+
+  /**
+   * Stop a docker container by sending a SIGTERM, and following up with a SIGKILL if the container
+   * doesn't exit gracefully and in a timely manner.
+   *
+   * @param containerId The id of the container to stop.
+   * @param secondsToWaitBeforeKilling Seconds to wait after sending SIGTERM before SIGKILLing
+   * @return a future completing when the container has been stopped
+   * @see DockerClient#stopContainer(String, int)
+   */
+  CompletableFuture<Void> stopContainer(String containerId, int secondsToWaitBeforeKilling);
+
+  /**
+   * Restart a docker container with a 10 second default wait time.
+   *
+   * @param containerId The id of the container to restart.
+   * @return a future completing when the container has been restarted
+   * @see DockerClient#restartContainer(String)
+   */
+  CompletableFuture<Void> restartContainer(String containerId);
+
+  /**
+   * Restart a docker container.
+   *
+   * @param containerId The id of the container to restart.
+   * @param secondsToWaitBeforeRestart number of seconds to wait before restarting the container.
+   * @return a future completing when the container has been restarted
+   * @see DockerClient#restartContainer(String, int)
+   */
+  CompletableFuture<Void> restartContainer(String containerId, int secondsToWaitBeforeRestart);
+
+  /**
+   * Kill a docker container.
+   *
+   * @param containerId The id of the container to kill.
+   * @return a future completing when the container has been killed
+   * @see DockerClient#killContainer(String)
+   */
+  CompletableFuture<Void> killContainer(String containerId);
+
+  /**
+   * Kill a docker container with the given signal.
+   *
+   * @param containerId The id of the container to kill.
+   * @param signal The signal to send
+   * @return a future completing when the signal has been sent
+   * @see DockerClient#killContainer(String, Signal)
+   */
+  CompletableFuture<Void> killContainer(String containerId, Signal signal);
+
+  /**
+   * Pause a docker container.
+   *
+   * @param containerId The id of the container to pause.
+   * @return a future completing when the container has been paused
+   * @see DockerClient#pauseContainer(String)
+   */
+  CompletableFuture<Void> pauseContainer(String containerId);
+
+  /**
+   * Unpause a docker container.
+   *
+   * @param containerId The id of the container to unpause.
+   * @return a future completing when the container has been unpaused
+   * @see DockerClient#unpauseContainer(String)
+   */
+  CompletableFuture<Void> unpauseContainer(String containerId);
+
+  /**
+   * Remove a docker container.
+   *
+   * @param containerId The id of the container to remove.
+   * @param params {@link RemoveContainerParam}
+   * @return a future completing when the container has been removed
+   * @see DockerClient#removeContainer(String, RemoveContainerParam...)
+   */
+  CompletableFuture<Void> removeContainer(String containerId, RemoveContainerParam... params);
+
+  /**
+   * Wait for a docker container to exit.
+   *
+   * @param containerId The id of the container to wait for.
+   * @return a future completing with the exit status of the container
+   * @see DockerClient#waitContainer(String)
+   */
+  CompletableFuture<ContainerExit> waitContainer(String containerId);
+
+  /**
+   * List processes running inside the container.
+   *
+   * @param containerId the id of the container to examine
+   * @return a future completing with the titles and process list for the container
+   * @see DockerClient#topContainer(String)
+   */
+  CompletableFuture<TopResults> topContainer(String containerId);
+
+  /**
+   * Retrieves one-shot container stats.
+   *
+   * @param containerId the id of the container to retrieve stats for
+   * @return a future completing with the container stats
+   * @see DockerClient#stats(String)
+   */
+  CompletableFuture<ContainerStats> stats(String containerId);
+
+  /**
+   * List docker images.
+   *
+   * @param params The parameters to use for listing
+   * @return a future completing with a list of images
+   * @see DockerClient#listImages(ListImagesParam...)
+   */
+  CompletableFuture<List<Image>> listImages(ListImagesParam... params);
+
+  /**
+   * Inspect a docker image.
+   *
+   * @param image The image to inspect.
+   * @return a future completing with the image info
+   * @see DockerClient#inspectImage(String)
+   */
+  CompletableFuture<ImageInfo> inspectImage(String image);
+
+  /**
+   * Remove a docker image.
+   *
+   * @param image   The image to remove.
+   * @param force   Force image removal.
+   * @param noPrune Do not delete untagged parents.
+   * @return a future completing with a list of all removed images
+   * @see DockerClient#removeImage(String, boolean, boolean)
+   */
+  CompletableFuture<List<RemovedImage>> removeImage(String image, boolean force, boolean noPrune);
+
+  /**
+   * List all networks.
+   *
+   * @param params The parameters to use for listing
+   * @return a future completing with the networks
+   * @see DockerClient#listNetworks(ListNetworksParam...)
+   */
+  CompletableFuture<List<Network>> listNetworks(ListNetworksParam... params);
+
+  /**
+   * Inspect a network.
+   *
+   * @param networkId The id of the network
+   * @return a future completing with the network information
+   * @see DockerClient#inspectNetwork(String)
+   */
+  CompletableFuture<Network> inspectNetwork(String networkId);
+
+  /**
+   * Get a list of volumes.
+   *
+   * @param params The parameters to use for listing
+   * @return a future completing with the volumes
+   * @see DockerClient#listVolumes(ListVolumesParam...)
+   */
+  CompletableFuture<VolumeList> listVolumes(ListVolumesParam... params);
+
+  /**
+   * Inspect a volume.
+   *
+   * @param volumeName The volume to inspect
+   * @return a future completing with the volume
+   * @see DockerClient#inspectVolume(String)
+   */
+  CompletableFuture<Volume> inspectVolume(String volumeName);
+
+  /**
+   * Inspects a running Docker exec instance.
+   *
+   * @param execId exec id
+   * @return a future completing with the exec state
+   * @see DockerClient#execInspect(String)
+   */
+  CompletableFuture<ExecState> execInspect(String execId);
+}
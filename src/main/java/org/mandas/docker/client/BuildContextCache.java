@@ -0,0 +1,378 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.apache.commons.compress.archivers.tar.TarArchiveOutputStream.BIGNUMBER_POSIX;
+import static org.apache.commons.compress.archivers.tar.TarArchiveOutputStream.LONGFILE_POSIX;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An on-disk cache of build context archives.
+ *
+ * <p>Every entry of an archive is compressed as a gzip member of its own and kept under 
+ * {@code entries/}, named after a fingerprint of the entry: the directory it was archived from, 
+ * its name, type, size, modification time and mode. An archive is the concatenation of the 
+ * members of its entries followed by a member holding the end of the tar stream, which is a valid
+ * gzip tarball. Archives are named 
+ * after the directory they were made of and the fingerprints of all their entries, so an archive
+ * whose files are unchanged is found as is, and an archive where a few files changed only needs 
+ * these to be read and compressed again.</p>
+ *
+ * <p>The members are evicted least recently used first once they take more than the maximum 
+ * size, by the session that stored new members while no other session, of any process, is 
+ * evicting. The previous archives of a directory are deleted when its next archive is made, 
+ * unless they are in use: an {@link Archive} holds a shared lock on its file until it is closed,
+ * counted once per JVM, and an archive is deleted only under an exclusive lock.</p>
+ */
+class BuildContextCache {
+
+  private static final Logger log = LoggerFactory.getLogger(BuildContextCache.class);
+
+  private static final String VERSION = "1";
+
+  /** Two zero records end a tar stream. */
+  private static final byte[] END_OF_ARCHIVE =
+      ParallelGzipOutputStream.compress(new byte[1024], 1024, Deflater.DEFAULT_COMPRESSION);
+
+  /** The archives in use in this JVM. */
+  private static final Map<Path, Use> IN_USE = new HashMap<>();
+
+  private final Path directory;
+  private final Path entries;
+  private final long maxSize;
+
+  BuildContextCache(final Path directory, final long maxSize) {
+    this.directory = directory.toAbsolutePath().normalize();
+    this.entries = this.directory.resolve("entries");
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Starts collecting the entries of the archive of a directory.
+   *
+   * @param context the directory being archived
+   * @return the session to add the entries to
+   * @throws IOException if the cache directory could not be created
+   */
+  Session open(final Path context) throws IOException {
+    Files.createDirectories(entries);
+    return new Session(digest(context.toAbsolutePath().normalize().toString()));
+  }
+
+  class Session {
+
+    private final String name;
+    private final List<Path> paths = new ArrayList<>();
+    private final List<TarArchiveEntry> tarEntries = new ArrayList<>();
+    private final List<String> keys = new ArrayList<>();
+    private boolean stored;
+
+    private Session(final String name) {
+      this.name = name;
+    }
+
+    void add(final Path path, final TarArchiveEntry entry) {
+      paths.add(path);
+      tarEntries.add(entry);
+      // entry names are relative, the members of different directories must not be mixed up
+      keys.add(digest(String.join("\0", VERSION, name, entry.getName(),
+          entry.isDirectory() ? "d" : "f", Long.toString(entry.getSize()),
+          Long.toString(entry.getLastModifiedTime().toMillis()), Integer.toString(entry.getMode()))));
+    }
+
+    /**
+     * Returns the archive of the entries added, reusing the cached archive or entries if possible.
+     *
+     * @return the archive, kept until it is closed
+     * @throws IOException if an entry could not be read or the archive could not be written
+     */
+    Archive finish() throws IOException {
+      final String prefix = name + "-";
+      final Path archive = directory.resolve(prefix + digest(String.join("\n", keys)) + ".tar.gz");
+      Archive acquired;
+      // another session may delete the archive before it is acquired, it is written again then
+      while ((acquired = acquire(archive)) == null) {
+        write(prefix, archive);
+      }
+      log.debug("Using build context archive {}", archive);
+
+      // previous archives of the directory are of no use anymore
+      try (final DirectoryStream<Path> previous =
+               Files.newDirectoryStream(directory, prefix + "*.tar.gz")) {
+        for (final Path path : previous) {
+          if (!path.equals(archive)) {
+            deleteUnused(path);
+          }
+        }
+      } catch (IOException e) {
+        log.debug("Failed to delete previous build context archives", e);
+      }
+      if (stored) {
+        evict();
+      }
+      return acquired;
+    }
+
+    private void write(final String prefix, final Path archive) throws IOException {
+      final Path temp = Files.createTempFile(directory, prefix, ".tmp");
+      try {
+        try (final OutputStream out = Files.newOutputStream(temp)) {
+          for (int i = 0; i < keys.size(); i++) {
+            stored |= copyMember(paths.get(i), tarEntries.get(i), keys.get(i), out);
+          }
+          out.write(END_OF_ARCHIVE);
+        }
+        Files.move(temp, archive, REPLACE_EXISTING, ATOMIC_MOVE);
+      } catch (IOException e) {
+        Files.deleteIfExists(temp);
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * An archive of the cache, which is not deleted until it is closed.
+   */
+  static class Archive implements Closeable {
+
+    private final Path path;
+    private boolean closed;
+
+    private Archive(final Path path) {
+      this.path = path;
+    }
+
+    Path path() {
+      return path;
+    }
+
+    @Override
+    public void close() throws IOException {
+      synchronized (IN_USE) {
+        if (closed) {
+          return;
+        }
+        closed = true;
+        final Use use = IN_USE.get(path);
+        if (--use.count == 0) {
+          IN_USE.remove(path);
+          // releases the lock
+          use.channel.close();
+        }
+      }
+    }
+  }
+
+  /**
+   * The shared lock held on an archive in use in this JVM, as a JVM can't lock a file twice.
+   */
+  private static class Use {
+
+    private final FileChannel channel;
+    private int count;
+
+    private Use(final FileChannel channel) {
+      this.channel = channel;
+    }
+  }
+
+  /**
+   * Marks an archive as in use.
+   *
+   * @return the archive, or null if it doesn't exist
+   */
+  private static Archive acquire(final Path archive) throws IOException {
+    synchronized (IN_USE) {
+      while (!IN_USE.containsKey(archive)) {
+        final Object key;
+        final FileChannel channel;
+        try {
+          key = Files.readAttributes(archive, BasicFileAttributes.class).fileKey();
+          channel = FileChannel.open(archive, READ);
+        } catch (NoSuchFileException e) {
+          return null;
+        }
+        try {
+          channel.lock(0, Long.MAX_VALUE, true);
+          // the archive may have been deleted, and even written again, before it was locked
+          final Object locked = Files.readAttributes(archive, BasicFileAttributes.class).fileKey();
+          if (Objects.equals(key, locked)) {
+            IN_USE.put(archive, new Use(channel));
+          } else {
+            channel.close();
+          }
+        } catch (NoSuchFileException e) {
+          channel.close();
+          return null;
+        } catch (IOException | RuntimeException e) {
+          channel.close();
+          throw e;
+        }
+      }
+      IN_USE.get(archive).count++;
+      return new Archive(archive);
+    }
+  }
+
+  /**
+   * Deletes an archive unless it is in use by this or another process.
+   */
+  private static void deleteUnused(final Path archive) {
+    synchronized (IN_USE) {
+      if (IN_USE.containsKey(archive)) {
+        return;
+      }
+      try (final FileChannel channel = FileChannel.open(archive, WRITE)) {
+        if (channel.tryLock() != null) {
+          Files.delete(archive);
+        }
+      } catch (NoSuchFileException e) {
+        // deleted by another session
+      } catch (IOException e) {
+        log.debug("Failed to delete build context archive {}", archive, e);
+      }
+    }
+  }
+
+  /**
+   * Deletes the least recently used members until they fit in the maximum size. Skipped while 
+   * another session evicts.
+   */
+  private void evict() {
+    try (final FileChannel channel = FileChannel.open(directory.resolve("lock"), CREATE, WRITE);
+         final FileLock lock = channel.tryLock()) {
+      if (lock == null) {
+        return;
+      }
+      final List<Path> members = new ArrayList<>();
+      final Map<Path, BasicFileAttributes> attributes = new HashMap<>();
+      long size = 0;
+      try (final DirectoryStream<Path> stream = Files.newDirectoryStream(entries, "*.gz")) {
+        for (final Path member : stream) {
+          final BasicFileAttributes memberAttributes =
+              Files.readAttributes(member, BasicFileAttributes.class);
+          members.add(member);
+          attributes.put(member, memberAttributes);
+          size += memberAttributes.size();
+        }
+      }
+      if (size <= maxSize) {
+        return;
+      }
+      members.sort(Comparator.comparing(member -> attributes.get(member).lastModifiedTime()));
+      for (final Path member : members) {
+        if (size <= maxSize) {
+          break;
+        }
+        Files.deleteIfExists(member);
+        size -= attributes.get(member).size();
+      }
+    } catch (OverlappingFileLockException e) {
+      // another session of this JVM is evicting
+    } catch (IOException e) {
+      log.debug("Failed to evict build context entries", e);
+    }
+  }
+
+  /**
+   * Copies the member of an entry, compressing and storing it first unless it is cached.
+   *
+   * @return whether a member was stored
+   */
+  private boolean copyMember(final Path path, final TarArchiveEntry entry, final String key,
+                             final OutputStream out) throws IOException {
+    final Path member = entries.resolve(key + ".gz");
+    try {
+      // the eviction keeps the members used last
+      Files.setLastModifiedTime(member, FileTime.from(Instant.now()));
+      Files.copy(member, out);
+      return false;
+    } catch (NoSuchFileException e) {
+      // not cached, or evicted meanwhile
+    }
+
+    final Path temp = Files.createTempFile(entries, key, ".tmp");
+    try {
+      try (final OutputStream gzipOut = new GZIPOutputStream(Files.newOutputStream(temp), 64 * 1024)) {
+        // not closed, as finishing it would end the tar stream within the member
+        final TarArchiveOutputStream tarOut = new TarArchiveOutputStream(gzipOut);
+        tarOut.setLongFileMode(LONGFILE_POSIX);
+        tarOut.setBigNumberMode(BIGNUMBER_POSIX);
+        CompressedDirectory.writeEntry(tarOut, path, entry);
+        tarOut.flush();
+      }
+      Files.copy(temp, out);
+      // a file modified while it was read is not cached under its previous fingerprint
+      if (entry.isDirectory() || (Files.size(path) == entry.getSize()
+          && Files.getLastModifiedTime(path).toMillis() == entry.getLastModifiedTime().toMillis())) {
+        Files.move(temp, member, REPLACE_EXISTING, ATOMIC_MOVE);
+        return true;
+      }
+      return false;
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  private static String digest(final String value) {
+    try {
+      final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(digest.digest(value.getBytes(UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,170 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.file.Path;
+
+/**
+ * How the directory of a {@code build} or {@code copyToContainer} call is archived before being
+ * sent to the daemon.
+ *
+ * @param compression the compression of the archive
+ * @param compressionLevel the compression level, or -1 for the default level of the compression
+ * @param compressionThreads the number of threads compressing a gzip archive; with more than one
+ *     thread the archive is compressed in independent blocks
+ * @param blockSize the size in bytes of the blocks compressed in parallel
+ * @param streaming whether the archive is sent while it is being written, instead of being written
+ *     to a temporary file first
+ * @param cacheDirectory the directory caching the archive and its compressed entries between 
+ *     calls, or null to archive the whole directory every time; only gzip archives are cached
+ * @param cacheMaxSize the size in bytes the compressed entries of the cache are evicted down to
+ */
+public record BuildContextOptions(
+  ContextCompression compression,
+  int compressionLevel,
+  int compressionThreads,
+  int blockSize,
+  boolean streaming,
+  Path cacheDirectory,
+  long cacheMaxSize
+) {
+
+  static final long DEFAULT_CACHE_MAX_SIZE = 1024L * 1024 * 1024;
+
+  public BuildContextOptions {
+    requireNonNull(compression, "compression");
+    if (compressionThreads < 1) {
+      throw new IllegalArgumentException("compressionThreads must be positive");
+    }
+    if (blockSize < 1) {
+      throw new IllegalArgumentException("blockSize must be positive");
+    }
+    if (cacheMaxSize < 0) {
+      throw new IllegalArgumentException("cacheMaxSize must not be negative");
+    }
+  }
+
+  /**
+   * Returns these options with another compression, as a {@code BuildParam} of a single call
+   * may ask for.
+   *
+   * @param compression the compression
+   * @param compressionLevel the compression level, or -1 for the default level
+   * @return the options
+   */
+  public BuildContextOptions withCompression(ContextCompression compression, int compressionLevel) {
+    return new BuildContextOptions(compression, compressionLevel, compressionThreads, blockSize,
+        streaming, cacheDirectory, cacheMaxSize);
+  }
+
+  /**
+   * The options of a client not configured otherwise: gzip on a single thread.
+   *
+   * @return the default options
+   */
+  public static BuildContextOptions defaults() {
+    return builder().build();
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public static class Builder {
+    private ContextCompression compression = ContextCompression.GZIP;
+    private int compressionLevel = -1;
+    private int compressionThreads = 1;
+    private int blockSize = ParallelGzipOutputStream.DEFAULT_BLOCK_SIZE;
+    private boolean streaming;
+    private Path cacheDirectory;
+    private long cacheMaxSize = DEFAULT_CACHE_MAX_SIZE;
+
+    public Builder compression(ContextCompression compression) {
+      this.compression = compression;
+      return this;
+    }
+
+    public Builder compressionLevel(int compressionLevel) {
+      this.compressionLevel = compressionLevel;
+      return this;
+    }
+
+    public Builder compressionThreads(int compressionThreads) {
+      this.compressionThreads = compressionThreads;
+      return this;
+    }
+
+    public Builder blockSize(int blockSize) {
+      this.blockSize = blockSize;
+      return this;
+    }
+
+    /**
+     * Sends the archive while it is being written, so that archiving and uploading overlap and
+     * nothing is written to disk. As the upload is not retried, a request failing midway needs 
+     * the whole directory to be archived again.
+     * 
+     * @param streaming whether to stream the archive
+     * @return Builder
+     */
+    public Builder streaming(boolean streaming) {
+      this.streaming = streaming;
+      return this;
+    }
+
+    /**
+     * Caches the archive of every directory, and every entry of it compressed on its own, in the 
+     * given directory. A later call on the same directory reuses the archive if no file was 
+     * added, removed or modified, or else rebuilds it from the cached entries of the unchanged 
+     * files, so only modified files are read and compressed again. Files are compared by path, 
+     * size, modification time and mode. Streaming and compression threads do not apply to a 
+     * cached archive. The cached entries are evicted least recently used first beyond 
+     * {@link #cacheMaxSize(long)}; the last archive of every directory is kept besides them. The 
+     * cache can be deleted when no call is in progress.
+     * 
+     * @param cacheDirectory the cache directory, created if it doesn't exist
+     * @return Builder
+     */
+    public Builder cacheDirectory(Path cacheDirectory) {
+      this.cacheDirectory = cacheDirectory;
+      return this;
+    }
+
+    /**
+     * Sets the size in bytes the compressed entries of the cache are evicted down to, 1 GiB by
+     * default.
+     * 
+     * @param cacheMaxSize the maximum size
+     * @return Builder
+     */
+    public Builder cacheMaxSize(long cacheMaxSize) {
+      this.cacheMaxSize = cacheMaxSize;
+      return this;
+    }
+
+    public BuildContextOptions build() {
+      return new BuildContextOptions(compression, compressionLevel, compressionThreads, blockSize,
+          streaming, cacheDirectory, cacheMaxSize);
+    }
+  }
+}
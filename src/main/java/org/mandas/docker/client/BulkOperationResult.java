@@ -0,0 +1,88 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import org.mandas.docker.client.exceptions.ConflictException;
+import org.mandas.docker.client.exceptions.DockerRequestException;
+import org.mandas.docker.client.exceptions.NotFoundException;
+
+/**
+ * The result of an operation applied to one of several containers at once. A bulk operation 
+ * never fails because of a single container; its failure is reported here instead.
+ *
+ * @param containerId the id of the container
+ * @param outcome how the operation ended
+ * @param exception the exception the operation failed with, or null if it succeeded
+ */
+public record BulkOperationResult(
+  String containerId,
+  Outcome outcome,
+  Exception exception
+) {
+
+  public enum Outcome {
+    SUCCESS,
+    /** The container doesn't exist (404). */
+    NOT_FOUND,
+    /** The container is not in a state allowing the operation (409). */
+    CONFLICT,
+    FAILED
+  }
+
+  public static BulkOperationResult success(final String containerId) {
+    return new BulkOperationResult(containerId, Outcome.SUCCESS, null);
+  }
+
+  /**
+   * The result of an operation which failed, its outcome following the exception.
+   *
+   * @param containerId the id of the container
+   * @param exception the exception the operation failed with
+   * @return the result
+   */
+  public static BulkOperationResult failure(final String containerId, final Exception exception) {
+    return new BulkOperationResult(containerId, outcome(exception), exception);
+  }
+
+  public boolean isSuccess() {
+    return outcome == Outcome.SUCCESS;
+  }
+
+  private static Outcome outcome(final Exception exception) {
+    if (exception instanceof NotFoundException) {
+      return Outcome.NOT_FOUND;
+    }
+    if (exception instanceof ConflictException) {
+      return Outcome.CONFLICT;
+    }
+    if (exception instanceof DockerRequestException) {
+      switch (((DockerRequestException) exception).status()) {
+        case 404:
+          return Outcome.NOT_FOUND;
+        case 409:
+          return Outcome.CONFLICT;
+        default:
+          return Outcome.FAILED;
+      }
+    }
+    return Outcome.FAILED;
+  }
+}
@@ -0,0 +1,711 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiPredicate;
+
+import org.mandas.docker.client.exceptions.DockerException;
+import org.mandas.docker.client.messages.Container;
+import org.mandas.docker.client.messages.ContainerConfig;
+import org.mandas.docker.client.messages.ContainerCreation;
+import org.mandas.docker.client.messages.ContainerInfo;
+import org.mandas.docker.client.messages.Event;
+import org.mandas.docker.client.messages.ImageInfo;
+import org.mandas.docker.client.messages.Network;
+import org.mandas.docker.client.messages.NetworkConnection;
+import org.mandas.docker.client.messages.RemovedImage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link DockerClient} answering {@code inspectContainer}, {@code inspectImage}, 
+ * {@code inspectNetwork} and {@code listContainers} from memory.
+ *
+ * <p>Every resource type is cached only if configured, with its own time to live and maximum
+ * number of entries; the least recently used entry is evicted once the cache is full. Entries are
+ * invalidated by tailing the {@link DockerClient#events(DockerClient.EventsParam...) events} of the
+ * daemon: an event invalidates the entries of its actor, and any container event invalidates
+ * every cached container list, as does a network event connecting or disconnecting a container, 
+ * which invalidates that container too. Calls of this client changing a container, image or network 
+ * invalidate the entries right away, so that they are read back consistently before the event
+ * arrives.</p>
+ *
+ * <p>While the events stream is down nothing is cached, and every cache is cleared once it is
+ * back, as events may have been missed.</p>
+ *
+ * <pre>
+ * {@code
+ * DockerClient client = CachingDockerClient.builder(DockerClientBuilder.fromEnv().build())
+ *     .containers(Duration.ofSeconds(5), 1000)
+ *     .containerLists(Duration.ofSeconds(1), 10)
+ *     .build();
+ * }
+ * </pre>
+ */
+public class CachingDockerClient extends ForwardingDockerClient {
+
+  private static final Logger log = LoggerFactory.getLogger(CachingDockerClient.class);
+
+  static final long RECONNECT_DELAY_MILLIS = 1000;
+
+  /**
+   * The resource types that can be cached.
+   */
+  public enum Resource {
+    CONTAINER,
+    CONTAINER_LIST,
+    IMAGE,
+    NETWORK
+  }
+
+  private final Map<Resource, Cache<Object, Object>> caches = new EnumMap<>(Resource.class);
+  private final Thread eventReader;
+  private volatile EventStream events;
+  private volatile boolean connected;
+  private volatile boolean closed;
+
+  private CachingDockerClient(final Builder builder) {
+    super(builder.delegate);
+    for (final Map.Entry<Resource, Cache<Object, Object>> entry : builder.caches.entrySet()) {
+      caches.put(entry.getKey(), entry.getValue());
+    }
+    this.eventReader = Thread.ofVirtual().name("docker-cache-events").start(this::readEvents);
+  }
+
+  public static Builder builder(final DockerClient delegate) {
+    return new Builder(delegate);
+  }
+
+  /**
+   * Returns whether the events stream is up, i.e. whether calls are answered from memory.
+   *
+   * @return true if entries are cached
+   */
+  public boolean isConnected() {
+    return connected;
+  }
+
+  @Override
+  public ContainerInfo inspectContainer(final String containerId)
+      throws DockerException, InterruptedException {
+    return cached(Resource.CONTAINER, containerId, () -> delegate().inspectContainer(containerId));
+  }
+
+  @Override
+  public ImageInfo inspectImage(final String image) throws DockerException, InterruptedException {
+    return cached(Resource.IMAGE, image, () -> delegate().inspectImage(image));
+  }
+
+  @Override
+  public Network inspectNetwork(final String networkId)
+      throws DockerException, InterruptedException {
+    return cached(Resource.NETWORK, networkId, () -> delegate().inspectNetwork(networkId));
+  }
+
+  @Override
+  public List<Container> listContainers(final ListContainersParam... params)
+      throws DockerException, InterruptedException {
+    return cached(Resource.CONTAINER_LIST, Arrays.asList(params),
+        () -> List.copyOf(delegate().listContainers(params)));
+  }
+
+  @Override
+  public ContainerCreation createContainer(final ContainerConfig config, final String name)
+      throws DockerException, InterruptedException {
+    try {
+      return delegate().createContainer(config, name);
+    } finally {
+      // a container by that name may have been cached as missing
+      invalidateContainer(name);
+    }
+  }
+
+  @Override
+  public ContainerCreation createContainer(final ContainerConfig config)
+      throws DockerException, InterruptedException {
+    try {
+      return delegate().createContainer(config);
+    } finally {
+      invalidateContainer(null);
+    }
+  }
+
+  @Override
+  public void startContainer(final String containerId)
+      throws DockerException, InterruptedException {
+    try {
+      delegate().startContainer(containerId);
+    } finally {
+      invalidateContainer(containerId);
+    }
+  }
+
+  @Override
+  public void stopContainer(final String containerId, final int secondsToWaitBeforeKilling)
+      throws DockerException, InterruptedException {
+    try {
+      delegate().stopContainer(containerId, secondsToWaitBeforeKilling);
+    } finally {
+      invalidateContainer(containerId);
+    }
+  }
+
+  @Override
+  public void restartContainer(final String containerId)
+      throws DockerException, InterruptedException {
+    try {
+      delegate().restartContainer(containerId);
+    } finally {
+      invalidateContainer(containerId);
+    }
+  }
+
+  @Override
+  public void restartContainer(final String containerId, final int secondsToWaitBeforeRestart)
+      throws DockerException, InterruptedException {
+    try {
+      delegate().restartContainer(containerId, secondsToWaitBeforeRestart);
+    } finally {
+      invalidateContainer(containerId);
+    }
+  }
+
+  @Override
+  public void killContainer(final String containerId)
+      throws DockerException, InterruptedException {
+    try {
+      delegate().killContainer(containerId);
+    } finally {
+      invalidateContainer(containerId);
+    }
+  }
+
+  @Override
+  public void killContainer(final String containerId, final Signal signal)
+      throws DockerException, InterruptedException {
+    try {
+      delegate().killContainer(containerId, signal);
+    } finally {
+      invalidateContainer(containerId);
+    }
+  }
+
+  @Override
+  public void pauseContainer(final String containerId)
+      throws DockerException, InterruptedException {
+    try {
+      delegate().pauseContainer(containerId);
+    } finally {
+      invalidateContainer(containerId);
+    }
+  }
+
+  @Override
+  public void unpauseContainer(final String containerId)
+      throws DockerException, InterruptedException {
+    try {
+      delegate().unpauseContainer(containerId);
+    } finally {
+      invalidateContainer(containerId);
+    }
+  }
+
+  @Override
+  public void renameContainer(final String containerId, final String name)
+      throws DockerException, InterruptedException {
+    try {
+      delegate().renameContainer(containerId, name);
+    } finally {
+      invalidateContainer(containerId);
+      invalidateContainer(name);
+    }
+  }
+
+  @Override
+  public void removeContainer(final String containerId)
+      throws DockerException, InterruptedException {
+    try {
+      delegate().removeContainer(containerId);
+    } finally {
+      invalidateContainer(containerId);
+    }
+  }
+
+  @Override
+  public void removeContainer(final String containerId, final RemoveContainerParam... params)
+      throws DockerException, InterruptedException {
+    try {
+      delegate().removeContainer(containerId, params);
+    } finally {
+      invalidateContainer(containerId);
+    }
+  }
+
+  @Override
+  public List<BulkOperationResult> startContainers(final Collection<String> containerIds,
+                                                   final int parallelism)
+      throws InterruptedException {
+    try {
+      return delegate().startContainers(containerIds, parallelism);
+    } finally {
+      invalidateContainers(containerIds);
+    }
+  }
+
+  @Override
+  public List<BulkOperationResult> stopContainers(final Collection<String> containerIds,
+                                                  final int secondsToWaitBeforeKilling,
+                                                  final int parallelism)
+      throws InterruptedException {
+    try {
+      return delegate().stopContainers(containerIds, secondsToWaitBeforeKilling, parallelism);
+    } finally {
+      invalidateContainers(containerIds);
+    }
+  }
+
+  @Override
+  public List<BulkOperationResult> killContainers(final Collection<String> containerIds,
+                                                  final Signal signal, final int parallelism)
+      throws InterruptedException {
+    try {
+      return delegate().killContainers(containerIds, signal, parallelism);
+    } finally {
+      invalidateContainers(containerIds);
+    }
+  }
+
+  @Override
+  public List<BulkOperationResult> pauseContainers(final Collection<String> containerIds,
+                                                   final int parallelism)
+      throws InterruptedException {
+    try {
+      return delegate().pauseContainers(containerIds, parallelism);
+    } finally {
+      invalidateContainers(containerIds);
+    }
+  }
+
+  @Override
+  public List<BulkOperationResult> unpauseContainers(final Collection<String> containerIds,
+                                                     final int parallelism)
+      throws InterruptedException {
+    try {
+      return delegate().unpauseContainers(containerIds, parallelism);
+    } finally {
+      invalidateContainers(containerIds);
+    }
+  }
+
+  @Override
+  public List<BulkOperationResult> removeContainers(final Collection<String> containerIds,
+                                                    final int parallelism,
+                                                    final RemoveContainerParam... params)
+      throws InterruptedException {
+    try {
+      return delegate().removeContainers(containerIds, parallelism, params);
+    } finally {
+      invalidateContainers(containerIds);
+    }
+  }
+
+  @Override
+  public List<BulkOperationResult> copyToContainers(final Path directory,
+                                                    final Collection<String> containerIds,
+                                                    final String path, final int parallelism)
+      throws InterruptedException, IOException {
+    try {
+      return delegate().copyToContainers(directory, containerIds, path, parallelism);
+    } finally {
+      invalidateContainers(containerIds);
+    }
+  }
+
+  @Override
+  public List<RemovedImage> removeImage(final String image)
+      throws DockerException, InterruptedException {
+    try {
+      return delegate().removeImage(image);
+    } finally {
+      invalidate(Resource.IMAGE, image);
+    }
+  }
+
+  @Override
+  public List<RemovedImage> removeImage(final String image, final boolean force,
+                                        final boolean noPrune)
+      throws DockerException, InterruptedException {
+    try {
+      return delegate().removeImage(image, force, noPrune);
+    } finally {
+      invalidate(Resource.IMAGE, image);
+    }
+  }
+
+  @Override
+  public void removeNetwork(final String networkId) throws DockerException, InterruptedException {
+    try {
+      delegate().removeNetwork(networkId);
+    } finally {
+      invalidate(Resource.NETWORK, networkId);
+    }
+  }
+
+  @Override
+  public void connectToNetwork(final String containerId, final String networkId)
+      throws DockerException, InterruptedException {
+    try {
+      delegate().connectToNetwork(containerId, networkId);
+    } finally {
+      invalidateNetworkConnection(containerId, networkId);
+    }
+  }
+
+  @Override
+  public void connectToNetwork(final String networkId, final NetworkConnection networkConnection)
+      throws DockerException, InterruptedException {
+    try {
+      delegate().connectToNetwork(networkId, networkConnection);
+    } finally {
+      invalidateNetworkConnection(networkConnection.containerId(), networkId);
+    }
+  }
+
+  @Override
+  public void disconnectFromNetwork(final String containerId, final String networkId)
+      throws DockerException, InterruptedException {
+    try {
+      delegate().disconnectFromNetwork(containerId, networkId);
+    } finally {
+      invalidateNetworkConnection(containerId, networkId);
+    }
+  }
+
+  @Override
+  public void disconnectFromNetwork(final String containerId, final String networkId,
+                                    final boolean force)
+      throws DockerException, InterruptedException {
+    try {
+      delegate().disconnectFromNetwork(containerId, networkId, force);
+    } finally {
+      invalidateNetworkConnection(containerId, networkId);
+    }
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    connected = false;
+    eventReader.interrupt();
+    closeEvents();
+    super.close();
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> T cached(final Resource resource, final Object key, final Loader<T> loader)
+      throws DockerException, InterruptedException {
+    final Cache<Object, Object> cache = caches.get(resource);
+    if (cache == null || !connected) {
+      return loader.load();
+    }
+    final Object cachedValue = cache.get(key);
+    if (cachedValue != null) {
+      return (T) cachedValue;
+    }
+    final long generation = cache.generation();
+    final T value = loader.load();
+    // only while still connected, the stream may have failed during the load
+    if (connected) {
+      cache.put(key, value, generation);
+    }
+    return value;
+  }
+
+  private void invalidateContainer(final String containerId) {
+    if (containerId != null) {
+      invalidate(Resource.CONTAINER, containerId);
+    }
+    final Cache<Object, Object> lists = caches.get(Resource.CONTAINER_LIST);
+    if (lists != null) {
+      lists.clear();
+    }
+  }
+
+  private void invalidateNetworkConnection(final String containerId, final String networkId) {
+    invalidate(Resource.NETWORK, networkId);
+    invalidateContainer(containerId);
+  }
+
+  private void invalidateContainers(final Collection<String> containerIds) {
+    for (final String containerId : containerIds) {
+      invalidate(Resource.CONTAINER, containerId);
+    }
+    invalidateContainer(null);
+  }
+
+  private void invalidate(final Resource resource, final String idOrName) {
+    final Cache<Object, Object> cache = caches.get(resource);
+    if (cache != null) {
+      cache.removeIf((key, value) -> idOrName.equals(key) || idOrName.equals(idOf(value)));
+    }
+  }
+
+  private static String idOf(final Object value) {
+    if (value instanceof ContainerInfo) {
+      return ((ContainerInfo) value).id();
+    } else if (value instanceof ImageInfo) {
+      return ((ImageInfo) value).id();
+    } else if (value instanceof Network) {
+      return ((Network) value).id();
+    }
+    return null;
+  }
+
+  private void clear() {
+    for (final Cache<Object, Object> cache : caches.values()) {
+      cache.clear();
+    }
+  }
+
+  private void readEvents() {
+    while (!closed) {
+      try (final EventStream stream = delegate().events()) {
+        events = stream;
+        if (closed) {
+          break;
+        }
+        // events may have been missed while disconnected
+        clear();
+        connected = true;
+        while (stream.hasNext()) {
+          onEvent(stream.next());
+        }
+      } catch (DockerException | IOException | RuntimeException e) {
+        if (!closed) {
+          log.warn("Events stream failed, not caching until it is back", e);
+        }
+      } catch (InterruptedException e) {
+        break;
+      } finally {
+        connected = false;
+        clear();
+      }
+      try {
+        Thread.sleep(RECONNECT_DELAY_MILLIS);
+      } catch (InterruptedException e) {
+        break;
+      }
+    }
+  }
+
+  void onEvent(final Event event) {
+    if (event.type() == null || event.actor() == null || event.actor().id() == null) {
+      return;
+    }
+    final String id = event.actor().id();
+    final Map<String, String> attributes = event.actor().attributes();
+    final String name = attributes == null ? null : attributes.get("name");
+    switch (event.type()) {
+      case CONTAINER:
+        invalidateContainer(id);
+        if (name != null) {
+          invalidate(Resource.CONTAINER, name);
+        }
+        break;
+      case IMAGE:
+        invalidate(Resource.IMAGE, id);
+        if (name != null) {
+          invalidate(Resource.IMAGE, name);
+        }
+        break;
+      case NETWORK:
+        invalidate(Resource.NETWORK, id);
+        if (name != null) {
+          invalidate(Resource.NETWORK, name);
+        }
+        // connect and disconnect change the networks of the container too
+        final String container = attributes == null ? null : attributes.get("container");
+        if (container != null) {
+          invalidateContainer(container);
+        }
+        break;
+      default:
+        break;
+    }
+  }
+
+  private void closeEvents() {
+    final EventStream stream = events;
+    if (stream != null) {
+      try {
+        stream.close();
+      } catch (IOException e) {
+        log.debug("Failed to close events stream", e);
+      }
+    }
+  }
+
+  private interface Loader<T> {
+    T load() throws DockerException, InterruptedException;
+  }
+
+  /**
+   * A bounded LRU map whose entries expire after a fixed time. Every invalidation bumps the
+   * generation, so that a value loaded concurrently with an invalidation is not cached.
+   */
+  private static class Cache<K, V> {
+
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private long generation;
+
+    private Cache(final Duration ttl, final int maxSize) {
+      this.ttlNanos = ttl.toNanos();
+      this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<K, Entry<V>> eldest) {
+          return size() > maxSize;
+        }
+      };
+    }
+
+    private synchronized V get(final K key) {
+      final Entry<V> entry = entries.get(key);
+      if (entry == null) {
+        return null;
+      }
+      if (System.nanoTime() - entry.expiresAt > 0) {
+        entries.remove(key);
+        return null;
+      }
+      return entry.value;
+    }
+
+    private synchronized long generation() {
+      return generation;
+    }
+
+    private synchronized void put(final K key, final V value, final long loadedAt) {
+      if (generation == loadedAt && value != null) {
+        entries.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+      }
+    }
+
+    private synchronized void removeIf(final BiPredicate<K, V> predicate) {
+      generation++;
+      entries.entrySet().removeIf(entry -> predicate.test(entry.getKey(), entry.getValue().value));
+    }
+
+    private synchronized void clear() {
+      generation++;
+      entries.clear();
+    }
+  }
+
+  private record Entry<V>(V value, long expiresAt) {}
+
+  public static class Builder {
+
+    private final DockerClient delegate;
+    private final Map<Resource, Cache<Object, Object>> caches = new EnumMap<>(Resource.class);
+
+    private Builder(final DockerClient delegate) {
+      this.delegate = requireNonNull(delegate, "delegate");
+    }
+
+    /**
+     * Caches a resource type.
+     *
+     * @param resource the resource type
+     * @param ttl how long an entry is kept at most
+     * @param maxSize the maximum number of entries
+     * @return Builder
+     */
+    public Builder cache(final Resource resource, final Duration ttl, final int maxSize) {
+      requireNonNull(resource, "resource");
+      requireNonNull(ttl, "ttl");
+      if (maxSize <= 0) {
+        throw new IllegalArgumentException("maxSize must be positive");
+      }
+      caches.put(resource, new Cache<>(ttl, maxSize));
+      return this;
+    }
+
+    /**
+     * Caches {@code inspectContainer} by container id or name.
+     *
+     * @param ttl how long an entry is kept at most
+     * @param maxSize the maximum number of entries
+     * @return Builder
+     */
+    public Builder containers(final Duration ttl, final int maxSize) {
+      return cache(Resource.CONTAINER, ttl, maxSize);
+    }
+
+    /**
+     * Caches {@code listContainers} by its parameters.
+     *
+     * @param ttl how long an entry is kept at most
+     * @param maxSize the maximum number of entries
+     * @return Builder
+     */
+    public Builder containerLists(final Duration ttl, final int maxSize) {
+      return cache(Resource.CONTAINER_LIST, ttl, maxSize);
+    }
+
+    /**
+     * Caches {@code inspectImage} by image id or name.
+     *
+     * @param ttl how long an entry is kept at most
+     * @param maxSize the maximum number of entries
+     * @return Builder
+     */
+    public Builder images(final Duration ttl, final int maxSize) {
+      return cache(Resource.IMAGE, ttl, maxSize);
+    }
+
+    /**
+     * Caches {@code inspectNetwork} by network id or name.
+     *
+     * @param ttl how long an entry is kept at most
+     * @param maxSize the maximum number of entries
+     * @return Builder
+     */
+    public Builder networks(final Duration ttl, final int maxSize) {
+      return cache(Resource.NETWORK, ttl, maxSize);
+    }
+
+    public CachingDockerClient build() {
+      return new CachingDockerClient(this);
+    }
+  }
+}
@@ -0,0 +1,178 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import java.time.Duration;
+
+import org.mandas.docker.Nullable;
+
+/**
+ * A deadline and a cancellation for the calls a thread makes to the docker daemon while the 
+ * context is open.
+ *
+ * <pre>
+ * try (CallContext context = CallContext.withTimeout(Duration.ofMillis(500))) {
+ *   docker.inspectContainer(id);
+ * }
+ * </pre>
+ *
+ * <p>Every request made by {@link DefaultDockerClient} in the context waits for the daemon at most
+ * until the deadline, and a call which outlives it fails with a
+ * {@link org.mandas.docker.client.exceptions.DockerTimeoutException}. The progress of pull, push,
+ * build, load and create calls is tailed until the deadline as well. Calls returning a stream, 
+ * such as logs or events, are bounded by the deadline until connected only: waiting for their 
+ * response and reading the stream keep the read timeout of the client, so that a stream being
+ * followed does not fail once idle for the time that was left. They can still be cancelled.</p>
+ *
+ * <p>{@link #cancel()} may be called from any thread. It interrupts the thread of the context, 
+ * which aborts the connection of its request on a virtual thread or with the
+ * {@link org.mandas.docker.client.builder.DockerClientBuilder.Transport#SOCKET_CHANNEL} transport,
+ * and stops waiting for a progress tail, and the call fails with an
+ * {@link org.mandas.docker.client.exceptions.OperationCancelledException}. Otherwise a blocked 
+ * socket read of a platform thread only ends with the deadline or the read timeout. The thread 
+ * stays interrupted until the context is closed.</p>
+ *
+ * <p>Contexts nest: a context opened within another one keeps the earlier of both deadlines and is
+ * cancelled along with it. Calls handed to other threads, such as those of
+ * {@link AsyncDockerClient}, keep the deadline of the context they were issued in.</p>
+ */
+public final class CallContext implements AutoCloseable {
+
+  private static final ThreadLocal<CallContext> CURRENT = new ThreadLocal<>();
+
+  private final CallContext parent;
+  private final Thread thread;
+  private final long deadline;
+  private boolean cancelled;
+  private boolean interrupted;
+  private boolean closed;
+
+  private CallContext(final Duration timeout) {
+    this.parent = CURRENT.get();
+    this.thread = Thread.currentThread();
+    long deadline = timeout == null ? Long.MAX_VALUE : System.nanoTime() + timeout.toNanos();
+    if (parent != null && parent.deadline - deadline < 0) {
+      deadline = parent.deadline;
+    }
+    this.deadline = deadline;
+    CURRENT.set(this);
+  }
+
+  /**
+   * Opens a context for the current thread, without a deadline of its own.
+   *
+   * @return the context, to be closed by the current thread
+   */
+  public static CallContext open() {
+    return new CallContext(null);
+  }
+
+  /**
+   * Opens a context for the current thread, with a deadline after the given timeout.
+   *
+   * @param timeout the time the calls of the context may take
+   * @return the context, to be closed by the current thread
+   */
+  public static CallContext withTimeout(final Duration timeout) {
+    return new CallContext(timeout);
+  }
+
+  /**
+   * @return the innermost context open on the current thread, or null
+   */
+  @Nullable
+  public static CallContext current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * @return whether the innermost context open on the current thread, if any, has been cancelled
+   *     or has expired
+   */
+  static boolean isCurrentOver() {
+    final CallContext context = CURRENT.get();
+    return context != null && (context.isCancelled() || context.isExpired());
+  }
+
+  /**
+   * Cancels the calls of the context, the one in progress and the ones to come.
+   */
+  public void cancel() {
+    synchronized (this) {
+      if (cancelled || closed) {
+        return;
+      }
+      cancelled = true;
+      interrupted = true;
+      // under the lock, so that the interrupt cannot land once close() has cleared it
+      thread.interrupt();
+    }
+  }
+
+  /**
+   * @return whether the context or an enclosing one has been cancelled
+   */
+  public synchronized boolean isCancelled() {
+    return cancelled || (parent != null && parent.isCancelled());
+  }
+
+  /**
+   * @return whether the deadline has passed
+   */
+  public boolean isExpired() {
+    return deadline != Long.MAX_VALUE && deadline - System.nanoTime() <= 0;
+  }
+
+  /**
+   * @return the time left until the deadline, or null if there is no deadline
+   */
+  @Nullable
+  public Duration remaining() {
+    return deadline == Long.MAX_VALUE
+        ? null : Duration.ofNanos(Math.max(0, deadline - System.nanoTime()));
+  }
+
+  /**
+   * Ends the context, restoring the enclosing one. The interrupt of a cancellation is cleared.
+   */
+  @Override
+  public void close() {
+    if (Thread.currentThread() != thread) {
+      throw new IllegalStateException("A call context is closed by the thread which opened it");
+    }
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+    }
+    if (CURRENT.get() == this) {
+      if (parent != null) {
+        CURRENT.set(parent);
+      } else {
+        CURRENT.remove();
+      }
+    }
+    if (interrupted) {
+      Thread.interrupted();
+    }
+  }
+}
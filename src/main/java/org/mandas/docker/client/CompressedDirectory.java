@@ -21,13 +21,14 @@
 
 package org.mandas.docker.client;
 
-import static java.util.Collections.reverse;
 import static java.util.Collections.unmodifiableList;
 import static org.apache.commons.compress.archivers.tar.TarArchiveOutputStream.BIGNUMBER_POSIX;
 import static org.apache.commons.compress.archivers.tar.TarArchiveOutputStream.LONGFILE_POSIX;
 
 import java.io.Closeable;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystem;
@@ -44,17 +45,24 @@ import java.nio.file.attribute.PosixFileAttributes;
 import java.nio.file.attribute.PosixFilePermission;
 import java.text.MessageFormat;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipParameters;
+import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
+import org.apache.commons.compress.compressors.xz.XZUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.tukaani.xz.LZMA2Options;
 
 /**
  * This helper class is used during the docker build command to create a gzip tarball of a directory
@@ -79,8 +87,20 @@ class CompressedDirectory implements Closeable {
 
   private final Path file;
 
+  private final boolean temporary;
+
+  private final BuildContextCache.Archive cached;
+
   private CompressedDirectory(Path file) {
     this.file = file;
+    this.temporary = true;
+    this.cached = null;
+  }
+
+  private CompressedDirectory(BuildContextCache.Archive archive) {
+    this.file = archive.path();
+    this.temporary = false;
+    this.cached = archive;
   }
 
   /**
@@ -103,21 +123,32 @@ class CompressedDirectory implements Closeable {
    * @throws IOException if the compressed directory could not be created.
    */
   public static CompressedDirectory create(final Path directory) throws IOException {
+    return create(directory, BuildContextOptions.defaults());
+  }
+
+  /**
+   * Creates a tarball of the specified directory as {@link #create(Path)} does, compressing it
+   * with the given options. With more than one compression thread a gzip tarball is compressed in 
+   * independent blocks, one gzip member per block. {@link ContextCompression#AUTO} stands for 
+   * gzip.
+   *
+   * @param directory the directory to compress
+   * @param options the compression options
+   * @return a Path object representing the compressed directory
+   * @throws IOException if the compressed directory could not be created.
+   */
+  public static CompressedDirectory create(final Path directory, final BuildContextOptions options)
+      throws IOException {
+    if (options.cacheDirectory() != null && compression(options) == ContextCompression.GZIP) {
+      return createCached(directory, options);
+    }
     final Path file = Files.createTempFile("docker-client-", ".tar.gz");
 
     final Path dockerIgnorePath = directory.resolve(".dockerignore");
     final List<DockerIgnorePathMatcher> ignoreMatchers = parseDockerIgnore(dockerIgnorePath);
 
-    try (final OutputStream fileOut = Files.newOutputStream(file);
-         final GzipCompressorOutputStream gzipOut = new GzipCompressorOutputStream(fileOut);
-         final TarArchiveOutputStream tarOut = new TarArchiveOutputStream(gzipOut)) {
-      tarOut.setLongFileMode(LONGFILE_POSIX);
-      tarOut.setBigNumberMode(BIGNUMBER_POSIX);
-      Files.walkFileTree(directory,
-                         EnumSet.of(FileVisitOption.FOLLOW_LINKS),
-                         Integer.MAX_VALUE,
-                         new Visitor(directory, ignoreMatchers, tarOut));
-
+    try (final OutputStream fileOut = Files.newOutputStream(file)) {
+      write(directory, ignoreMatchers, options, fileOut);
     } catch (IOException t) {
       // If an error occurs, delete temporary file before rethrowing exclude.
       try {
@@ -133,9 +164,141 @@ class CompressedDirectory implements Closeable {
     return new CompressedDirectory(file);
   }
 
+  /**
+   * Opens a tarball of the specified directory, as {@link #create(Path, BuildContextOptions)}
+   * would create it. When {@link BuildContextOptions#streaming()} is set, the tarball is written by
+   * a background thread while it is read and nothing is stored on disk, otherwise it is read from 
+   * a temporary file which is deleted when the stream is closed.
+   *
+   * @param directory the directory to compress
+   * @param options the compression options
+   * @return the gzip tarball
+   * @throws IOException if the .dockerignore file could not be read, or the compressed directory
+   *     could not be created.
+   */
+  static InputStream open(final Path directory, final BuildContextOptions options)
+      throws IOException {
+    if (options.streaming()
+        && (options.cacheDirectory() == null || compression(options) != ContextCompression.GZIP)) {
+      final List<DockerIgnorePathMatcher> ignoreMatchers =
+          parseDockerIgnore(directory.resolve(".dockerignore"));
+      return ArchivePipe.start(out -> write(directory, ignoreMatchers, options, out),
+          "docker-client-context-" + directory.getFileName());
+    }
+    final CompressedDirectory compressedDirectory = create(directory, options);
+    try {
+      return new FilterInputStream(Files.newInputStream(compressedDirectory.file())) {
+        private boolean closed;
+
+        @Override
+        public void close() throws IOException {
+          // closed by the connector once sent, then by the caller
+          if (closed) {
+            return;
+          }
+          closed = true;
+          try (compressedDirectory) {
+            super.close();
+          }
+        }
+      };
+    } catch (IOException e) {
+      compressedDirectory.close();
+      throw e;
+    }
+  }
+
+  private static void write(final Path directory, final List<DockerIgnorePathMatcher> ignoreMatchers,
+                            final BuildContextOptions options, final OutputStream out)
+      throws IOException {
+    try (final OutputStream compressedOut = compress(out, options);
+         final TarArchiveOutputStream tarOut = new TarArchiveOutputStream(compressedOut)) {
+      tarOut.setLongFileMode(LONGFILE_POSIX);
+      tarOut.setBigNumberMode(BIGNUMBER_POSIX);
+      Files.walkFileTree(directory,
+                         EnumSet.of(FileVisitOption.FOLLOW_LINKS),
+                         Integer.MAX_VALUE,
+                         new Visitor(directory, ignoreMatchers,
+                             (path, entry) -> writeEntry(tarOut, path, entry)));
+    }
+  }
+
+  /**
+   * Creates the tarball through a {@link BuildContextCache} in the given directory, which is kept
+   * when the returned object is closed; it may be deleted by the cache only after that.
+   */
+  private static CompressedDirectory createCached(final Path directory,
+                                                  final BuildContextOptions options)
+      throws IOException {
+    final List<DockerIgnorePathMatcher> ignoreMatchers =
+        parseDockerIgnore(directory.resolve(".dockerignore"));
+    final BuildContextCache.Session session =
+        new BuildContextCache(options.cacheDirectory(), options.cacheMaxSize()).open(directory);
+    Files.walkFileTree(directory,
+                       EnumSet.of(FileVisitOption.FOLLOW_LINKS),
+                       Integer.MAX_VALUE,
+                       new Visitor(directory, ignoreMatchers, session::add));
+    return new CompressedDirectory(session.finish());
+  }
+
+  static void writeEntry(final TarArchiveOutputStream tarOut, final Path path,
+                         final TarArchiveEntry entry) throws IOException {
+    tarOut.putArchiveEntry(entry);
+    if (!entry.isDirectory()) {
+      Files.copy(path, tarOut);
+    }
+    tarOut.closeArchiveEntry();
+  }
+
+  /**
+   * Receives the entries of the tarball as the directory is walked.
+   */
+  @FunctionalInterface
+  interface EntryWriter {
+    void write(Path path, TarArchiveEntry entry) throws IOException;
+  }
+
+  private static ContextCompression compression(final BuildContextOptions options) {
+    // without a daemon to tell where it is, gzip is the safe choice
+    return options.compression() == ContextCompression.AUTO
+        ? ContextCompression.GZIP : options.compression();
+  }
+
+  private static OutputStream compress(final OutputStream out, final BuildContextOptions options)
+      throws IOException {
+    final int level = options.compressionLevel();
+    switch (compression(options)) {
+      case IDENTITY:
+        return out;
+      case BZIP2:
+        return new BZip2CompressorOutputStream(out,
+            level == -1 ? BZip2CompressorOutputStream.MAX_BLOCKSIZE : level);
+      case XZ:
+        if (!XZUtils.isXZCompressionAvailable()) {
+          throw new IOException("xz compression requires org.tukaani:xz on the classpath");
+        }
+        return XZCompressorOutputStream.builder()
+            .setOutputStream(out)
+            .setLzma2Options(new LZMA2Options(level == -1 ? LZMA2Options.PRESET_DEFAULT : level))
+            .get();
+      default:
+        if (options.compressionThreads() > 1) {
+          return new ParallelGzipOutputStream(out, options.blockSize(),
+              options.compressionThreads(), level);
+        }
+        final GzipParameters parameters = new GzipParameters();
+        parameters.setCompressionLevel(level);
+        return new GzipCompressorOutputStream(out, parameters);
+    }
+  }
+
   @Override
   public void close() throws IOException {
-    Files.delete(file);
+    if (temporary) {
+      Files.delete(file);
+    } else if (cached != null) {
+      cached.close();
+    }
   }
 
   static List<DockerIgnorePathMatcher> parseDockerIgnore(Path dockerIgnorePath)
@@ -174,10 +337,14 @@ class CompressedDirectory implements Closeable {
   }
 
   static PathMatcher goPathMatcher(FileSystem fs, String pattern) {
+    return fs.getPathMatcher("regex:" + goRegex(fs.getSeparator(), pattern));
+  }
+
+  private static String goRegex(String separator, String pattern) {
     // Supposed to work the same way as Go's path.filepath.match.Match:
     // http://golang.org/src/path/filepath/match.go#L34
 
-    final String notSeparatorPattern = getNotSeparatorPattern(fs.getSeparator());
+    final String notSeparatorPattern = getNotSeparatorPattern(separator);
 
     final String starPattern = String.format("%s*", notSeparatorPattern);
 
@@ -233,7 +400,7 @@ class CompressedDirectory implements Closeable {
       }
     }
 
-    return fs.getPathMatcher("regex:" + patternBuilder.toString());
+    return patternBuilder.toString();
   }
 
   private static String getNotSeparatorPattern(String separator) {
@@ -253,18 +420,14 @@ class CompressedDirectory implements Closeable {
   private static class Visitor extends SimpleFileVisitor<Path> {
 
     private final Path root;
-    private final List<DockerIgnorePathMatcher> ignoreMatchers;
-    private final TarArchiveOutputStream tarStream;
+    private final IgnoreRules ignoreRules;
+    private final EntryWriter writer;
 
     private Visitor(final Path root, List<DockerIgnorePathMatcher> ignoreMatchers,
-                    final TarArchiveOutputStream tarStream) {
+                    final EntryWriter writer) {
       this.root = root;
-      // .dockerignore matchers need to be read from the bottom of the file, 
-      // so the given list should be reversed before using it.
-      List<DockerIgnorePathMatcher> unsortedMatchers = new ArrayList<>(ignoreMatchers);
-      reverse(unsortedMatchers);
-      this.ignoreMatchers = Collections.unmodifiableList(unsortedMatchers);
-      this.tarStream = tarStream;
+      this.ignoreRules = new IgnoreRules(root.getFileSystem(), ignoreMatchers);
+      this.writer = writer;
     }
 
     @Override
@@ -276,15 +439,17 @@ class CompressedDirectory implements Closeable {
 
       final Path relativePath = root.relativize(dir);
 
-      if (exclude(ignoreMatchers, relativePath)) {
-        return FileVisitResult.CONTINUE;
+      final int rule = ignoreRules.match(relativePath);
+      if (ignoreRules.isExclude(rule)) {
+        // nothing below an excluded directory can be included again unless a later ! pattern says so
+        return ignoreRules.excludesSubtree(relativePath, rule)
+            ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
       }
 
       final TarArchiveEntry entry = new TarArchiveEntry(dir.toFile());
       entry.setName(relativePath.toString());
       entry.setMode(getFileMode(dir));
-      tarStream.putArchiveEntry(entry);
-      tarStream.closeArchiveEntry();
+      writer.write(dir, entry);
       return FileVisitResult.CONTINUE;
     }
 
@@ -293,7 +458,7 @@ class CompressedDirectory implements Closeable {
 
       final Path relativePath = root.relativize(file);
 
-      if (exclude(ignoreMatchers, relativePath)) {
+      if (ignoreRules.isExclude(ignoreRules.match(relativePath))) {
         return FileVisitResult.CONTINUE;
       }
 
@@ -301,28 +466,10 @@ class CompressedDirectory implements Closeable {
       entry.setName(relativePath.toString());
       entry.setMode(getFileMode(file));
       entry.setSize(attrs.size());
-      tarStream.putArchiveEntry(entry);
-      Files.copy(file, tarStream);
-      tarStream.closeArchiveEntry();
+      writer.write(file, entry);
       return FileVisitResult.CONTINUE;
     }
 
-    /**
-     * Checks if any of the given {@link DockerIgnorePathMatcher} matches the given {@code path}.
-     *
-     * @param matchers the {@link DockerIgnorePathMatcher} to use
-     * @param path     the path to match
-     * @return <code>true</code> if the given path should be excluded, <code>false</code> otherwise
-     */
-    private static boolean exclude(List<DockerIgnorePathMatcher> matchers, Path path) {
-      for (final DockerIgnorePathMatcher matcher : matchers) {
-        if (matcher.matches(path)) {
-          return matcher.isExclude();
-        }
-      }
-      return false;
-    }
-
     private static int getFileMode(Path file) throws IOException {
       if (isPosixComplantFs()) {
         return getPosixFileMode(file);
@@ -377,6 +524,145 @@ class CompressedDirectory implements Closeable {
 
   }
 
+  /**
+   * The patterns of a .dockerignore file compiled for matching many paths. Like the
+   * {@link DockerIgnorePathMatcher}s it is built from, a path is matched by a pattern if it starts 
+   * with it or matches it as a glob, and the last matching pattern of the file decides whether it 
+   * is excluded.
+   *
+   * <p>Instead of trying every pattern in turn, the prefixes are looked up in a map, one lookup 
+   * per name element of the path, literal patterns in another, and the remaining globs are 
+   * combined into a single regular expression whose alternatives are ordered from the last 
+   * pattern to the first, so that the first one to match is the one deciding.</p>
+   */
+  static class IgnoreRules {
+
+    private final List<DockerIgnorePathMatcher> matchers;
+    private final Map<Path, Integer> prefixes = new HashMap<>();
+    private final Path[] prefixPaths;
+    private final Map<String, Integer> literals = new HashMap<>();
+    private final Pattern globs;
+    private final int[] globRules;
+
+    IgnoreRules(final FileSystem fileSystem, final List<DockerIgnorePathMatcher> matchers) {
+      this.matchers = matchers;
+      this.prefixPaths = new Path[matchers.size()];
+      final boolean literalsMatchExactly = "/".equals(fileSystem.getSeparator());
+      final StringBuilder regex = new StringBuilder();
+      final List<Integer> rules = new ArrayList<>();
+      for (int i = matchers.size() - 1; i >= 0; i--) {
+        final DockerIgnorePathMatcher matcher = matchers.get(i);
+        try {
+          final Path prefix = fileSystem.getPath(matcher.toString());
+          if (prefix.getRoot() == null) {
+            prefixes.putIfAbsent(prefix, i);
+            prefixPaths[i] = prefix;
+          }
+        } catch (InvalidPathException e) {
+          log.error("invalid path", e);
+        }
+        final String glob = matcher.glob();
+        if (literalsMatchExactly && isLiteral(glob)) {
+          literals.putIfAbsent(glob, i);
+        } else {
+          regex.append(regex.length() == 0 ? "(" : "|(").append(matcher.regex()).append(')');
+          rules.add(i);
+        }
+      }
+      // the regex PathMatcher of Windows ignores case, keep doing so
+      final int flags = literalsMatchExactly ? 0 : Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+      this.globs = rules.isEmpty() ? null : Pattern.compile(regex.toString(), flags);
+      this.globRules = rules.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * @param path the path relative to the build context
+     * @return the index of the last pattern matching the path, or -1 if none does
+     */
+    int match(final Path path) {
+      int rule = -1;
+      for (int i = 1; i <= path.getNameCount(); i++) {
+        final Integer prefix = prefixes.get(path.subpath(0, i));
+        if (prefix != null && prefix > rule) {
+          rule = prefix;
+        }
+      }
+      final String name = path.toString();
+      final Integer literal = literals.get(name);
+      if (literal != null && literal > rule) {
+        rule = literal;
+      }
+      if (globs != null && (globRules[0] > rule)) {
+        final Matcher matcher = globs.matcher(name);
+        if (matcher.matches()) {
+          for (int group = 1; group <= globRules.length; group++) {
+            if (matcher.start(group) >= 0) {
+              rule = Math.max(rule, globRules[group - 1]);
+              break;
+            }
+          }
+        }
+      }
+      return rule;
+    }
+
+    boolean isExclude(final int rule) {
+      return rule >= 0 && matchers.get(rule).isExclude();
+    }
+
+    /**
+     * Tells whether everything below a directory is excluded, which holds when the directory is
+     * excluded by a prefix, that every descendant shares, and no later ! pattern could match any
+     * of the descendants.
+     *
+     * @param directory the excluded directory, relative to the build context
+     * @param rule the index of the pattern excluding it, as returned by {@link #match(Path)}
+     * @return whether the directory need not be walked
+     */
+    boolean excludesSubtree(final Path directory, final int rule) {
+      final Path prefix = matchers.get(rule).isExclude() ? prefixPaths[rule] : null;
+      if (prefix == null || !directory.startsWith(prefix)) {
+        return false;
+      }
+      final String descendants = directory.toString() + directory.getFileSystem().getSeparator();
+      for (int i = rule + 1; i < matchers.size(); i++) {
+        final DockerIgnorePathMatcher matcher = matchers.get(i);
+        if (matcher.isExclude()) {
+          continue;
+        }
+        final Path includePrefix = prefixPaths[i];
+        if (includePrefix != null && includePrefix.startsWith(directory)) {
+          return false;
+        }
+        // the literal part of the glob is all we can compare without expanding it
+        final String literal = literalPrefix(matcher.glob());
+        if (literal.startsWith(descendants) || descendants.startsWith(literal)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static boolean isLiteral(final String glob) {
+      return literalPrefix(glob).length() == glob.length();
+    }
+
+    private static String literalPrefix(final String glob) {
+      for (int i = 0; i < glob.length(); i++) {
+        switch (glob.charAt(i)) {
+          case '*':
+          case '?':
+          case '[':
+          case '\\':
+            return glob.substring(0, i);
+          default:
+            break;
+        }
+      }
+      return glob;
+    }
+  }
+
   /**
    * A decorator for the {@link PathMatcher} with a type to determine if it is an exclusion pattern
    * or an exclude to an aforementioned exclusion.
@@ -386,6 +672,10 @@ class CompressedDirectory implements Closeable {
 
     private final String pattern;
 
+    private final String glob;
+
+    private final String regex;
+
     private final PathMatcher matcher;
 
     private final boolean exclude;
@@ -402,11 +692,23 @@ class CompressedDirectory implements Closeable {
                                    final boolean exclude) {
       this.exclude = exclude;
       this.pattern = pattern;
-      if (exclude) {
-        this.matcher = goPathMatcher(fileSystem, pattern);
-      } else {
-        this.matcher = goPathMatcher(fileSystem, pattern.substring(1));
-      }
+      this.glob = exclude ? pattern : pattern.substring(1);
+      this.regex = goRegex(fileSystem.getSeparator(), glob);
+      this.matcher = fileSystem.getPathMatcher("regex:" + regex);
+    }
+
+    /**
+     * @return the glob of the pattern, without the leading ! of an inclusion
+     */
+    String glob() {
+      return glob;
+    }
+
+    /**
+     * @return the regular expression the glob is translated to
+     */
+    String regex() {
+      return regex;
     }
 
     /**
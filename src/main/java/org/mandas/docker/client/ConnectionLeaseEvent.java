@@ -0,0 +1,46 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import java.time.Duration;
+
+import org.mandas.docker.Nullable;
+
+/**
+ * The lease of a connection from the connection pool, see {@link DockerClientListener}. The pool
+ * figures are taken right after the lease.
+ *
+ * @param waitTime the time spent waiting for a connection
+ * @param leased the number of connections leased
+ * @param pending the number of requests waiting for a connection
+ * @param available the number of idle connections
+ * @param max the maximum number of connections
+ * @param exception the class of the exception failing the lease, or null if it succeeded
+ */
+public record ConnectionLeaseEvent(
+  Duration waitTime,
+  int leased,
+  int pending,
+  int available,
+  int max,
+  @Nullable
+  Class<? extends Throwable> exception
+) {}
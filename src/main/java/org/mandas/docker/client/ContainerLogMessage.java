@@ -0,0 +1,40 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import java.time.Instant;
+
+import org.mandas.docker.Nullable;
+
+/**
+ * A {@link LogMessage} of an {@link AggregatedLogStream}, tagged with the container it was read
+ * from.
+ *
+ * @param containerId the id of the container the message was read from
+ * @param timestamp the time dockerd received the message, or null if it could not be determined
+ * @param message the message, without the timestamp prefix unless timestamps were requested
+ */
+public record ContainerLogMessage(
+  String containerId,
+  @Nullable
+  Instant timestamp,
+  LogMessage message
+) {}
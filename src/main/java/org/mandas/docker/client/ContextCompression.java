@@ -0,0 +1,49 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+/**
+ * The compression of the tar archives sent by {@code build} and {@code copyToContainer} calls, 
+ * all of which dockerd accepts.
+ */
+public enum ContextCompression {
+  /**
+   * {@link #IDENTITY} when talking to dockerd over a unix socket, where compressing only costs 
+   * CPU, {@link #GZIP} otherwise.
+   */
+  AUTO,
+  /**
+   * No compression.
+   */
+  IDENTITY,
+  /**
+   * gzip, levels 1 to 9.
+   */
+  GZIP,
+  /**
+   * bzip2, levels 1 to 9 being the block size in units of 100k.
+   */
+  BZIP2,
+  /**
+   * xz, levels 0 to 9. Requires {@code org.tukaani:xz} on the classpath.
+   */
+  XZ
+}
@@ -0,0 +1,114 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * How {@link DockerClient#copyFromContainer(String, String, java.nio.file.Path, CopyFromContainerOptions)}
+ * extracts the archive of a container path.
+ *
+ * <p>Patterns are globs, as understood by {@link java.nio.file.FileSystem#getPathMatcher(String)},
+ * matched against the names of the archive entries, e.g. {@code share/doc/**}. An entry is 
+ * extracted if it matches one of the includes, or if there are none, and none of the excludes.</p>
+ *
+ * @param includes the patterns of the entries to extract
+ * @param excludes the patterns of the entries not to extract
+ * @param preservePermissions whether files get the permissions recorded in the archive
+ * @param preserveModificationTimes whether files get the modification times recorded in the archive
+ * @param threads the number of threads writing files
+ */
+public record CopyFromContainerOptions(
+  List<String> includes,
+  List<String> excludes,
+  boolean preservePermissions,
+  boolean preserveModificationTimes,
+  int threads
+) {
+
+  public CopyFromContainerOptions {
+    includes = List.copyOf(includes);
+    excludes = List.copyOf(excludes);
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be positive");
+    }
+  }
+
+  /**
+   * Everything extracted, permissions and modification times preserved, on a single thread.
+   *
+   * @return the default options
+   */
+  public static CopyFromContainerOptions defaults() {
+    return builder().build();
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public static class Builder {
+    private final List<String> includes = new ArrayList<>();
+    private final List<String> excludes = new ArrayList<>();
+    private boolean preservePermissions = true;
+    private boolean preserveModificationTimes = true;
+    private int threads = 1;
+
+    public Builder include(String... patterns) {
+      includes.addAll(Arrays.asList(patterns));
+      return this;
+    }
+
+    public Builder exclude(String... patterns) {
+      excludes.addAll(Arrays.asList(patterns));
+      return this;
+    }
+
+    public Builder preservePermissions(boolean preservePermissions) {
+      this.preservePermissions = preservePermissions;
+      return this;
+    }
+
+    public Builder preserveModificationTimes(boolean preserveModificationTimes) {
+      this.preserveModificationTimes = preserveModificationTimes;
+      return this;
+    }
+
+    /**
+     * Writes small files on the given number of threads while the archive is being read. Large
+     * files are written by the thread reading the archive.
+     * 
+     * @param threads the number of threads writing files
+     * @return Builder
+     */
+    public Builder threads(int threads) {
+      this.threads = threads;
+      return this;
+    }
+
+    public CopyFromContainerOptions build() {
+      return new CopyFromContainerOptions(includes, excludes, preservePermissions,
+          preserveModificationTimes, threads);
+    }
+  }
+}
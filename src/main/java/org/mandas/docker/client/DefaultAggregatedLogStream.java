@@ -0,0 +1,444 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.mandas.docker.client.DockerClient.LogsParam;
+import org.mandas.docker.client.exceptions.ContainerNotFoundException;
+import org.mandas.docker.client.exceptions.DockerException;
+import org.mandas.docker.client.exceptions.DockerRequestException;
+import org.mandas.docker.client.exceptions.DockerTimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the log stream of every container on a virtual thread of its own and merges the
+ * messages into a single stream.
+ *
+ * <p>Readers block once the messages buffered but not yet consumed exceed the memory budget,
+ * which in turn holds back the containers. The streams are always opened with timestamps, so that
+ * a stream failing while following can be reopened with {@code since} the last message received,
+ * dropping the messages already seen. The timestamp prefix is stripped again unless it was
+ * requested. Only streams failing on I/O are reopened; any other failure, or any failure when not
+ * following, ends the part of the container and is thrown to the consumer once the messages read
+ * before it have been consumed.</p>
+ *
+ * <p>When timestamps are requested the messages are ordered by timestamp: a message is released
+ * once every other live container has a message buffered, or once it has been buffered for the
+ * reorder window. Otherwise messages are released in the order they were received.</p>
+ */
+class DefaultAggregatedLogStream implements AggregatedLogStream {
+
+  private static final Logger log = LoggerFactory.getLogger(DefaultAggregatedLogStream.class);
+
+  static final int DEFAULT_MAX_BUFFERED_BYTES = 16 * 1024 * 1024;
+  static final long REORDER_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+  static final long RESUBSCRIBE_DELAY_MILLIS = 1000;
+
+  // the longest RFC 3339 timestamp with nanoseconds and a numeric offset, plus the separator
+  private static final int MAX_TIMESTAMP_LENGTH = 36;
+
+  private final DefaultDockerClient client;
+  private final LogsParam[] params;
+  private final boolean follow;
+  // timestamps were requested, so they are kept in the content and order the messages
+  private final boolean ordered;
+  private final int maxBufferedBytes;
+  private final Semaphore budget;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition changed = lock.newCondition();
+  private final Map<String, Source> sources = new LinkedHashMap<>();
+  private final List<Thread> readers = new ArrayList<>();
+  private long sequence;
+  private volatile boolean closed;
+  private ContainerLogMessage next;
+
+  DefaultAggregatedLogStream(final DefaultDockerClient client, final Collection<String> containerIds,
+                             final int maxBufferedBytes, final LogsParam... params) {
+    if (maxBufferedBytes <= 0) {
+      throw new IllegalArgumentException("maxBufferedBytes must be positive");
+    }
+    this.client = client;
+    this.follow = isSet(params, "follow");
+    this.ordered = isSet(params, "timestamps");
+    this.maxBufferedBytes = maxBufferedBytes;
+    this.budget = new Semaphore(maxBufferedBytes);
+    final List<LogsParam> withTimestamps = new ArrayList<>();
+    for (final LogsParam param : params) {
+      if (!"timestamps".equals(param.name())) {
+        withTimestamps.add(param);
+      }
+    }
+    withTimestamps.add(LogsParam.timestamps());
+    this.params = withTimestamps.toArray(new LogsParam[0]);
+    for (final String containerId : containerIds) {
+      sources.putIfAbsent(containerId, new Source(containerId));
+    }
+  }
+
+  void start() {
+    for (final Source source : sources.values()) {
+      readers.add(Thread.ofVirtual().name("docker-logs-" + source.containerId).start(() -> read(source)));
+    }
+  }
+
+  private static boolean isSet(final LogsParam[] params, final String name) {
+    boolean set = false;
+    for (final LogsParam param : params) {
+      if (name.equals(param.name())) {
+        set = Boolean.parseBoolean(param.value());
+      }
+    }
+    return set;
+  }
+
+  private void read(final Source source) {
+    LogsParam[] current = params;
+    Exception failure = null;
+    try {
+      while (!closed) {
+        boolean failed = false;
+        try (final LogStream stream = client.logs(source.containerId, false, current)) {
+          source.stream = stream;
+          if (closed) {
+            break;
+          }
+          while (stream.hasNext()) {
+            offer(source, stream.next());
+          }
+        } catch (ContainerNotFoundException e) {
+          break;
+        } catch (DockerException | IOException | RuntimeException e) {
+          if (closed) {
+            break;
+          }
+          if (!follow || !isTransient(e)) {
+            failure = e;
+            break;
+          }
+          log.debug("Log stream of container {} failed", source.containerId, e);
+          failed = true;
+        }
+        if (!failed && (!follow || !isRunning(source.containerId))) {
+          break;
+        }
+        Thread.sleep(RESUBSCRIBE_DELAY_MILLIS);
+        current = resubscribe(source);
+      }
+    } catch (InterruptedException e) {
+      // closed
+    } finally {
+      lock.lock();
+      try {
+        source.failure = failure;
+        source.finished = true;
+        changed.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Tells whether a stream failed on I/O, rather than the daemon refusing the request.
+   */
+  private static boolean isTransient(final Exception e) {
+    if (e instanceof DockerTimeoutException) {
+      return true;
+    }
+    for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+      if (cause instanceof DockerRequestException) {
+        return false;
+      }
+      if (cause instanceof IOException) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean isRunning(final String containerId) throws InterruptedException {
+    try {
+      return client.inspectContainer(containerId).state().running();
+    } catch (ContainerNotFoundException e) {
+      return false;
+    } catch (DockerException e) {
+      log.debug("Failed to inspect container {}", containerId, e);
+      // keep following, the next attempt tells whether the container is gone
+      return true;
+    }
+  }
+
+  private LogsParam[] resubscribe(final Source source) {
+    lock.lock();
+    try {
+      source.resubscriptions++;
+      source.resumeAfter = source.lastTimestamp;
+      if (source.lastTimestamp == null) {
+        return params;
+      }
+    } finally {
+      lock.unlock();
+    }
+    final List<LogsParam> resumed = new ArrayList<>();
+    for (final LogsParam param : params) {
+      if (!"since".equals(param.name()) && !"tail".equals(param.name())) {
+        resumed.add(param);
+      }
+    }
+    resumed.add(LogsParam.since((int) source.resumeAfter.getEpochSecond()));
+    return resumed.toArray(new LogsParam[0]);
+  }
+
+  private void offer(final Source source, final LogMessage message) throws InterruptedException {
+    final ByteBuffer content = message.content;
+    final int separator = timestampSeparator(content);
+    Instant timestamp = null;
+    LogMessage value = message;
+    if (separator >= 0) {
+      timestamp = parseTimestamp(content, separator);
+      if (timestamp != null && !ordered) {
+        final ByteBuffer stripped = content.duplicate();
+        stripped.position(content.position() + separator + 1);
+        value = new LogMessage(message.stream(), stripped.slice());
+      }
+    }
+    if (timestamp != null && source.resumeAfter != null) {
+      if (!timestamp.isAfter(source.resumeAfter)) {
+        // already seen before the stream was reopened
+        return;
+      }
+      source.resumeAfter = null;
+    }
+
+    final int size = value.content.remaining();
+    final int permits = Math.min(size, maxBufferedBytes);
+    budget.acquire(permits);
+    lock.lock();
+    try {
+      if (timestamp != null) {
+        source.lastTimestamp = timestamp;
+      }
+      source.messages++;
+      source.bytes += size;
+      source.bufferedBytes += size;
+      source.queue.add(new Entry(new ContainerLogMessage(source.containerId, timestamp, value),
+          sequence++, System.nanoTime(), size, permits));
+      changed.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static int timestampSeparator(final ByteBuffer content) {
+    final int length = Math.min(content.remaining(), MAX_TIMESTAMP_LENGTH);
+    for (int i = 0; i < length; i++) {
+      if (content.get(content.position() + i) == ' ') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static Instant parseTimestamp(final ByteBuffer content, final int length) {
+    final byte[] bytes = new byte[length];
+    content.get(content.position(), bytes);
+    try {
+      return DateTimeFormatter.ISO_OFFSET_DATE_TIME.parse(new String(bytes, US_ASCII), Instant::from);
+    } catch (DateTimeParseException e) {
+      return null;
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (next != null) {
+      return true;
+    }
+    try {
+      next = take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+    return next != null;
+  }
+
+  @Override
+  public ContainerLogMessage next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    final ContainerLogMessage value = next;
+    next = null;
+    return value;
+  }
+
+  private ContainerLogMessage take() throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      while (!closed) {
+        Source head = null;
+        boolean complete = true;
+        boolean finished = true;
+        for (final Source source : sources.values()) {
+          final Entry entry = source.queue.peek();
+          if (entry == null) {
+            if (source.failure != null) {
+              final Exception failure = source.failure;
+              source.failure = null;
+              throw new RuntimeException("Log stream of container " + source.containerId
+                  + " failed", failure);
+            }
+            complete &= source.finished;
+            finished &= source.finished;
+            continue;
+          }
+          finished = false;
+          if (head == null || precedes(entry, head.queue.peek())) {
+            head = source;
+          }
+        }
+        if (head == null) {
+          if (finished) {
+            return null;
+          }
+          changed.await();
+          continue;
+        }
+        final Entry entry = head.queue.peek();
+        final long wait = entry.received + REORDER_WINDOW_NANOS - System.nanoTime();
+        if (ordered && !complete && wait > 0) {
+          changed.awaitNanos(wait);
+          continue;
+        }
+        head.queue.poll();
+        head.bufferedBytes -= entry.size;
+        budget.release(entry.permits);
+        return entry.message;
+      }
+      return null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private boolean precedes(final Entry entry, final Entry other) {
+    final Instant timestamp = entry.message.timestamp();
+    final Instant otherTimestamp = other.message.timestamp();
+    if (ordered && timestamp != null && otherTimestamp != null && !timestamp.equals(otherTimestamp)) {
+      return timestamp.isBefore(otherTimestamp);
+    }
+    return entry.sequence < other.sequence;
+  }
+
+  @Override
+  public Map<String, Lag> lag() {
+    final Instant now = Instant.now();
+    final long nanos = System.nanoTime();
+    final Map<String, Lag> lag = new LinkedHashMap<>();
+    lock.lock();
+    try {
+      for (final Source source : sources.values()) {
+        final Entry oldest = source.queue.peek();
+        Duration age = Duration.ZERO;
+        if (oldest != null) {
+          age = oldest.message.timestamp() != null
+              ? Duration.between(oldest.message.timestamp(), now)
+              : Duration.ofNanos(nanos - oldest.received);
+        }
+        lag.put(source.containerId, new Lag(source.messages, source.bytes, source.queue.size(),
+            source.bufferedBytes, source.lastTimestamp, age, source.resubscriptions, source.finished));
+      }
+    } finally {
+      lock.unlock();
+    }
+    return lag;
+  }
+
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    for (final Source source : sources.values()) {
+      final LogStream stream = source.stream;
+      if (stream != null) {
+        try {
+          stream.close();
+        } catch (IOException e) {
+          log.debug("Failed to close log stream of container {}", source.containerId, e);
+        }
+      }
+    }
+    for (final Thread reader : readers) {
+      reader.interrupt();
+    }
+    lock.lock();
+    try {
+      changed.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static class Source {
+    private final String containerId;
+    private final ArrayDeque<Entry> queue = new ArrayDeque<>();
+    private volatile LogStream stream;
+    private long messages;
+    private long bytes;
+    private long bufferedBytes;
+    private Instant lastTimestamp;
+    // timestamp of the last message received before the stream was reopened, read by its reader only
+    private Instant resumeAfter;
+    private int resubscriptions;
+    private boolean finished;
+    // set along with finished, cleared once thrown to the consumer
+    private Exception failure;
+
+    private Source(final String containerId) {
+      this.containerId = containerId;
+    }
+  }
+
+  private record Entry(ContainerLogMessage message, long sequence, long received, int size, int permits) {}
+}
@@ -0,0 +1,412 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import static jakarta.ws.rs.HttpMethod.DELETE;
+import static jakarta.ws.rs.HttpMethod.GET;
+import static jakarta.ws.rs.HttpMethod.POST;
+import static jakarta.ws.rs.core.MediaType.APPLICATION_JSON_TYPE;
+import static java.util.Objects.requireNonNull;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import org.mandas.docker.client.DockerClient.ListContainersParam;
+import org.mandas.docker.client.DockerClient.ListImagesParam;
+import org.mandas.docker.client.DockerClient.ListNetworksParam;
+import org.mandas.docker.client.DockerClient.ListVolumesParam;
+import org.mandas.docker.client.DockerClient.RemoveContainerParam;
+import org.mandas.docker.client.DockerClient.Signal;
+import org.mandas.docker.client.exceptions.BadParamException;
+import org.mandas.docker.client.exceptions.ConflictException;
+import org.mandas.docker.client.exceptions.ContainerNotFoundException;
+import org.mandas.docker.client.exceptions.DockerException;
+import org.mandas.docker.client.exceptions.DockerRequestException;
+import org.mandas.docker.client.exceptions.ExecNotFoundException;
+import org.mandas.docker.client.exceptions.ImageNotFoundException;
+import org.mandas.docker.client.exceptions.NetworkNotFoundException;
+import org.mandas.docker.client.exceptions.VolumeNotFoundException;
+import org.mandas.docker.client.messages.Container;
+import org.mandas.docker.client.messages.ContainerConfig;
+import org.mandas.docker.client.messages.ContainerCreation;
+import org.mandas.docker.client.messages.ContainerExit;
+import org.mandas.docker.client.messages.ContainerInfo;
+import org.mandas.docker.client.messages.ContainerStats;
+import org.mandas.docker.client.messages.ExecState;
+import org.mandas.docker.client.messages.Image;
+import org.mandas.docker.client.messages.ImageInfo;
+import org.mandas.docker.client.messages.Info;
+import org.mandas.docker.client.messages.Network;
+import org.mandas.docker.client.messages.RemovedImage;
+import org.mandas.docker.client.messages.TopResults;
+import org.mandas.docker.client.messages.Version;
+import org.mandas.docker.client.messages.Volume;
+import org.mandas.docker.client.messages.VolumeList;
+
+import jakarta.ws.rs.client.Entity;
+import jakarta.ws.rs.client.WebTarget;
+import jakarta.ws.rs.core.GenericType;
+
+/**
+ * {@link AsyncDockerClient} issuing its requests through the JAX-RS reactive invoker of a
+ * {@link DefaultDockerClient}. Requests are executed on the executor service of the underlying
+ * JAX-RS client.
+ */
+class DefaultAsyncDockerClient implements AsyncDockerClient {
+
+  private static final Pattern CONTAINER_NAME_PATTERN =
+      Pattern.compile("^[a-zA-Z0-9][a-zA-Z0-9_.-]+$");
+
+  private static final GenericType<String> STRING = new GenericType<>() { };
+
+  private static final GenericType<Version> VERSION = new GenericType<>() { };
+
+  private static final GenericType<Info> INFO = new GenericType<>() { };
+
+  private static final GenericType<List<Container>> CONTAINER_LIST = new GenericType<>() { };
+
+  private static final GenericType<ContainerInfo> CONTAINER_INFO = new GenericType<>() { };
+
+  private static final GenericType<ContainerCreation> CONTAINER_CREATION =
+      new GenericType<>() { };
+
+  private static final GenericType<ContainerExit> CONTAINER_EXIT = new GenericType<>() { };
+
+  private static final GenericType<TopResults> TOP_RESULTS = new GenericType<>() { };
+
+  private static final GenericType<ContainerStats> CONTAINER_STATS = new GenericType<>() { };
+
+  private static final GenericType<List<Image>> IMAGE_LIST = new GenericType<>() { };
+
+  private static final GenericType<ImageInfo> IMAGE_INFO = new GenericType<>() { };
+
+  private static final GenericType<List<RemovedImage>> REMOVED_IMAGE_LIST =
+      new GenericType<>() { };
+
+  private static final GenericType<List<Network>> NETWORK_LIST = new GenericType<>() { };
+
+  private static final GenericType<Network> NETWORK = new GenericType<>() { };
+
+  private static final GenericType<VolumeList> VOLUME_LIST = new GenericType<>() { };
+
+  private static final GenericType<Volume> VOLUME = new GenericType<>() { };
+
+  private static final GenericType<ExecState> EXEC_STATE = new GenericType<>() { };
+
+  private final DefaultDockerClient client;
+
+  DefaultAsyncDockerClient(final DefaultDockerClient client) {
+    this.client = client;
+  }
+
+  @Override
+  public CompletableFuture<String> ping() {
+    final WebTarget resource = client.resource().path("_ping");
+    return client.requestAsync(GET, STRING, resource, resource.request());
+  }
+
+  @Override
+  public CompletableFuture<Version> version() {
+    final WebTarget resource = client.resource().path("version");
+    return client.requestAsync(GET, VERSION, resource, resource.request(APPLICATION_JSON_TYPE));
+  }
+
+  @Override
+  public CompletableFuture<Info> info() {
+    final WebTarget resource = client.resource().path("info");
+    return client.requestAsync(GET, INFO, resource, resource.request(APPLICATION_JSON_TYPE));
+  }
+
+  @Override
+  public CompletableFuture<List<Container>> listContainers(final ListContainersParam... params) {
+    final WebTarget resource;
+    try {
+      resource = client.addParameters(client.resource().path("containers").path("json"), params);
+    } catch (DockerException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    return onRequestException(
+        client.requestAsync(GET, CONTAINER_LIST, resource, resource.request(APPLICATION_JSON_TYPE)),
+        e -> e.status() == 400 ? new BadParamException(client.getQueryParamMap(resource), e) : e);
+  }
+
+  @Override
+  public CompletableFuture<ContainerInfo> inspectContainer(final String containerId) {
+    final WebTarget resource = client.resource().path("containers").path(containerId).path("json");
+    return onRequestException(
+        client.requestAsync(GET, CONTAINER_INFO, resource, resource.request(APPLICATION_JSON_TYPE)),
+        containerNotFound(containerId));
+  }
+
+  @Override
+  public CompletableFuture<ContainerCreation> createContainer(final ContainerConfig config) {
+    return createContainer(config, null);
+  }
+
+  @Override
+  public CompletableFuture<ContainerCreation> createContainer(final ContainerConfig config,
+                                                              final String name) {
+    WebTarget resource = client.resource().path("containers").path("create");
+
+    if (name != null) {
+      if (!CONTAINER_NAME_PATTERN.matcher(name).matches()) {
+        return CompletableFuture.failedFuture(
+            new IllegalArgumentException(String.format("Invalid container name: \"%s\"", name)));
+      }
+      resource = resource.queryParam("name", name);
+    }
+
+    return onRequestException(
+        client.requestAsync(POST, CONTAINER_CREATION, resource,
+            resource.request(APPLICATION_JSON_TYPE), Entity.json(config)),
+        e -> {
+          switch (e.status()) {
+            case 404:
+              return new ImageNotFoundException(config.image(), e);
+            case 406:
+              return new DockerException("Impossible to attach. Container not running.", e);
+            case 409:
+              return new ConflictException(String.format("Container %s already exists", name), e);
+            default:
+              return e;
+          }
+        });
+  }
+
+  @Override
+  public CompletableFuture<Void> startContainer(final String containerId) {
+    return containerAction(containerId, "start", null, null);
+  }
+
+  @Override
+  public CompletableFuture<Void> stopContainer(final String containerId,
+                                               final int secondsToWaitBeforeKilling) {
+    return containerAction(containerId, "stop", "t", String.valueOf(secondsToWaitBeforeKilling));
+  }
+
+  @Override
+  public CompletableFuture<Void> restartContainer(final String containerId) {
+    return restartContainer(containerId, 10);
+  }
+
+  @Override
+  public CompletableFuture<Void> restartContainer(final String containerId,
+                                                  final int secondsToWaitBeforeRestart) {
+    return containerAction(containerId, "restart", "t", String.valueOf(secondsToWaitBeforeRestart));
+  }
+
+  @Override
+  public CompletableFuture<Void> killContainer(final String containerId) {
+    return containerAction(containerId, "kill", null, null);
+  }
+
+  @Override
+  public CompletableFuture<Void> killContainer(final String containerId, final Signal signal) {
+    return containerAction(containerId, "kill", "signal", signal.getName());
+  }
+
+  @Override
+  public CompletableFuture<Void> pauseContainer(final String containerId) {
+    return containerAction(containerId, "pause", null, null);
+  }
+
+  @Override
+  public CompletableFuture<Void> unpauseContainer(final String containerId) {
+    return containerAction(containerId, "unpause", null, null);
+  }
+
+  private CompletableFuture<Void> containerAction(final String containerId, final String action,
+                                                  final String parameter, final String value) {
+    requireNonNull(containerId, "containerId");
+    WebTarget resource = client.resource().path("containers").path(containerId).path(action);
+    if (parameter != null) {
+      resource = resource.queryParam(parameter, value);
+    }
+    return onRequestException(client.requestAsync(POST, resource, resource.request()),
+        containerNotFound(containerId));
+  }
+
+  @Override
+  public CompletableFuture<Void> removeContainer(final String containerId,
+                                                 final RemoveContainerParam... params) {
+    WebTarget resource = client.resource().path("containers").path(containerId);
+    for (final RemoveContainerParam param : params) {
+      resource = resource.queryParam(param.name(), param.value());
+    }
+    final WebTarget target = resource;
+    return onRequestException(
+        client.requestAsync(DELETE, target, target.request(APPLICATION_JSON_TYPE)),
+        e -> {
+          switch (e.status()) {
+            case 400:
+              return new BadParamException(client.getQueryParamMap(target), e);
+            case 404:
+              return new ContainerNotFoundException(containerId, e);
+            case 409:
+              return new ConflictException(
+                  String.format("Container %s is still runnning", containerId), e);
+            default:
+              return e;
+          }
+        });
+  }
+
+  @Override
+  public CompletableFuture<ContainerExit> waitContainer(final String containerId) {
+    // waits for as long as the container runs
+    final WebTarget resource = client.streamingResource()
+        .path("containers").path(containerId).path("wait");
+    return onRequestException(
+        client.requestAsync(POST, CONTAINER_EXIT, resource, resource.request(APPLICATION_JSON_TYPE)),
+        containerNotFound(containerId));
+  }
+
+  @Override
+  public CompletableFuture<TopResults> topContainer(final String containerId) {
+    final WebTarget resource = client.resource().path("containers").path(containerId).path("top");
+    return onRequestException(
+        client.requestAsync(GET, TOP_RESULTS, resource, resource.request(APPLICATION_JSON_TYPE)),
+        containerNotFound(containerId));
+  }
+
+  @Override
+  public CompletableFuture<ContainerStats> stats(final String containerId) {
+    final WebTarget resource = client.resource().path("containers").path(containerId)
+        .path("stats").queryParam("stream", "0");
+    return onRequestException(
+        client.requestAsync(GET, CONTAINER_STATS, resource,
+            resource.request(APPLICATION_JSON_TYPE)),
+        containerNotFound(containerId));
+  }
+
+  @Override
+  public CompletableFuture<List<Image>> listImages(final ListImagesParam... params) {
+    final WebTarget resource;
+    try {
+      resource = client.addParameters(client.resource().path("images").path("json"), params);
+    } catch (DockerException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    return client.requestAsync(GET, IMAGE_LIST, resource, resource.request(APPLICATION_JSON_TYPE));
+  }
+
+  @Override
+  public CompletableFuture<ImageInfo> inspectImage(final String image) {
+    final WebTarget resource = client.resource().path("images").path(image).path("json");
+    return onRequestException(
+        client.requestAsync(GET, IMAGE_INFO, resource, resource.request(APPLICATION_JSON_TYPE)),
+        e -> e.status() == 404 ? new ImageNotFoundException(image, e) : e);
+  }
+
+  @Override
+  public CompletableFuture<List<RemovedImage>> removeImage(final String image, final boolean force,
+                                                           final boolean noPrune) {
+    final WebTarget resource = client.resource().path("images").path(image)
+        .queryParam("force", String.valueOf(force))
+        .queryParam("noprune", String.valueOf(noPrune));
+    return onRequestException(
+        client.requestAsync(DELETE, REMOVED_IMAGE_LIST, resource,
+            resource.request(APPLICATION_JSON_TYPE)),
+        e -> {
+          switch (e.status()) {
+            case 404:
+              return new ImageNotFoundException(image, e);
+            case 409:
+              return new ConflictException(e);
+            default:
+              return e;
+          }
+        });
+  }
+
+  @Override
+  public CompletableFuture<List<Network>> listNetworks(final ListNetworksParam... params) {
+    final WebTarget resource;
+    try {
+      resource = client.addParameters(client.resource().path("networks"), params);
+    } catch (DockerException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    return client.requestAsync(GET, NETWORK_LIST, resource, resource.request(APPLICATION_JSON_TYPE));
+  }
+
+  @Override
+  public CompletableFuture<Network> inspectNetwork(final String networkId) {
+    final WebTarget resource = client.resource().path("networks").path(networkId);
+    return onRequestException(
+        client.requestAsync(GET, NETWORK, resource, resource.request(APPLICATION_JSON_TYPE)),
+        e -> e.status() == 404 ? new NetworkNotFoundException(networkId, e) : e);
+  }
+
+  @Override
+  public CompletableFuture<VolumeList> listVolumes(final ListVolumesParam... params) {
+    final WebTarget resource;
+    try {
+      resource = client.addParameters(client.resource().path("volumes"), params);
+    } catch (DockerException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    return client.requestAsync(GET, VOLUME_LIST, resource, resource.request(APPLICATION_JSON_TYPE));
+  }
+
+  @Override
+  public CompletableFuture<Volume> inspectVolume(final String volumeName) {
+    final WebTarget resource = client.resource().path("volumes").path(volumeName);
+    return onRequestException(
+        client.requestAsync(GET, VOLUME, resource, resource.request(APPLICATION_JSON_TYPE)),
+        e -> e.status() == 404 ? new VolumeNotFoundException(volumeName, e) : e);
+  }
+
+  @Override
+  public CompletableFuture<ExecState> execInspect(final String execId) {
+    final WebTarget resource = client.resource().path("exec").path(execId).path("json");
+    return onRequestException(
+        client.requestAsync(GET, EXEC_STATE, resource, resource.request(APPLICATION_JSON_TYPE)),
+        e -> e.status() == 404 ? new ExecNotFoundException(execId, e) : e);
+  }
+
+  private static Function<DockerRequestException, DockerException> containerNotFound(
+      final String containerId) {
+    return e -> e.status() == 404 ? new ContainerNotFoundException(containerId, e) : e;
+  }
+
+  /**
+   * Replaces a {@link DockerRequestException} failure of the given future with the exception
+   * returned by the mapper, the same way the blocking client translates status codes.
+   */
+  private static <T> CompletableFuture<T> onRequestException(
+      final CompletableFuture<T> future,
+      final Function<DockerRequestException, DockerException> mapper) {
+    return future.handle((value, error) -> {
+      if (error == null) {
+        return value;
+      }
+      final Throwable cause = DefaultDockerClient.unwrapAsync(error);
+      if (cause instanceof DockerRequestException) {
+        throw new CompletionException(mapper.apply((DockerRequestException) cause));
+      }
+      throw new CompletionException(cause);
+    });
+  }
+}
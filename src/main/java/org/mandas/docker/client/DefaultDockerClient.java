@@ -33,6 +33,7 @@ import static jakarta.ws.rs.core.MediaType.APPLICATION_OCTET_STREAM;
 import static jakarta.ws.rs.core.MediaType.APPLICATION_OCTET_STREAM_TYPE;
 import static jakarta.ws.rs.core.MediaType.TEXT_PLAIN_TYPE;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
 import static java.util.Collections.unmodifiableSet;
 import static java.util.Objects.requireNonNull;
 import static java.util.Optional.ofNullable;
@@ -46,11 +47,15 @@ import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -60,14 +65,21 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.commons.io.IOUtils;
+import org.glassfish.jersey.client.ClientProperties;
 import org.mandas.docker.client.auth.RegistryAuthSupplier;
 import org.mandas.docker.client.exceptions.BadParamException;
 import org.mandas.docker.client.exceptions.ConflictException;
@@ -84,6 +96,7 @@ import org.mandas.docker.client.exceptions.NetworkNotFoundException;
 import org.mandas.docker.client.exceptions.NodeNotFoundException;
 import org.mandas.docker.client.exceptions.NonSwarmNodeException;
 import org.mandas.docker.client.exceptions.NotFoundException;
+import org.mandas.docker.client.exceptions.OperationCancelledException;
 import org.mandas.docker.client.exceptions.PermissionException;
 import org.mandas.docker.client.exceptions.ServiceNotFoundException;
 import org.mandas.docker.client.exceptions.TaskNotFoundException;
@@ -330,6 +343,8 @@ public class DefaultDockerClient implements DockerClient {
   private static final GenericType<List<Secret>> SECRET_LIST = new GenericType<>() { };
 
   private final Client client;
+
+  private final Client streamingClient;
   
   private final URI uri;
   private final String apiVersion;
@@ -337,6 +352,20 @@ public class DefaultDockerClient implements DockerClient {
 
   private final Map<String, Object> headers;
 
+  private volatile AsyncDockerClient async;
+
+  private final ExecutorService tailExecutor;
+
+  private final AtomicInteger tailsInFlight = new AtomicInteger();
+
+  private final boolean reuseLogBuffers;
+
+  private final BuildContextOptions buildContextOptions;
+
+  private final PullFlights pulls = new PullFlights();
+
+  private final RequestFlights reads;
+
   /**
    * Create a new client using the configuration of the builder.
    * @param apiVersion the specific API version of the Docker engine 
@@ -346,11 +375,87 @@ public class DefaultDockerClient implements DockerClient {
    * @param headers a custom set of HTTP headers
    */
   public DefaultDockerClient(String apiVersion, RegistryAuthSupplier authSupplier, URI uri, Client client, Map<String, Object> headers) {
+    this(apiVersion, authSupplier, uri, client, headers, null, false, null);
+  }
+
+  /**
+   * Create a new client using the configuration of the builder.
+   * @param apiVersion the specific API version of the Docker engine 
+   * @param authSupplier credentials supplier for the docker registry
+   * @param uri the Docker engine URI
+   * @param client the JAX-RS client for issuing the calls to the docker engine
+   * @param headers a custom set of HTTP headers
+   * @param tailExecutor the executor tailing the progress of pull, push, build, load and create 
+   *     calls, or null to use a dedicated thread for every call. The executor is shared and it is 
+   *     not shut down when the client is closed.
+   * @param reuseLogBuffers whether the log streams of logs, attach and exec calls decode every frame
+   *     into the same buffer, see {@link LogStream}
+   * @param buildContextOptions how the directories of build and copyToContainer calls are archived,
+   *     or null for {@link BuildContextOptions#defaults()}
+   */
+  public DefaultDockerClient(String apiVersion, RegistryAuthSupplier authSupplier, URI uri, Client client, Map<String, Object> headers,
+                             ExecutorService tailExecutor, boolean reuseLogBuffers, BuildContextOptions buildContextOptions) {
+    this(apiVersion, authSupplier, uri, client, headers, tailExecutor, reuseLogBuffers, buildContextOptions, null);
+  }
+
+  /**
+   * Create a new client using the configuration of the builder.
+   * @param apiVersion the specific API version of the Docker engine 
+   * @param authSupplier credentials supplier for the docker registry
+   * @param uri the Docker engine URI
+   * @param client the JAX-RS client for issuing the calls to the docker engine
+   * @param headers a custom set of HTTP headers
+   * @param tailExecutor the executor tailing the progress of pull, push, build, load and create 
+   *     calls, or null to use a dedicated thread for every call. The executor is shared and it is 
+   *     not shut down when the client is closed.
+   * @param reuseLogBuffers whether the log streams of logs, attach and exec calls decode every frame
+   *     into the same buffer, see {@link LogStream}
+   * @param buildContextOptions how the directories of build and copyToContainer calls are archived,
+   *     or null for {@link BuildContextOptions#defaults()}
+   * @param streamingClient the JAX-RS client for the calls holding their connection for long, such 
+   *     as logs, events, attach, wait, pull, push, build and archive transfers, or null to use 
+   *     {@code client}. It is closed along with the client.
+   */
+  public DefaultDockerClient(String apiVersion, RegistryAuthSupplier authSupplier, URI uri, Client client, Map<String, Object> headers,
+                             ExecutorService tailExecutor, boolean reuseLogBuffers, BuildContextOptions buildContextOptions,
+                             Client streamingClient) {
+    this(apiVersion, authSupplier, uri, client, headers, tailExecutor, reuseLogBuffers, buildContextOptions,
+        streamingClient, false);
+  }
+
+  /**
+   * Create a new client using the configuration of the builder.
+   * @param apiVersion the specific API version of the Docker engine 
+   * @param authSupplier credentials supplier for the docker registry
+   * @param uri the Docker engine URI
+   * @param client the JAX-RS client for issuing the calls to the docker engine
+   * @param headers a custom set of HTTP headers
+   * @param tailExecutor the executor tailing the progress of pull, push, build, load and create 
+   *     calls, or null to use a dedicated thread for every call. The executor is shared and it is 
+   *     not shut down when the client is closed.
+   * @param reuseLogBuffers whether the log streams of logs, attach and exec calls decode every frame
+   *     into the same buffer, see {@link LogStream}
+   * @param buildContextOptions how the directories of build and copyToContainer calls are archived,
+   *     or null for {@link BuildContextOptions#defaults()}
+   * @param streamingClient the JAX-RS client for the calls holding their connection for long, such 
+   *     as logs, events, attach, wait, pull, push, build and archive transfers, or null to use 
+   *     {@code client}. It is closed along with the client.
+   * @param coalesceReads whether concurrent identical GET calls share one request and its decoded
+   *     result, see {@link org.mandas.docker.client.builder.DockerClientBuilder#coalesceReads(boolean)}
+   */
+  public DefaultDockerClient(String apiVersion, RegistryAuthSupplier authSupplier, URI uri, Client client, Map<String, Object> headers,
+                             ExecutorService tailExecutor, boolean reuseLogBuffers, BuildContextOptions buildContextOptions,
+                             Client streamingClient, boolean coalesceReads) {
+    this.reads = coalesceReads ? new RequestFlights() : null;
     this.apiVersion = apiVersion;
     this.registryAuthSupplier = authSupplier;
     this.uri = uri;
     this.client = client;
+    this.streamingClient = streamingClient != null ? streamingClient : client;
     this.headers = new HashMap<>(headers);
+    this.tailExecutor = tailExecutor;
+    this.reuseLogBuffers = reuseLogBuffers;
+    this.buildContextOptions = buildContextOptions != null ? buildContextOptions : BuildContextOptions.defaults();
   }
 
   @Override
@@ -361,6 +466,31 @@ public class DefaultDockerClient implements DockerClient {
   @Override
   public void close() {
     client.close();
+    if (streamingClient != client) {
+      streamingClient.close();
+    }
+  }
+
+  @Override
+  public AsyncDockerClient async() {
+    // created on first use, not to leak this from the constructor; the view is stateless, so a
+    // race creating it twice is harmless
+    AsyncDockerClient view = async;
+    if (view == null) {
+      view = new DefaultAsyncDockerClient(this);
+      async = view;
+    }
+    return view;
+  }
+
+  /**
+   * Returns the number of pull, push, build, load and create progress streams currently being
+   * tailed by this client.
+   *
+   * @return the number of in-flight progress tails
+   */
+  public int inFlightTails() {
+    return tailsInFlight.get();
   }
 
   @Override
@@ -410,7 +540,7 @@ public class DefaultDockerClient implements DockerClient {
     }
   }
 
-  private WebTarget addParameters(WebTarget resource, final Param... params)
+  WebTarget addParameters(WebTarget resource, final Param... params)
       throws DockerException {
     WebTarget target = resource;
     final Map<String, List<String>> filters = new HashMap<>();
@@ -438,7 +568,7 @@ public class DefaultDockerClient implements DockerClient {
     return target;
   }
 
-  private Map<String, String> getQueryParamMap(final WebTarget resource) {
+  Map<String, String> getQueryParamMap(final WebTarget resource) {
     final String queryParams = resource.getUri().getQuery();
     final Map<String, String> paramsMap = new HashMap<>();
     if (queryParams != null) {
@@ -649,7 +779,7 @@ public class DefaultDockerClient implements DockerClient {
   public ContainerExit waitContainer(final String containerId)
       throws DockerException, InterruptedException {
     try {
-      final WebTarget resource = resource()
+      final WebTarget resource = streamingResource()
           .path("containers").path(containerId).path("wait");
       // Wait forever
       return request(POST, ContainerExit.class, resource,
@@ -696,7 +826,7 @@ public class DefaultDockerClient implements DockerClient {
   @Override
   public InputStream exportContainer(String containerId)
       throws DockerException, InterruptedException {
-    final WebTarget resource = resource()
+    final WebTarget resource = streamingResource()
         .path("containers").path(containerId).path("export");
     try {
       return request(GET, InputStream.class, resource,
@@ -722,7 +852,7 @@ public class DefaultDockerClient implements DockerClient {
       throw new UnsupportedApiVersionException(apiVersion);
     }
 
-    final WebTarget resource = resource()
+    final WebTarget resource = streamingResource()
         .path("containers").path(containerId).path("archive")
         .queryParam("path", path);
 
@@ -739,6 +869,21 @@ public class DefaultDockerClient implements DockerClient {
     }
   }
 
+  @Override
+  public void copyFromContainer(String containerId, String path, Path targetDirectory)
+      throws DockerException, InterruptedException, IOException {
+    copyFromContainer(containerId, path, targetDirectory, CopyFromContainerOptions.defaults());
+  }
+
+  @Override
+  public void copyFromContainer(String containerId, String path, Path targetDirectory,
+                                CopyFromContainerOptions options)
+      throws DockerException, InterruptedException, IOException {
+    try (final InputStream archive = archiveContainer(containerId, path)) {
+      new TarExtractor(targetDirectory, options).extract(archive);
+    }
+  }
+
   @Override
   public TopResults topContainer(final String containerId)
       throws DockerException, InterruptedException {
@@ -767,16 +912,28 @@ public class DefaultDockerClient implements DockerClient {
   @Override
   public void copyToContainer(final Path directory, String containerId, String path)
       throws DockerException, InterruptedException, IOException {
-    try (final CompressedDirectory compressedDirectory = CompressedDirectory.create(directory);
-         final InputStream fileStream = Files.newInputStream(compressedDirectory.file())) {
+    try (final InputStream fileStream = CompressedDirectory.open(directory, resolve(buildContextOptions))) {
       copyToContainer(fileStream, containerId, path);
     }
   }
 
+  /**
+   * Resolves {@link ContextCompression#AUTO}: a unix socket is cheap to write to, compressing
+   * would only cost CPU.
+   */
+  private BuildContextOptions resolve(final BuildContextOptions options) {
+    if (options.compression() != ContextCompression.AUTO) {
+      return options;
+    }
+    final ContextCompression compression = "unix".equals(uri.getScheme())
+        ? ContextCompression.IDENTITY : ContextCompression.GZIP;
+    return options.withCompression(compression, options.compressionLevel());
+  }
+
   @Override
   public void copyToContainer(InputStream tarStream, String containerId, String path)
       throws DockerException, InterruptedException {
-    final WebTarget resource = resource()
+    final WebTarget resource = streamingResource()
         .path("containers")
         .path(containerId)
         .path("archive")
@@ -802,6 +959,129 @@ public class DefaultDockerClient implements DockerClient {
     }
   }
 
+  @Override
+  public List<BulkOperationResult> copyToContainers(final Path directory,
+                                                    final Collection<String> containerIds,
+                                                    final String path, final int parallelism)
+      throws InterruptedException, IOException {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive");
+    }
+    try (final CompressedDirectory compressedDirectory =
+             CompressedDirectory.create(directory, resolve(buildContextOptions));
+         final FileChannel channel = FileChannel.open(compressedDirectory.file(), READ)) {
+      // every upload reads the same pages, archives too large to be mapped are read from the file
+      final ByteBuffer archive = channel.size() <= Integer.MAX_VALUE
+          ? channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()) : null;
+
+      return bulk(containerIds, parallelism, containerId -> {
+        try (final InputStream tarStream = archive != null
+            ? new ByteBufferInputStream(archive.duplicate())
+            : Files.newInputStream(compressedDirectory.file())) {
+          copyToContainer(tarStream, containerId, path);
+        }
+      });
+    }
+  }
+
+  @Override
+  public List<BulkOperationResult> startContainers(final Collection<String> containerIds,
+                                                   final int parallelism)
+      throws InterruptedException {
+    return bulk(containerIds, parallelism, this::startContainer);
+  }
+
+  @Override
+  public List<BulkOperationResult> stopContainers(final Collection<String> containerIds,
+                                                  final int secondsToWaitBeforeKilling,
+                                                  final int parallelism)
+      throws InterruptedException {
+    return bulk(containerIds, parallelism,
+        containerId -> stopContainer(containerId, secondsToWaitBeforeKilling));
+  }
+
+  @Override
+  public List<BulkOperationResult> killContainers(final Collection<String> containerIds,
+                                                  final Signal signal, final int parallelism)
+      throws InterruptedException {
+    return bulk(containerIds, parallelism, containerId -> killContainer(containerId, signal));
+  }
+
+  @Override
+  public List<BulkOperationResult> pauseContainers(final Collection<String> containerIds,
+                                                   final int parallelism)
+      throws InterruptedException {
+    return bulk(containerIds, parallelism, this::pauseContainer);
+  }
+
+  @Override
+  public List<BulkOperationResult> unpauseContainers(final Collection<String> containerIds,
+                                                     final int parallelism)
+      throws InterruptedException {
+    return bulk(containerIds, parallelism, this::unpauseContainer);
+  }
+
+  @Override
+  public List<BulkOperationResult> removeContainers(final Collection<String> containerIds,
+                                                    final int parallelism,
+                                                    final RemoveContainerParam... params)
+      throws InterruptedException {
+    return bulk(containerIds, parallelism, containerId -> removeContainer(containerId, params));
+  }
+
+  /**
+   * An operation on one container of a bulk operation.
+   */
+  @FunctionalInterface
+  private interface ContainerOperation {
+    void apply(String containerId) throws DockerException, InterruptedException, IOException;
+  }
+
+  /**
+   * Applies an operation to up to {@code parallelism} containers at a time, on virtual threads,
+   * returning the result of every container in the order of the given ids.
+   */
+  private List<BulkOperationResult> bulk(final Collection<String> containerIds,
+                                         final int parallelism,
+                                         final ContainerOperation operation)
+      throws InterruptedException {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive");
+    }
+    final ExecutorService executor = Executors.newFixedThreadPool(parallelism,
+        Thread.ofVirtual().name("docker-client-bulk-", 0).factory());
+    try {
+      final List<Future<BulkOperationResult>> operations = new ArrayList<>();
+      for (final String containerId : containerIds) {
+        operations.add(executor.submit(() -> {
+          try {
+            operation.apply(containerId);
+            return BulkOperationResult.success(containerId);
+          } catch (InterruptedException e) {
+            // interrupted by shutdownNow, the caller has been interrupted
+            Thread.currentThread().interrupt();
+            return BulkOperationResult.failure(containerId, e);
+          } catch (DockerException | IOException | RuntimeException e) {
+            return BulkOperationResult.failure(containerId, e);
+          }
+        }));
+      }
+
+      final List<BulkOperationResult> results = new ArrayList<>();
+      for (final Future<BulkOperationResult> result : operations) {
+        try {
+          results.add(result.get());
+        } catch (ExecutionException e) {
+          // operations report their exceptions in their results, only errors get here
+          throw new IllegalStateException(e.getCause());
+        }
+      }
+      return results;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   @Override
   public List<ContainerChange> inspectContainerChanges(final String containerId)
       throws DockerException, InterruptedException {
@@ -944,7 +1224,7 @@ public class DefaultDockerClient implements DockerClient {
   @Override
   public Set<String> load(final InputStream imagePayload, final ProgressHandler handler)
       throws DockerException, InterruptedException {
-    final WebTarget resource = resource()
+    final WebTarget resource = streamingResource()
             .path("images")
             .path("load")
             .queryParam("quiet", "false");
@@ -973,7 +1253,7 @@ public class DefaultDockerClient implements DockerClient {
   public void create(final String image, final InputStream imagePayload,
                      final ProgressHandler handler)
       throws DockerException, InterruptedException {
-    WebTarget resource = resource().path("images").path("create");
+    WebTarget resource = streamingResource().path("images").path("create");
 
     resource = resource
         .queryParam("fromSrc", "-")
@@ -996,9 +1276,9 @@ public class DefaultDockerClient implements DockerClient {
       throws DockerException, IOException, InterruptedException {
     WebTarget resource;
     if (images.length == 1) {
-      resource = resource().path("images").path(images[0]).path("get");
+      resource = streamingResource().path("images").path(images[0]).path("get");
     } else {
-      resource = resource().path("images").path("get");
+      resource = streamingResource().path("images").path("get");
       if (images.length > 1) {
         for (final String image : images) {
           if (image != null && !"".equals(image.trim())) {
@@ -1019,7 +1299,7 @@ public class DefaultDockerClient implements DockerClient {
   public InputStream saveMultiple(final String... images)
       throws DockerException, IOException, InterruptedException {
 
-    final WebTarget resource = resource().path("images").path("get");
+    final WebTarget resource = streamingResource().path("images").path("get");
     for (final String image : images) {
       resource.queryParam("names", urlEncode(image));
     }
@@ -1035,7 +1315,7 @@ public class DefaultDockerClient implements DockerClient {
 
   @Override
   public void pull(final String image) throws DockerException, InterruptedException {
-    pull(image, new LoggingPullHandler(image));
+    pull(image, new AggregatingProgressHandler(new LoggingPullHandler(image)));
   }
 
   @Override
@@ -1047,7 +1327,7 @@ public class DefaultDockerClient implements DockerClient {
   @Override
   public void pull(final String image, final RegistryAuth registryAuth)
       throws DockerException, InterruptedException {
-    pull(image, registryAuth, new LoggingPullHandler(image));
+    pull(image, registryAuth, new AggregatingProgressHandler(new LoggingPullHandler(image)));
   }
 
   @Override
@@ -1056,18 +1336,27 @@ public class DefaultDockerClient implements DockerClient {
       throws DockerException, InterruptedException {
     final ImageRef imageRef = new ImageRef(image);
 
-    WebTarget resource = resource().path("images").path("create");
+    WebTarget resource = streamingResource().path("images").path("create");
 
     resource = resource.queryParam("fromImage", imageRef.getImage());
     if (imageRef.getTag() != null) {
       resource = resource.queryParam("tag", imageRef.getTag());
     }
 
+    final WebTarget target = resource;
+    final String auth = authHeader(registryAuth);
+    String name = imageRef.getNormalizedName();
+    if (imageRef.getTag() == null && imageRef.getImage().indexOf('@') < 0) {
+      // without a tag the daemon pulls every tag, which is not the pull of latest
+      name = name.substring(0, name.length() - ":latest".length());
+    }
     try {
-      requestAndTail(POST, handler, resource,
-              resource
+      // concurrent pulls of the same image with the same credentials share a single request
+      pulls.pull(name + " " + auth, handler, flight ->
+          requestAndTail(POST, flight, target,
+              target
                   .request(APPLICATION_JSON_TYPE)
-                  .header("X-Registry-Auth", authHeader(registryAuth)));
+                  .header("X-Registry-Auth", auth)));
     } catch (DockerRequestException e) {
       switch (e.status()) {
         case 404:
@@ -1078,15 +1367,42 @@ public class DefaultDockerClient implements DockerClient {
     }
   }
 
+  @Override
+  public ImageInfo ensureImage(final String image) throws DockerException, InterruptedException {
+    return ensureImage(image, new AggregatingProgressHandler(new LoggingPullHandler(image)));
+  }
+
+  @Override
+  public ImageInfo ensureImage(final String image, final ProgressHandler handler)
+      throws DockerException, InterruptedException {
+    try {
+      return inspectImage(image);
+    } catch (ImageNotFoundException e) {
+      pull(image, handler);
+      return inspectImage(image);
+    }
+  }
+
+  @Override
+  public PrefetchResult prefetch(final Collection<String> images) throws InterruptedException {
+    return prefetch(images, PrefetchOptions.defaults());
+  }
+
+  @Override
+  public PrefetchResult prefetch(final Collection<String> images, final PrefetchOptions options)
+      throws InterruptedException {
+    return new ImagePrefetcher(this, options).prefetch(images);
+  }
+
   @Override
   public void push(final String image) throws DockerException, InterruptedException {
-    push(image, new LoggingPushHandler(image));
+    push(image, new AggregatingProgressHandler(new LoggingPushHandler(image)));
   }
 
   @Override
   public void push(final String image, final RegistryAuth registryAuth)
       throws DockerException, InterruptedException {
-    push(image, new LoggingPushHandler(image), registryAuth);
+    push(image, new AggregatingProgressHandler(new LoggingPushHandler(image)), registryAuth);
   }
 
   @Override
@@ -1102,7 +1418,7 @@ public class DefaultDockerClient implements DockerClient {
       throws DockerException, InterruptedException {
     final ImageRef imageRef = new ImageRef(image);
 
-    WebTarget resource = resource().path("images").path(imageRef.getImage()).path("push");
+    WebTarget resource = streamingResource().path("images").path(imageRef.getImage()).path("push");
 
     if (imageRef.getTag() != null) {
       resource = resource.queryParam("tag", imageRef.getTag());
@@ -1162,13 +1478,15 @@ public class DefaultDockerClient implements DockerClient {
   @Override
   public String build(final Path directory, final BuildParam... params)
       throws DockerException, InterruptedException, IOException {
-    return build(directory, null, new LoggingBuildHandler(), params);
+    return build(directory, null, new AggregatingProgressHandler(new LoggingBuildHandler()),
+        params);
   }
 
   @Override
   public String build(final Path directory, final String name, final BuildParam... params)
       throws DockerException, InterruptedException, IOException {
-    return build(directory, name, new LoggingBuildHandler(), params);
+    return build(directory, name, new AggregatingProgressHandler(new LoggingBuildHandler()),
+        params);
   }
 
   @Override
@@ -1191,9 +1509,15 @@ public class DefaultDockerClient implements DockerClient {
       throws DockerException, InterruptedException, IOException {
 	requireNonNull(handler, "handler");
 
-    WebTarget resource = resource().path("build");
+    WebTarget resource = streamingResource().path("build");
 
+    BuildContextOptions contextOptions = buildContextOptions;
     for (final BuildParam param : params) {
+      if (param instanceof ContextCompressionParam) {
+        final ContextCompressionParam compression = (ContextCompressionParam) param;
+        contextOptions = contextOptions.withCompression(compression.compression(), compression.level());
+        continue;
+      }
       resource = resource.queryParam(param.name(), param.value());
     }
     if (name != null) {
@@ -1208,8 +1532,7 @@ public class DefaultDockerClient implements DockerClient {
 
     final BuildProgressHandler buildHandler = new BuildProgressHandler(handler);
 
-    try (final CompressedDirectory compressedDirectory = CompressedDirectory.create(directory);
-         final InputStream fileStream = Files.newInputStream(compressedDirectory.file())) {
+    try (final InputStream fileStream = CompressedDirectory.open(directory, resolve(contextOptions))) {
         
       requestAndTail(POST, buildHandler, resource,
                      resource.request(APPLICATION_JSON_TYPE)
@@ -1284,7 +1607,12 @@ public class DefaultDockerClient implements DockerClient {
   @Override
   public LogStream logs(final String containerId, final LogsParam... params)
       throws DockerException, InterruptedException {
-    WebTarget resource = resource()
+    return logs(containerId, reuseLogBuffers, params);
+  }
+
+  LogStream logs(final String containerId, final boolean reuseBuffers, final LogsParam... params)
+      throws DockerException, InterruptedException {
+    WebTarget resource = streamingResource()
         .path("containers").path(containerId)
         .path("logs");
 
@@ -1292,13 +1620,31 @@ public class DefaultDockerClient implements DockerClient {
       resource = resource.queryParam(param.name(), param.value());
     }
 
-    return getLogStream(GET, resource, containerId);
+    return getLogStream(GET, resource, containerId, reuseBuffers);
+  }
+
+  @Override
+  public AggregatedLogStream aggregateLogs(final Collection<String> containerIds,
+                                           final LogsParam... params)
+      throws DockerException, InterruptedException {
+    return aggregateLogs(containerIds, DefaultAggregatedLogStream.DEFAULT_MAX_BUFFERED_BYTES, params);
+  }
+
+  @Override
+  public AggregatedLogStream aggregateLogs(final Collection<String> containerIds,
+                                           final int maxBufferedBytes, final LogsParam... params)
+      throws DockerException, InterruptedException {
+    requireNonNull(containerIds, "containerIds");
+    final DefaultAggregatedLogStream stream =
+        new DefaultAggregatedLogStream(this, containerIds, maxBufferedBytes, params);
+    stream.start();
+    return stream;
   }
 
   @Override
   public EventStream events(EventsParam... params)
       throws DockerException, InterruptedException {
-    WebTarget resource = resource().path("events");
+    WebTarget resource = streamingResource().path("events");
     resource = addParameters(resource, params);
     InputStream stream = request(GET, InputStream.class, resource, resource.request(MediaType.APPLICATION_JSON));
     return new EventStream(stream, objectMapper());
@@ -1309,23 +1655,23 @@ public class DefaultDockerClient implements DockerClient {
                                    final AttachParameter... params) throws DockerException,
                                                                            InterruptedException {
     requireNonNull(containerId, "containerId");
-    WebTarget resource = resource()
+    WebTarget resource = streamingResource()
     		.path("containers").path(containerId).path("attach");
 
     for (final AttachParameter param : params) {
       resource = resource.queryParam(param.name().toLowerCase(Locale.ROOT), String.valueOf(true));
     }
 
-    return getLogStream(POST, resource, containerId);
+    return getLogStream(POST, resource, containerId, reuseLogBuffers);
   }
 
   private LogStream getLogStream(final String method, final WebTarget resource,
-                                 final String containerId)
+                                 final String containerId, final boolean reuseBuffers)
       throws DockerException, InterruptedException {
     try {
       final Invocation.Builder request = resource.request("application/vnd.docker.raw-stream");
       InputStream inputStream = request(method, InputStream.class, resource, request);
-      return DefaultLogStream.create(inputStream);
+      return DefaultLogStream.create(inputStream, reuseBuffers);
     } catch (DockerRequestException e) {
       switch (e.status()) {
         case 400:
@@ -1344,7 +1690,7 @@ public class DefaultDockerClient implements DockerClient {
     try {
       final Invocation.Builder request = resource.request("application/vnd.docker.raw-stream");
       InputStream inputStream = request(method, InputStream.class, resource, request);
-      return DefaultLogStream.create(inputStream);
+      return DefaultLogStream.create(inputStream, reuseLogBuffers);
     } catch (DockerRequestException e) {
       switch (e.status()) {
         case 400:
@@ -1411,7 +1757,7 @@ public class DefaultDockerClient implements DockerClient {
   @Override
   public LogStream execStart(final String execId, final ExecStartParameter... params)
       throws DockerException, InterruptedException {
-    final WebTarget resource = resource()
+    final WebTarget resource = streamingResource()
     		.path("exec").path(execId).path("start");
 
     final StringWriter writer = new StringWriter();
@@ -1431,7 +1777,7 @@ public class DefaultDockerClient implements DockerClient {
       InputStream inputStream = request(POST, InputStream.class, resource,
                      resource.request("application/vnd.docker.raw-stream"),
                      Entity.json(writer.toString()));
-      return DefaultLogStream.create(inputStream);
+      return DefaultLogStream.create(inputStream, reuseLogBuffers);
     } catch (DockerRequestException e) {
       switch (e.status()) {
         case 404:
@@ -1745,7 +2091,7 @@ public class DefaultDockerClient implements DockerClient {
   public LogStream serviceLogs(String serviceId, LogsParam... params)
           throws DockerException, InterruptedException {
     assertApiVersionIsAbove("1.25");
-    WebTarget resource = resource()
+    WebTarget resource = streamingResource()
             .path("services").path(serviceId)
             .path("logs");
 
@@ -2102,6 +2448,58 @@ public class DefaultDockerClient implements DockerClient {
     }
   }
 
+  @Override
+  public StatsStream statsStream(final String containerId)
+      throws DockerException, InterruptedException {
+    return statsStream(containerId, 1);
+  }
+
+  @Override
+  public StatsStream statsStream(final String containerId, final int decimation)
+      throws DockerException, InterruptedException {
+    if (decimation < 1) {
+      throw new IllegalArgumentException("decimation must be positive");
+    }
+    return new StatsStream(openStatsStream(containerId), objectMapper(), decimation);
+  }
+
+  InputStream openStatsStream(final String containerId)
+      throws DockerException, InterruptedException {
+    final WebTarget resource = streamingResource().path("containers").path(containerId).path("stats")
+        .queryParam("stream", "1");
+
+    try {
+      return request(GET, InputStream.class, resource, resource.request(APPLICATION_JSON_TYPE));
+    } catch (DockerRequestException e) {
+      switch (e.status()) {
+        case 404:
+          throw new ContainerNotFoundException(containerId, e);
+        default:
+          throw e;
+      }
+    }
+  }
+
+  @Override
+  public void statsStream(final String containerId, final int decimation,
+                          final StatsHandler handler)
+      throws DockerException, InterruptedException {
+    requireNonNull(handler, "handler");
+    if (decimation < 1) {
+      throw new IllegalArgumentException("decimation must be positive");
+    }
+    try (final StatsStream stream = statsStream(containerId, decimation)) {
+      while (stream.hasNext()) {
+        if (Thread.interrupted()) {
+          throw new InterruptedException();
+        }
+        handler.stats(stream.next());
+      }
+    } catch (IOException | RuntimeException e) {
+      throw new DockerException(e);
+    }
+  }
+
   @Override
   public void resizeTty(final String containerId, final Integer height, final Integer width)
       throws DockerException, InterruptedException {
@@ -2407,9 +2805,17 @@ public class DefaultDockerClient implements DockerClient {
     }
   }
 
-  private WebTarget resource() {
+  WebTarget resource() {
     return resource(client);
   }
+
+  /**
+   * The resource of the calls that may take longer than the read timeout, sent through the
+   * streaming client with its own connection pool and read timeout.
+   */
+  WebTarget streamingResource() {
+    return resource(streamingClient);
+  }
   
   private WebTarget resource(Client client) {
     final WebTarget target = client.target(uri);
@@ -2422,8 +2828,18 @@ public class DefaultDockerClient implements DockerClient {
   private <T> T request(final String method, final GenericType<T> type,
                         final WebTarget resource, final Invocation.Builder request)
       throws DockerException, InterruptedException {
+    if (reads != null && method.equals(GET)) {
+      return reads.request(method, resource.getUri(), type.getType().getTypeName(),
+          () -> send(method, type, resource, request));
+    }
+    return send(method, type, resource, request);
+  }
+
+  private <T> T send(final String method, final GenericType<T> type,
+                     final WebTarget resource, final Invocation.Builder request)
+      throws DockerException, InterruptedException {
     try {
-      return headers(request).method(method, type);
+      return headers(request, true).method(method, type);
     } catch (Exception e) {
       throw propagate(method, resource, e);
     }
@@ -2432,8 +2848,20 @@ public class DefaultDockerClient implements DockerClient {
   private <T> T request(final String method, final Class<T> clazz,
                         final WebTarget resource, final Invocation.Builder request)
       throws DockerException, InterruptedException {
+    // streams are read by their caller, they can't be shared
+    if (reads != null && method.equals(GET) && clazz != InputStream.class
+        && clazz != Response.class) {
+      return reads.request(method, resource.getUri(), clazz.getName(),
+          () -> send(method, clazz, resource, request));
+    }
+    return send(method, clazz, resource, request);
+  }
+
+  private <T> T send(final String method, final Class<T> clazz,
+                     final WebTarget resource, final Invocation.Builder request)
+      throws DockerException, InterruptedException {
     try {
-      return headers(request).method(method, clazz);
+      return headers(request, clazz != InputStream.class).method(method, clazz);
     } catch (Exception e) {
       throw propagate(method, resource, e);
     }
@@ -2444,7 +2872,7 @@ public class DefaultDockerClient implements DockerClient {
                         final Entity<?> entity)
       throws DockerException, InterruptedException {
     try {
-      return headers(request).method(method, entity, clazz);
+      return headers(request, clazz != InputStream.class).method(method, entity, clazz);
     } catch (Exception e) {
       throw propagate(method, resource, e);
     }
@@ -2455,7 +2883,7 @@ public class DefaultDockerClient implements DockerClient {
                        final Invocation.Builder request)
       throws DockerException, InterruptedException {
     try {
-      Response response = headers(request).method(method);
+      Response response = headers(request, true).method(method);
       Family family = response.getStatusInfo().getFamily();
       if (family == Family.CLIENT_ERROR || family == Family.SERVER_ERROR) {
         int status = response.getStatus();
@@ -2471,6 +2899,71 @@ public class DefaultDockerClient implements DockerClient {
     }
   }
 
+  <T> CompletableFuture<T> requestAsync(final String method, final GenericType<T> type,
+                                        final WebTarget resource, final Invocation.Builder request) {
+    return requestAsync(method, type, resource, request, null);
+  }
+
+  <T> CompletableFuture<T> requestAsync(final String method, final GenericType<T> type,
+                                        final WebTarget resource, final Invocation.Builder request,
+                                        final Entity<?> entity) {
+    final CompletionStage<T> stage;
+    try {
+      stage = entity == null
+          ? headers(request, true).rx().method(method, type)
+          : headers(request, true).rx().method(method, entity, type);
+    } catch (Exception e) {
+      return CompletableFuture.failedFuture(asyncFailure(method, resource, e));
+    }
+    return stage.toCompletableFuture().handle((value, error) -> {
+      if (error != null) {
+        throw new CompletionException(asyncFailure(method, resource, error));
+      }
+      return value;
+    });
+  }
+
+  CompletableFuture<Void> requestAsync(final String method, final WebTarget resource,
+                                       final Invocation.Builder request) {
+    return requestAsync(method, new GenericType<Response>(Response.class), resource, request)
+        .thenApply(response -> {
+          try (response) {
+            final Family family = response.getStatusInfo().getFamily();
+            if (family == Family.CLIENT_ERROR || family == Family.SERVER_ERROR) {
+              throw new CompletionException(new DockerRequestException(method, resource.getUri(),
+                  response.getStatus(), extractDockerResponse(response), null));
+            }
+            return null;
+          }
+        });
+  }
+
+  /**
+   * Translates the failure of an asynchronous request to the exception that the blocking
+   * counterpart would have thrown.
+   */
+  private Throwable asyncFailure(final String method, final WebTarget resource,
+                                 final Throwable error) {
+    final Throwable cause = unwrapAsync(error);
+    if (cause instanceof DockerException || !(cause instanceof Exception)) {
+      return cause;
+    }
+    try {
+      throw propagate(method, resource, (Exception) cause);
+    } catch (DockerException | InterruptedException e) {
+      return e;
+    }
+  }
+
+  static Throwable unwrapAsync(final Throwable error) {
+    Throwable cause = error;
+    while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+           && cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+    return cause;
+  }
+
   private static class ResponseTailReader implements Callable<Void> {
     private final ProgressStream stream;
     private final ProgressHandler handler;
@@ -2495,11 +2988,27 @@ public class DefaultDockerClient implements DockerClient {
   private void tailResponse(final String method, final Response response,
                             final ProgressHandler handler, final WebTarget resource)
         throws DockerException, InterruptedException {
-    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    final ExecutorService executor = tailExecutor != null ? tailExecutor : Executors.newSingleThreadExecutor();
+    Future<?> future = null;
+    tailsInFlight.incrementAndGet();
     try (InputStream inputStream = response.readEntity(InputStream.class);
         ProgressStream stream = new ProgressStream(inputStream)) {
-      final Future<?> future = executor.submit(new ResponseTailReader(stream, handler, method, resource));
-      future.get();
+      future = executor.submit(new ResponseTailReader(stream, handler, method, resource));
+      final CallContext context = CallContext.current();
+      final Duration remaining = context != null ? context.remaining() : null;
+      if (remaining != null) {
+        future.get(remaining.toNanos(), TimeUnit.NANOSECONDS);
+      } else {
+        future.get();
+      }
+    } catch (TimeoutException e) {
+      throw new DockerTimeoutException(method, resource.getUri(), e);
+    } catch (InterruptedException e) {
+      final CallContext context = CallContext.current();
+      if (context != null && context.isCancelled()) {
+        throw new OperationCancelledException(method, resource.getUri(), e);
+      }
+      throw e;
     } catch (ExecutionException e) {
       final Throwable cause = e.getCause();
       if (cause instanceof DockerException) {
@@ -2509,7 +3018,13 @@ public class DefaultDockerClient implements DockerClient {
     } catch (IOException e) {
       throw new DockerException(e);
     } finally {
-      executor.shutdownNow();
+      tailsInFlight.decrementAndGet();
+      if (tailExecutor == null) {
+        executor.shutdownNow();
+      } else if (future != null) {
+        // a shared executor cannot be shut down, so interrupt only the tail of this call
+        future.cancel(true);
+      }
       try {
         response.close();
       } catch (ProcessingException e) {
@@ -2542,13 +3057,33 @@ public class DefaultDockerClient implements DockerClient {
     }
   }
 
-  private Invocation.Builder headers(final Invocation.Builder request) {
+  /**
+   * @param boundReads whether the reads of the response are bounded by the call context, false
+   *     for streams read after the call returns
+   */
+  private Invocation.Builder headers(final Invocation.Builder request, final boolean boundReads) {
     final Set<Map.Entry<String, Object>> entries = headers.entrySet();
 
     for (final Map.Entry<String, Object> entry : entries) {
       request.header(entry.getKey(), entry.getValue());
     }
 
+    final CallContext context = CallContext.current();
+    if (context != null) {
+      if (context.isCancelled() || context.isExpired()) {
+        // reported by propagate according to the context
+        throw new ProcessingException("The call context has ended");
+      }
+      final Duration remaining = context.remaining();
+      if (remaining != null) {
+        final int millis = (int) Math.min(Integer.MAX_VALUE, Math.max(1, remaining.toMillis()));
+        request.property(ClientProperties.CONNECT_TIMEOUT, millis);
+        if (boundReads) {
+          request.property(ClientProperties.READ_TIMEOUT, millis);
+        }
+      }
+    }
+
     return request;
   }
 
@@ -2556,6 +3091,13 @@ public class DefaultDockerClient implements DockerClient {
                                      final Exception ex)
       throws DockerException, InterruptedException {
     
+    final CallContext context = CallContext.current();
+    if (context != null && context.isCancelled()) {
+      throw new OperationCancelledException(method, resource.getUri(), ex);
+    } else if (context != null && context.isExpired()) {
+      throw new DockerTimeoutException(method, resource.getUri(), ex);
+    }
+
     Throwable cause = ex;
 
     if (cause instanceof ResponseProcessingException) {
@@ -28,22 +28,26 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 class DefaultLogStream implements LogStream {
 
   private final LogReader reader;
   private LogMessage next;
-  
-  private DefaultLogStream(final InputStream stream) {
-    this(new LogReader(stream));
-  }
+  private final AtomicBoolean subscribed = new AtomicBoolean();
 
   DefaultLogStream(final LogReader reader) {
     this.reader = reader;
   }
 
   static DefaultLogStream create(final InputStream stream) {
-    return new DefaultLogStream(stream);
+    return create(stream, false);
+  }
+
+  static DefaultLogStream create(final InputStream stream, final boolean reuseBuffers) {
+    return new DefaultLogStream(new LogReader(stream, reuseBuffers));
   }
 
   @Override
@@ -64,6 +68,16 @@ class DefaultLogStream implements LogStream {
 	return next != null;
   }
 
+  /** Returns the next message, or null at the end of the stream. */
+  LogMessage poll() throws IOException {
+    if (next != null) {
+      LogMessage value = next;
+      next = null;
+      return value;
+    }
+    return reader.nextMessage();
+  }
+
   @Override
   public LogMessage next() {
 	if (!hasNext()) {
@@ -83,11 +97,32 @@ class DefaultLogStream implements LogStream {
     return stringBuilder.toString();
   }
 
+  @Override
+  public void subscribe(final Flow.Subscriber<? super LogMessage> subscriber, final Executor executor) {
+    if (!subscribed.compareAndSet(false, true)) {
+      subscriber.onSubscribe(new Flow.Subscription() {
+        @Override
+        public void request(long n) {
+          // nothing to deliver
+        }
+
+        @Override
+        public void cancel() {
+          // nothing to cancel
+        }
+      });
+      subscriber.onError(new IllegalStateException("Log stream has already been subscribed to"));
+      return;
+    }
+    subscriber.onSubscribe(new LogSubscription(this, subscriber, executor));
+  }
+
   @Override
   public void attach(final OutputStream stdout, final OutputStream stderr) throws IOException {
 	  while (this.hasNext()) {
 	    final LogMessage message = this.next();
-	    final ByteBuffer content = message.content();
+	    // the content is only read, so skip the read-only view of content()
+	    final ByteBuffer content = message.content;
 	
 	    switch (message.stream()) {
 	      case STDOUT:
@@ -108,15 +143,16 @@ class DefaultLogStream implements LogStream {
       final ByteBuffer buffer, final OutputStream outputStream) throws IOException {
 
     if (buffer.hasArray()) {
-      outputStream.write(buffer.array(), buffer.position(), buffer.remaining());
+      outputStream.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
     } else {
       // cannot access underlying byte array, need to copy into a temporary array
-      while (buffer.hasRemaining()) {
+      final ByteBuffer source = buffer.duplicate();
+      while (source.hasRemaining()) {
         // figure out how much to read, but use an upper limit of 8kb. LogMessages should be rather
         // small so we don't expect this to get hit but avoid large temporary buffers, just in case.
-        final int size = Math.min(buffer.remaining(), 8 * 1024);
+        final int size = Math.min(source.remaining(), 8 * 1024);
         final byte[] chunk = new byte[size];
-        buffer.get(chunk);
+        source.get(chunk);
         outputStream.write(chunk);
       }
     }
@@ -30,6 +30,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
@@ -399,6 +400,11 @@ public interface DockerClient extends Closeable {
   /**
    * Pull a private docker container image, using a custom ProgressMessageHandler.
    *
+   * <p>Concurrent pulls of the same image with the same credentials share a single request: the
+   * later calls wait for the first one, and their handlers receive the progress messages from the
+   * time they joined. An image without a tag pulls every tag, so it does not share the pull of
+   * its {@code latest} tag.</p>
+   *
    * @param image      The image to pull.
    * @param registryAuth The {@link RegistryAuth} needed to pull the image.
    * @param handler    The handler to use for processing each progress message received from
@@ -411,6 +417,67 @@ public interface DockerClient extends Closeable {
   void pull(String image, RegistryAuth registryAuth, ProgressHandler handler)
       throws DockerException, InterruptedException;
 
+  /**
+   * Makes sure an image is present, pulling it if it is not, with the credentials the client's
+   * {@link org.mandas.docker.client.auth.RegistryAuthSupplier} provides for it.
+   *
+   * <p>Concurrent calls for the same image, like concurrent pulls, share a single pull.</p>
+   *
+   * @param image The image to look up or pull.
+   * @return the image info
+   * @throws org.mandas.docker.client.exceptions.ImageNotFoundException
+   *                              if the image could neither be found nor pulled
+   * @throws DockerException      if a server error occurred (500)
+   * @throws InterruptedException If the thread is interrupted
+   */
+  ImageInfo ensureImage(String image) throws DockerException, InterruptedException;
+
+  /**
+   * Makes sure an image is present, pulling it if it is not, with the credentials the client's
+   * {@link org.mandas.docker.client.auth.RegistryAuthSupplier} provides for it.
+   *
+   * <p>Concurrent calls for the same image, like concurrent pulls, share a single pull.</p>
+   *
+   * @param image   The image to look up or pull.
+   * @param handler The handler receiving the progress of the pull, if any.
+   * @return the image info
+   * @throws org.mandas.docker.client.exceptions.ImageNotFoundException
+   *                              if the image could neither be found nor pulled
+   * @throws DockerException      if a server error occurred (500)
+   * @throws InterruptedException If the thread is interrupted
+   */
+  ImageInfo ensureImage(String image, ProgressHandler handler)
+      throws DockerException, InterruptedException;
+
+  /**
+   * Pulls several images concurrently, skipping the images already present, with four pulls at a 
+   * time and two per registry.
+   *
+   * @param images The images to pull.
+   * @return the result of every image
+   * @throws InterruptedException If the thread is interrupted
+   * @see #prefetch(Collection, PrefetchOptions)
+   */
+  PrefetchResult prefetch(Collection<String> images) throws InterruptedException;
+
+  /**
+   * Pulls several images concurrently, skipping the images already present.
+   *
+   * <p>At most {@link PrefetchOptions#maxConcurrentPulls()} images are pulled at a time, and at
+   * most {@link PrefetchOptions#maxConcurrentPullsPerRegistry()} from the same registry. The first
+   * image of every repository is started first, and the further tags of a repository are pulled
+   * one after the other once it is done, so that they reuse its layers. An image present under a tag is pulled again only if the registry 
+   * has another digest for the tag, unless {@link PrefetchOptions#verifyDigests()} is off. An 
+   * image failing doesn't stop the others, its failure is returned in its result instead.</p>
+   *
+   * @param images  The images to pull.
+   * @param options The concurrency and reporting options.
+   * @return the result of every image
+   * @throws InterruptedException If the thread is interrupted
+   */
+  PrefetchResult prefetch(Collection<String> images, PrefetchOptions options)
+      throws InterruptedException;
+
   /**
    * Push a docker container image.
    *
@@ -758,6 +825,61 @@ public interface DockerClient extends Closeable {
     public static BuildParam cpusetCpus(final Integer cpusetCpus) {
       return create("cpusetcpus", cpusetCpus.toString());
     }
+
+    /**
+     * Compression of the build context sent to the daemon, overriding the one the client was
+     * built with. It is not sent as a query parameter.
+     * @param compression the compression of the build context
+     * @return BuildParam
+     */
+    public static BuildParam compression(final ContextCompression compression) {
+      return compression(compression, -1);
+    }
+
+    /**
+     * Compression and compression level of the build context sent to the daemon, overriding the 
+     * ones the client was built with. It is not sent as a query parameter.
+     * @param compression the compression of the build context
+     * @param level the compression level, or -1 for the default level of the compression
+     * @return BuildParam
+     */
+    public static BuildParam compression(final ContextCompression compression, final int level) {
+      return new ContextCompressionParam(compression, level);
+    }
+  }
+
+  /**
+   * A {@link BuildParam} choosing how the build context is compressed, consumed by the client 
+   * instead of being sent to the daemon.
+   */
+  class ContextCompressionParam extends BuildParam {
+
+    private final ContextCompression compression;
+    private final int level;
+
+    ContextCompressionParam(final ContextCompression compression, final int level) {
+      super("compression", compression.name());
+      this.compression = compression;
+      this.level = level;
+    }
+
+    public ContextCompression compression() {
+      return compression;
+    }
+
+    public int level() {
+      return level;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      return super.equals(obj) && level == ((ContextCompressionParam) obj).level;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(super.hashCode(), level);
+    }
   }
 
   /**
@@ -934,6 +1056,71 @@ public interface DockerClient extends Closeable {
   void killContainer(final String containerId, final Signal signal)
       throws DockerException, InterruptedException;
 
+  /**
+   * Start several docker containers, up to {@code parallelism} at a time. A container failing 
+   * doesn't stop the others, its failure is returned in its result instead.
+   *
+   * @param containerIds The ids of the containers to start.
+   * @param parallelism  The maximum number of containers started at a time.
+   * @return the result of every container, in the order of the given ids
+   * @throws InterruptedException If the thread is interrupted
+   */
+  List<BulkOperationResult> startContainers(Collection<String> containerIds, int parallelism)
+      throws InterruptedException;
+
+  /**
+   * Stop several docker containers, up to {@code parallelism} at a time, see
+   * {@link #stopContainer(String, int)}. A container failing doesn't stop the others, its failure
+   * is returned in its result instead.
+   *
+   * @param containerIds               The ids of the containers to stop.
+   * @param secondsToWaitBeforeKilling Time to wait after SIGTERM before sending SIGKILL.
+   * @param parallelism                The maximum number of containers stopped at a time.
+   * @return the result of every container, in the order of the given ids
+   * @throws InterruptedException If the thread is interrupted
+   */
+  List<BulkOperationResult> stopContainers(Collection<String> containerIds,
+                                           int secondsToWaitBeforeKilling, int parallelism)
+      throws InterruptedException;
+
+  /**
+   * Kill several docker containers, up to {@code parallelism} at a time. A container failing 
+   * doesn't stop the others, its failure is returned in its result instead.
+   *
+   * @param containerIds The ids of the containers to kill.
+   * @param signal       Signal used to kill the processes.
+   * @param parallelism  The maximum number of containers killed at a time.
+   * @return the result of every container, in the order of the given ids
+   * @throws InterruptedException If the thread is interrupted
+   */
+  List<BulkOperationResult> killContainers(Collection<String> containerIds, Signal signal,
+                                           int parallelism)
+      throws InterruptedException;
+
+  /**
+   * Pause several docker containers, up to {@code parallelism} at a time. A container failing 
+   * doesn't stop the others, its failure is returned in its result instead.
+   *
+   * @param containerIds The ids of the containers to pause.
+   * @param parallelism  The maximum number of containers paused at a time.
+   * @return the result of every container, in the order of the given ids
+   * @throws InterruptedException If the thread is interrupted
+   */
+  List<BulkOperationResult> pauseContainers(Collection<String> containerIds, int parallelism)
+      throws InterruptedException;
+
+  /**
+   * Unpause several docker containers, up to {@code parallelism} at a time. A container failing 
+   * doesn't stop the others, its failure is returned in its result instead.
+   *
+   * @param containerIds The ids of the containers to unpause.
+   * @param parallelism  The maximum number of containers unpaused at a time.
+   * @return the result of every container, in the order of the given ids
+   * @throws InterruptedException If the thread is interrupted
+   */
+  List<BulkOperationResult> unpauseContainers(Collection<String> containerIds, int parallelism)
+      throws InterruptedException;
+
   /**
    * Get the distribution of a container.
    * @param imageName The name of the container.
@@ -1169,6 +1356,20 @@ public interface DockerClient extends Closeable {
   void removeContainer(String containerId, RemoveContainerParam... params)
       throws DockerException, InterruptedException;
 
+  /**
+   * Remove several docker containers, up to {@code parallelism} at a time. A container failing 
+   * doesn't stop the others, its failure is returned in its result instead.
+   *
+   * @param containerIds The ids of the containers to remove.
+   * @param parallelism  The maximum number of containers removed at a time.
+   * @param params       {@link RemoveContainerParam}
+   * @return the result of every container, in the order of the given ids
+   * @throws InterruptedException If the thread is interrupted
+   */
+  List<BulkOperationResult> removeContainers(Collection<String> containerIds, int parallelism,
+                                             RemoveContainerParam... params)
+      throws InterruptedException;
+
   /**
    * Parameters for {@link #removeContainer(String)}.
    */
@@ -1264,6 +1465,49 @@ public interface DockerClient extends Closeable {
   InputStream archiveContainer(String containerId, String path)
       throws DockerException, InterruptedException;
 
+  /**
+   * Copies a path out of a container into a local directory, extracting the archive of
+   * {@link #archiveContainer(String, String)} as it is received. (API version 1.20+)
+   *
+   * @param containerId     The id of the container to copy files from.
+   * @param path            The path inside of the container to copy.
+   * @param targetDirectory The local directory to extract the archive into, created if missing.
+   * @throws ContainerNotFoundException
+   *                              if container is not found (404)
+   * @throws DockerException      if a server error occurred (500)
+   * @throws InterruptedException If the thread is interrupted
+   * @throws IOException          If a file could not be written, or an archive entry resolves 
+   *                              outside of the target directory
+   * @since 1.20
+   * @see #copyFromContainer(String, String, Path, CopyFromContainerOptions)
+   */
+  void copyFromContainer(String containerId, String path, Path targetDirectory)
+      throws DockerException, InterruptedException, IOException;
+
+  /**
+   * Copies a path out of a container into a local directory, extracting the archive of
+   * {@link #archiveContainer(String, String)} as it is received. (API version 1.20+)
+   *
+   * <p>Files are streamed to disk, entries filtered out by the options are skipped without being
+   * buffered, and permissions and modification times are preserved unless the options say
+   * otherwise.</p>
+   *
+   * @param containerId     The id of the container to copy files from.
+   * @param path            The path inside of the container to copy.
+   * @param targetDirectory The local directory to extract the archive into, created if missing.
+   * @param options         The filters and extraction options.
+   * @throws ContainerNotFoundException
+   *                              if container is not found (404)
+   * @throws DockerException      if a server error occurred (500)
+   * @throws InterruptedException If the thread is interrupted
+   * @throws IOException          If a file could not be written, or an archive entry resolves 
+   *                              outside of the target directory
+   * @since 1.20
+   */
+  void copyFromContainer(String containerId, String path, Path targetDirectory,
+                         CopyFromContainerOptions options)
+      throws DockerException, InterruptedException, IOException;
+
   /**
    * Copies some files from host to container. (API version 1.20+)
    *
@@ -1287,6 +1531,26 @@ public interface DockerClient extends Closeable {
   void copyToContainer(final InputStream tarStream, String containerId, String path)
           throws DockerException, InterruptedException, IOException;
 
+  /**
+   * Copies some files from host to several containers. (API version 1.20+)
+   *
+   * <p>The directory is archived and compressed once, and the archive is uploaded to up to
+   * {@code parallelism} containers at a time from a memory-mapped copy of it. A container failing
+   * doesn't stop the others, its failure is returned in its result instead.</p>
+   *
+   * @param directory    The path to sent to the containers
+   * @param containerIds The ids of the containers to sent files.
+   * @param path         The path inside of the containers to put files.
+   * @param parallelism  The maximum number of concurrent uploads
+   * @return the result of every container, in the order of the given ids
+   * @throws InterruptedException If the thread is interrupted
+   * @throws IOException          If the directory could not be archived
+   * @since 1.20
+   */
+  List<BulkOperationResult> copyToContainers(Path directory, Collection<String> containerIds,
+                                             String path, int parallelism)
+      throws InterruptedException, IOException;
+
   /**
    * Inspect changes on a container's filesystem.
    *
@@ -1316,6 +1580,46 @@ public interface DockerClient extends Closeable {
   LogStream logs(String containerId, LogsParam... params)
       throws DockerException, InterruptedException;
 
+  /**
+   * Merges the logs of several containers into a single stream, buffering at most 16 MiB of
+   * messages that have not been consumed yet.
+   *
+   * @param containerIds The ids of the containers to get logs for.
+   * @param params       Params for controlling what streams to get and whether to tail or not.
+   * @return A merged log message stream.
+   * @throws DockerException      if a server error occurred (500)
+   * @throws InterruptedException If the thread is interrupted
+   * @see #aggregateLogs(Collection, int, LogsParam...)
+   */
+  AggregatedLogStream aggregateLogs(Collection<String> containerIds, LogsParam... params)
+      throws DockerException, InterruptedException;
+
+  /**
+   * Merges the logs of several containers into a single stream.
+   *
+   * <p>The log stream of every container is read on a virtual thread of its own and holds a
+   * connection of the pool while open, so the connection pool size should exceed the number of
+   * containers followed. Once {@code maxBufferedBytes} of messages have been read but not
+   * consumed, reading stops until the consumer catches up.</p>
+   *
+   * <p>When {@link LogsParam#timestamps()} is set, messages are ordered by their timestamp within
+   * a reorder window of one second, otherwise in the order they were received. When
+   * {@link LogsParam#follow()} is set, a stream that fails on I/O is reopened from the last
+   * message received while the container is running; containers that do not exist or have stopped
+   * end their part of the stream. Other failures are thrown by the iterator, see
+   * {@link AggregatedLogStream}.</p>
+   *
+   * @param containerIds     The ids of the containers to get logs for.
+   * @param maxBufferedBytes The maximum number of content bytes buffered but not yet consumed.
+   * @param params           Params for controlling what streams to get and whether to tail or not.
+   * @return A merged log message stream.
+   * @throws DockerException      if a server error occurred (500)
+   * @throws InterruptedException If the thread is interrupted
+   */
+  AggregatedLogStream aggregateLogs(Collection<String> containerIds, int maxBufferedBytes,
+                                    LogsParam... params)
+      throws DockerException, InterruptedException;
+
   /**
    * Watches the docker API for events.
    *
@@ -1679,6 +1983,49 @@ public interface DockerClient extends Closeable {
    */
   ContainerStats stats(String containerId) throws DockerException, InterruptedException;
 
+  /**
+   * Streams the stats (stream=1) of the container with the specified id, a sample every second.
+   *
+   * @param containerId The id of the container to retrieve stats for.
+   * @return The stream of container stats
+   * @throws ContainerNotFoundException
+   *                              if container is not found (404)
+   * @throws DockerException      if a server error occurred (500)
+   * @throws InterruptedException If the thread is interrupted
+   */
+  StatsStream statsStream(String containerId) throws DockerException, InterruptedException;
+
+  /**
+   * Streams the stats (stream=1) of the container with the specified id, keeping every 
+   * {@code decimation}-th sample. The samples in between are skipped without being decoded.
+   *
+   * @param containerId The id of the container to retrieve stats for.
+   * @param decimation  The number of samples read for every sample returned, 1 for all.
+   * @return The stream of container stats
+   * @throws ContainerNotFoundException
+   *                              if container is not found (404)
+   * @throws DockerException      if a server error occurred (500)
+   * @throws InterruptedException If the thread is interrupted
+   */
+  StatsStream statsStream(String containerId, int decimation)
+      throws DockerException, InterruptedException;
+
+  /**
+   * Streams the stats (stream=1) of the container with the specified id to a handler, keeping every
+   * {@code decimation}-th sample. Blocks until the container stops, the handler throws or the
+   * thread is interrupted.
+   *
+   * @param containerId The id of the container to retrieve stats for.
+   * @param decimation  The number of samples read for every sample returned, 1 for all.
+   * @param handler     The handler receiving the samples.
+   * @throws ContainerNotFoundException
+   *                              if container is not found (404)
+   * @throws DockerException      if a server error occurred (500) or thrown by the handler
+   * @throws InterruptedException If the thread is interrupted
+   */
+  void statsStream(String containerId, int decimation, StatsHandler handler)
+      throws DockerException, InterruptedException;
+
   /**
    * Resize container TTY
    * This API is valid only if <code>tty</code> was specified as
@@ -1936,6 +2283,14 @@ public interface DockerClient extends Closeable {
   @Override
   void close();
 
+  /**
+   * Returns a non-blocking view of this client. The returned instance shares connections and
+   * configuration with this client and must not be used after {@link #close()}.
+   *
+   * @return the asynchronous view of this client
+   */
+  AsyncDockerClient async();
+
   /**
    * Parameters for {@link #execCreate(String, String[], ExecCreateParam...)}
    */
@@ -0,0 +1,51 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+/**
+ * Receives the timings of the calls a {@link DockerClient} makes, e.g. to feed a metrics registry.
+ * Register listeners with 
+ * {@link org.mandas.docker.client.builder.DockerClientBuilder#listener(DockerClientListener)}.
+ *
+ * <p>Listeners are invoked synchronously on the thread making the call and must return quickly.
+ * Exceptions thrown by a listener are logged and otherwise ignored.</p>
+ */
+public interface DockerClientListener {
+
+  /**
+   * Invoked once the response headers of a request have been received, or the request failed
+   * without a response. The time spent reading a streamed response body is not included.
+   *
+   * @param event the request
+   */
+  default void requestCompleted(RequestEvent event) {
+    // no-op
+  }
+
+  /**
+   * Invoked once a connection has been leased from the connection pool, or the lease failed.
+   *
+   * @param event the lease
+   */
+  default void connectionLeased(ConnectionLeaseEvent event) {
+    // no-op
+  }
+}
@@ -0,0 +1,694 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import static java.util.Objects.requireNonNull;
+import static org.mandas.docker.client.DockerClient.ListContainersParam.allContainers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.mandas.docker.client.DockerClient.EventsParam;
+import org.mandas.docker.client.DockerClient.ListContainersParam;
+import org.mandas.docker.client.exceptions.DockerException;
+import org.mandas.docker.client.exceptions.NotFoundException;
+import org.mandas.docker.client.messages.Container;
+import org.mandas.docker.client.messages.Event;
+import org.mandas.docker.client.messages.Image;
+import org.mandas.docker.client.messages.Network;
+import org.mandas.docker.client.messages.Volume;
+import org.mandas.docker.client.messages.VolumeList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An in-memory view of the containers, images, networks and volumes of a daemon, kept current by
+ * tailing its events instead of polling.
+ *
+ * <p>{@link #start()} lists every resource once and then follows the events stream, refreshing 
+ * only the resource an event is about. Containers are additionally indexed by name, label and 
+ * state. A periodic resync lists everything again to heal events that were missed, e.g. while 
+ * the events stream was reconnecting. A resource changed by an event while a resync was listing 
+ * keeps the state of the event, as the list may predate it.</p>
+ *
+ * <p>Listeners are notified of every resource added, updated or deleted, in the order the view 
+ * changes, while the view is locked; they must return quickly and must not call back into the
+ * client. The view is eventually consistent: a change may be reported after a concurrent
+ * read.</p>
+ *
+ * <pre>
+ * {@code
+ * try (DockerStateMirror mirror = DockerStateMirror.builder(client)
+ *     .resyncInterval(Duration.ofMinutes(5))
+ *     .build()) {
+ *   mirror.addContainerListener(new ResourceListener<Container>() { ... });
+ *   mirror.start();
+ *   List<Container> web = mirror.containersByLabel("app", "web");
+ * }
+ * }
+ * </pre>
+ */
+public class DockerStateMirror implements Closeable {
+
+  private static final Logger log = LoggerFactory.getLogger(DockerStateMirror.class);
+
+  static final long RECONNECT_DELAY_MILLIS = 1000;
+
+  /**
+   * Receives the changes of one resource type of a {@link DockerStateMirror}.
+   *
+   * @param <T> the resource type
+   */
+  public interface ResourceListener<T> {
+
+    default void added(T resource) {
+      // no-op
+    }
+
+    default void updated(T previous, T resource) {
+      // no-op
+    }
+
+    default void deleted(T resource) {
+      // no-op
+    }
+  }
+
+  private final DockerClient client;
+  private final Duration resyncInterval;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Store<Container> containers = new Store<>(Container::id);
+  private final Store<Image> images = new Store<>(Image::id);
+  private final Store<Network> networks = new Store<>(Network::id);
+  private final Store<Volume> volumes = new Store<>(Volume::name);
+  private final Map<String, String> containerIdsByName = new HashMap<>();
+  private final Map<String, Map<String, Set<String>>> containerIdsByLabel = new HashMap<>();
+  private final Map<String, Set<String>> containerIdsByState = new HashMap<>();
+  private final List<Thread> threads = new ArrayList<>();
+  // guarded by the lock: the changes applied from events, and the change each resync listing 
+  // started after
+  private long generation;
+  private final List<Long> resyncs = new ArrayList<>();
+  private volatile EventStream events;
+  private volatile boolean closed;
+
+  private DockerStateMirror(final Builder builder) {
+    this.client = builder.client;
+    this.resyncInterval = builder.resyncInterval;
+  }
+
+  public static Builder builder(final DockerClient client) {
+    return new Builder(client);
+  }
+
+  public void addContainerListener(final ResourceListener<? super Container> listener) {
+    containers.listeners.add(requireNonNull(listener, "listener"));
+  }
+
+  public void addImageListener(final ResourceListener<? super Image> listener) {
+    images.listeners.add(requireNonNull(listener, "listener"));
+  }
+
+  public void addNetworkListener(final ResourceListener<? super Network> listener) {
+    networks.listeners.add(requireNonNull(listener, "listener"));
+  }
+
+  public void addVolumeListener(final ResourceListener<? super Volume> listener) {
+    volumes.listeners.add(requireNonNull(listener, "listener"));
+  }
+
+  /**
+   * Lists every resource and starts following the events of the daemon. Listeners added before
+   * are notified of every resource listed.
+   *
+   * @throws DockerException      if a server error occurred (500)
+   * @throws InterruptedException If the thread is interrupted
+   */
+  public void start() throws DockerException, InterruptedException {
+    // opened before listing, so that no change falls between the list and the first event
+    final EventStream stream = openEvents();
+    try {
+      resync();
+    } catch (DockerException | InterruptedException | RuntimeException e) {
+      closeQuietly(stream);
+      throw e;
+    }
+    threads.add(Thread.ofVirtual().name("docker-mirror-events").start(() -> followEvents(stream)));
+    if (resyncInterval != null) {
+      threads.add(Thread.ofVirtual().name("docker-mirror-resync").start(this::resyncPeriodically));
+    }
+  }
+
+  /**
+   * Lists every resource again, notifying the listeners of the differences to the view.
+   *
+   * @throws DockerException      if a server error occurred (500)
+   * @throws InterruptedException If the thread is interrupted
+   */
+  public void resync() throws DockerException, InterruptedException {
+    final Long started;
+    lock.lock();
+    try {
+      started = generation;
+      resyncs.add(started);
+    } finally {
+      lock.unlock();
+    }
+    try {
+      final List<Container> listedContainers = client.listContainers(allContainers());
+      final List<Image> listedImages = client.listImages();
+      final List<Network> listedNetworks = client.listNetworks();
+      final VolumeList volumeList = client.listVolumes();
+      final List<Volume> listedVolumes = volumeList.volumes() == null ? List.of() : volumeList.volumes();
+      lock.lock();
+      try {
+        replaceContainers(listedContainers, started);
+        images.replaceAll(listedImages, started);
+        networks.replaceAll(listedNetworks, started);
+        volumes.replaceAll(listedVolumes, started);
+      } finally {
+        lock.unlock();
+      }
+    } finally {
+      lock.lock();
+      try {
+        resyncs.remove(started);
+        // no resync in flight needs the changes stamped before the oldest one still listing
+        final long oldest = resyncs.isEmpty() ? generation : Collections.min(resyncs);
+        containers.stamps.values().removeIf(stamp -> stamp <= oldest);
+        images.stamps.values().removeIf(stamp -> stamp <= oldest);
+        networks.stamps.values().removeIf(stamp -> stamp <= oldest);
+        volumes.stamps.values().removeIf(stamp -> stamp <= oldest);
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  public List<Container> containers() {
+    return containers.values();
+  }
+
+  public Optional<Container> container(final String containerId) {
+    return containers.get(containerId);
+  }
+
+  /**
+   * Finds a container by name.
+   *
+   * @param name the name of the container, with or without the leading slash
+   * @return the container
+   */
+  public Optional<Container> containerByName(final String name) {
+    lock.lock();
+    try {
+      final String id = containerIdsByName.get(name.startsWith("/") ? name : "/" + name);
+      return id == null ? Optional.empty() : Optional.ofNullable(containers.items.get(id));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Finds the containers having a label, whatever its value.
+   *
+   * @param label the label
+   * @return the containers
+   */
+  public List<Container> containersByLabel(final String label) {
+    lock.lock();
+    try {
+      final Set<String> ids = new HashSet<>();
+      for (final Set<String> valueIds : containerIdsByLabel.getOrDefault(label, Map.of()).values()) {
+        ids.addAll(valueIds);
+      }
+      return containers.lookup(ids);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Finds the containers having a label set to a value.
+   *
+   * @param label the label
+   * @param value the value of the label
+   * @return the containers
+   */
+  public List<Container> containersByLabel(final String label, final String value) {
+    lock.lock();
+    try {
+      return containers.lookup(containerIdsByLabel.getOrDefault(label, Map.of())
+          .getOrDefault(value, Set.of()));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Finds the containers in a state.
+   *
+   * @param state the state, e.g. {@code running} or {@code exited}
+   * @return the containers
+   */
+  public List<Container> containersByState(final String state) {
+    lock.lock();
+    try {
+      return containers.lookup(containerIdsByState.getOrDefault(state, Set.of()));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public List<Image> images() {
+    return images.values();
+  }
+
+  public Optional<Image> image(final String imageId) {
+    return images.get(imageId);
+  }
+
+  public List<Network> networks() {
+    return networks.values();
+  }
+
+  public Optional<Network> network(final String networkId) {
+    return networks.get(networkId);
+  }
+
+  public List<Volume> volumes() {
+    return volumes.values();
+  }
+
+  public Optional<Volume> volume(final String name) {
+    return volumes.get(name);
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    for (final Thread thread : threads) {
+      thread.interrupt();
+    }
+    final EventStream stream = events;
+    if (stream != null) {
+      closeQuietly(stream);
+    }
+  }
+
+  private EventStream openEvents() throws DockerException, InterruptedException {
+    final EventStream stream = client.events(EventsParam.since(System.currentTimeMillis() / 1000));
+    events = stream;
+    return stream;
+  }
+
+  private void followEvents(final EventStream initial) {
+    EventStream stream = initial;
+    while (!closed) {
+      try {
+        while (stream.hasNext()) {
+          onEvent(stream.next());
+        }
+      } catch (DockerException | RuntimeException e) {
+        if (!closed) {
+          log.warn("Events stream failed, reconnecting", e);
+        }
+      } catch (InterruptedException e) {
+        break;
+      } finally {
+        closeQuietly(stream);
+      }
+      stream = null;
+      while (!closed && stream == null) {
+        try {
+          Thread.sleep(RECONNECT_DELAY_MILLIS);
+          stream = openEvents();
+          // heal the events missed while disconnected
+          resync();
+        } catch (InterruptedException e) {
+          return;
+        } catch (DockerException | RuntimeException e) {
+          log.warn("Failed to reconnect the events stream", e);
+          if (stream != null) {
+            closeQuietly(stream);
+            stream = null;
+          }
+        }
+      }
+    }
+  }
+
+  private void resyncPeriodically() {
+    while (!closed) {
+      try {
+        Thread.sleep(resyncInterval.toMillis());
+        resync();
+      } catch (InterruptedException e) {
+        return;
+      } catch (DockerException | RuntimeException e) {
+        log.warn("Resync failed", e);
+      }
+    }
+  }
+
+  void onEvent(final Event event) throws DockerException, InterruptedException {
+    if (event.type() == null || event.actor() == null || event.actor().id() == null) {
+      return;
+    }
+    final String id = event.actor().id();
+    final String action = event.action() == null ? "" : event.action();
+    switch (event.type()) {
+      case CONTAINER:
+        if ("destroy".equals(action)) {
+          deleteContainer(id);
+        } else if (!action.startsWith("exec_")) {
+          refreshContainer(id);
+        }
+        break;
+      case IMAGE:
+        // tagging and untagging change other images too
+        final List<Image> listed = client.listImages();
+        lock.lock();
+        try {
+          for (final String imageId : images.items.keySet()) {
+            stamp(images, imageId);
+          }
+          for (final Image image : listed) {
+            stamp(images, image.id());
+          }
+          images.replaceAll(listed, Long.MAX_VALUE);
+        } finally {
+          lock.unlock();
+        }
+        break;
+      case NETWORK:
+        if ("destroy".equals(action)) {
+          delete(networks, id);
+        } else {
+          try {
+            upsert(networks, client.inspectNetwork(id));
+          } catch (NotFoundException e) {
+            delete(networks, id);
+          }
+        }
+        break;
+      case VOLUME:
+        if ("destroy".equals(action)) {
+          delete(volumes, id);
+        } else {
+          try {
+            upsert(volumes, client.inspectVolume(id));
+          } catch (NotFoundException e) {
+            delete(volumes, id);
+          }
+        }
+        break;
+      default:
+        break;
+    }
+  }
+
+  private void refreshContainer(final String containerId)
+      throws DockerException, InterruptedException {
+    final List<Container> listed = client.listContainers(allContainers(),
+        ListContainersParam.filter("id", containerId));
+    lock.lock();
+    try {
+      if (listed.isEmpty()) {
+        deleteContainer(containerId);
+      } else {
+        for (final Container container : listed) {
+          stamp(containers, container.id());
+          unindex(containers.items.get(container.id()));
+          containers.upsert(container);
+          index(container);
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void deleteContainer(final String containerId) {
+    lock.lock();
+    try {
+      stamp(containers, containerId);
+      unindex(containers.items.get(containerId));
+      containers.delete(containerId);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void replaceContainers(final Collection<Container> listed, final long started) {
+    containers.replaceAll(listed, started);
+    containerIdsByName.clear();
+    containerIdsByLabel.clear();
+    containerIdsByState.clear();
+    for (final Container container : containers.items.values()) {
+      index(container);
+    }
+  }
+
+  /**
+   * Records that an event changed a resource, so that the resyncs listing meanwhile leave it be.
+   * Called while the mirror is locked.
+   */
+  private <T> void stamp(final Store<T> store, final String key) {
+    if (!resyncs.isEmpty()) {
+      store.stamps.put(key, ++generation);
+    }
+  }
+
+  private <T> void upsert(final Store<T> store, final T resource) {
+    lock.lock();
+    try {
+      stamp(store, store.key.apply(resource));
+      store.upsert(resource);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private <T> void delete(final Store<T> store, final String key) {
+    lock.lock();
+    try {
+      stamp(store, key);
+      store.delete(key);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void index(final Container container) {
+    if (container.names() != null) {
+      for (final String name : container.names()) {
+        containerIdsByName.put(name, container.id());
+      }
+    }
+    if (container.labels() != null) {
+      for (final Map.Entry<String, String> label : container.labels().entrySet()) {
+        containerIdsByLabel.computeIfAbsent(label.getKey(), key -> new HashMap<>())
+            .computeIfAbsent(label.getValue(), value -> new HashSet<>())
+            .add(container.id());
+      }
+    }
+    if (container.state() != null) {
+      containerIdsByState.computeIfAbsent(container.state(), state -> new HashSet<>()).add(container.id());
+    }
+  }
+
+  private void unindex(final Container container) {
+    if (container == null) {
+      return;
+    }
+    if (container.names() != null) {
+      for (final String name : container.names()) {
+        containerIdsByName.remove(name, container.id());
+      }
+    }
+    if (container.labels() != null) {
+      for (final Map.Entry<String, String> label : container.labels().entrySet()) {
+        final Map<String, Set<String>> values = containerIdsByLabel.get(label.getKey());
+        if (values == null) {
+          continue;
+        }
+        final Set<String> ids = values.get(label.getValue());
+        if (ids != null && ids.remove(container.id()) && ids.isEmpty()) {
+          values.remove(label.getValue());
+          if (values.isEmpty()) {
+            containerIdsByLabel.remove(label.getKey());
+          }
+        }
+      }
+    }
+    if (container.state() != null) {
+      final Set<String> ids = containerIdsByState.get(container.state());
+      if (ids != null && ids.remove(container.id()) && ids.isEmpty()) {
+        containerIdsByState.remove(container.state());
+      }
+    }
+  }
+
+  private static void closeQuietly(final EventStream stream) {
+    try {
+      stream.close();
+    } catch (IOException e) {
+      log.debug("Failed to close events stream", e);
+    }
+  }
+
+  /**
+   * The resources of one type by key. Mutated while the mirror is locked only.
+   */
+  private class Store<T> {
+
+    private final Function<T, String> key;
+    private final Map<String, T> items = new LinkedHashMap<>();
+    private final List<ResourceListener<? super T>> listeners = new CopyOnWriteArrayList<>();
+    private final Map<String, Long> stamps = new HashMap<>();
+
+    private Store(final Function<T, String> key) {
+      this.key = key;
+    }
+
+    private List<T> values() {
+      lock.lock();
+      try {
+        return List.copyOf(items.values());
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private Optional<T> get(final String id) {
+      lock.lock();
+      try {
+        return Optional.ofNullable(items.get(id));
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private List<T> lookup(final Collection<String> ids) {
+      final List<T> found = new ArrayList<>(ids.size());
+      for (final String id : ids) {
+        final T item = items.get(id);
+        if (item != null) {
+          found.add(item);
+        }
+      }
+      return found;
+    }
+
+    private void upsert(final T resource) {
+      final T previous = items.put(key.apply(resource), resource);
+      if (previous == null) {
+        fire(listener -> listener.added(resource));
+      } else if (!previous.equals(resource)) {
+        fire(listener -> listener.updated(previous, resource));
+      }
+    }
+
+    private void delete(final String id) {
+      final T previous = items.remove(id);
+      if (previous != null) {
+        fire(listener -> listener.deleted(previous));
+      }
+    }
+
+    /**
+     * Replaces the resources with a list, except those changed by an event after the list 
+     * started.
+     */
+    private void replaceAll(final Collection<T> listed, final long started) {
+      final Set<String> listedKeys = new HashSet<>();
+      for (final T resource : listed) {
+        listedKeys.add(key.apply(resource));
+      }
+      for (final String id : new ArrayList<>(items.keySet())) {
+        if (!listedKeys.contains(id) && !changedSince(id, started)) {
+          delete(id);
+        }
+      }
+      for (final T resource : listed) {
+        if (!changedSince(key.apply(resource), started)) {
+          upsert(resource);
+        }
+      }
+    }
+
+    private boolean changedSince(final String id, final long started) {
+      final Long stamp = stamps.get(id);
+      return stamp != null && stamp > started;
+    }
+
+    private void fire(final Consumer<ResourceListener<? super T>> notification) {
+      for (final ResourceListener<? super T> listener : listeners) {
+        try {
+          notification.accept(listener);
+        } catch (RuntimeException e) {
+          log.warn("Listener {} failed", listener, e);
+        }
+      }
+    }
+  }
+
+  public static class Builder {
+
+    private final DockerClient client;
+    private Duration resyncInterval = Duration.ofMinutes(5);
+
+    private Builder(final DockerClient client) {
+      this.client = requireNonNull(client, "client");
+    }
+
+    /**
+     * Sets how often everything is listed again to heal missed events, five minutes by default.
+     *
+     * @param resyncInterval the interval, or null not to resync periodically
+     * @return Builder
+     */
+    public Builder resyncInterval(final Duration resyncInterval) {
+      this.resyncInterval = resyncInterval;
+      return this;
+    }
+
+    public DockerStateMirror build() {
+      return new DockerStateMirror(this);
+    }
+  }
+}
@@ -0,0 +1,954 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import org.mandas.docker.client.exceptions.DockerException;
+import org.mandas.docker.client.messages.Container;
+import org.mandas.docker.client.messages.ContainerChange;
+import org.mandas.docker.client.messages.ContainerConfig;
+import org.mandas.docker.client.messages.ContainerCreation;
+import org.mandas.docker.client.messages.ContainerExit;
+import org.mandas.docker.client.messages.ContainerInfo;
+import org.mandas.docker.client.messages.ContainerStats;
+import org.mandas.docker.client.messages.ContainerUpdate;
+import org.mandas.docker.client.messages.Distribution;
+import org.mandas.docker.client.messages.ExecCreation;
+import org.mandas.docker.client.messages.ExecState;
+import org.mandas.docker.client.messages.HostConfig;
+import org.mandas.docker.client.messages.Image;
+import org.mandas.docker.client.messages.ImageHistory;
+import org.mandas.docker.client.messages.ImageInfo;
+import org.mandas.docker.client.messages.ImageSearchResult;
+import org.mandas.docker.client.messages.Info;
+import org.mandas.docker.client.messages.Network;
+import org.mandas.docker.client.messages.NetworkConfig;
+import org.mandas.docker.client.messages.NetworkConnection;
+import org.mandas.docker.client.messages.NetworkCreation;
+import org.mandas.docker.client.messages.RegistryAuth;
+import org.mandas.docker.client.messages.RemovedImage;
+import org.mandas.docker.client.messages.ServiceCreateResponse;
+import org.mandas.docker.client.messages.TopResults;
+import org.mandas.docker.client.messages.Version;
+import org.mandas.docker.client.messages.Volume;
+import org.mandas.docker.client.messages.VolumeList;
+import org.mandas.docker.client.messages.swarm.Config;
+import org.mandas.docker.client.messages.swarm.ConfigCreateResponse;
+import org.mandas.docker.client.messages.swarm.ConfigSpec;
+import org.mandas.docker.client.messages.swarm.Node;
+import org.mandas.docker.client.messages.swarm.NodeInfo;
+import org.mandas.docker.client.messages.swarm.NodeSpec;
+import org.mandas.docker.client.messages.swarm.Secret;
+import org.mandas.docker.client.messages.swarm.SecretCreateResponse;
+import org.mandas.docker.client.messages.swarm.SecretSpec;
+import org.mandas.docker.client.messages.swarm.Service;
+import org.mandas.docker.client.messages.swarm.ServiceSpec;
+import org.mandas.docker.client.messages.swarm.Swarm;
+import org.mandas.docker.client.messages.swarm.SwarmInit;
+import org.mandas.docker.client.messages.swarm.SwarmJoin;
+import org.mandas.docker.client.messages.swarm.SwarmSpec;
+import org.mandas.docker.client.messages.swarm.Task;
+import org.mandas.docker.client.messages.swarm.Task.Criteria;
+import org.mandas.docker.client.messages.swarm.UnlockKey;
+
+/**
+ * A {@link DockerClient} forwarding every call to another client. Subclasses override the calls
+ * they decorate, e.g. to cache or to instrument them.
+ */
+public abstract class ForwardingDockerClient implements DockerClient {
+
+  private final DockerClient delegate;
+
+  protected ForwardingDockerClient(final DockerClient delegate) {
+    this.delegate = requireNonNull(delegate, "delegate");
+  }
+
+  /**
+   * Returns the client the calls are forwarded to.
+   *
+   * @return the delegate
+   */
+  protected DockerClient delegate() {
+    return delegate;
+  }
+
+  @Override
+  public String ping()
+      throws DockerException, InterruptedException {
+    return delegate().ping();
+  }
+
+  @Override
+  public Version version()
+      throws DockerException, InterruptedException {
+    return delegate().version();
+  }
+
+  @Override
+  public int auth(final RegistryAuth registryAuth)
+      throws DockerException, InterruptedException {
+    return delegate().auth(registryAuth);
+  }
+
+  @Override
+  public Info info()
+      throws DockerException, InterruptedException {
+    return delegate().info();
+  }
+
+  @Override
+  public List<Container> listContainers(final ListContainersParam... params)
+      throws DockerException, InterruptedException {
+    return delegate().listContainers(params);
+  }
+
+  @Override
+  public List<Image> listImages(final ListImagesParam... params)
+      throws DockerException, InterruptedException {
+    return delegate().listImages(params);
+  }
+
+  @Override
+  public ContainerInfo inspectContainer(final String containerId)
+      throws DockerException, InterruptedException {
+    return delegate().inspectContainer(containerId);
+  }
+
+  @Override
+  public ContainerCreation commitContainer(final String containerId, final String repo, final String tag, final ContainerConfig config, final String comment, final String author)
+      throws DockerException, InterruptedException {
+    return delegate().commitContainer(containerId, repo, tag, config, comment, author);
+  }
+
+  @Override
+  public ImageInfo inspectImage(final String image)
+      throws DockerException, InterruptedException {
+    return delegate().inspectImage(image);
+  }
+
+  @Override
+  public List<RemovedImage> removeImage(final String image)
+      throws DockerException, InterruptedException {
+    return delegate().removeImage(image);
+  }
+
+  @Override
+  public List<RemovedImage> removeImage(final String image, final boolean force, final boolean noPrune)
+      throws DockerException, InterruptedException {
+    return delegate().removeImage(image, force, noPrune);
+  }
+
+  @Override
+  public List<ImageSearchResult> searchImages(final String term)
+      throws DockerException, InterruptedException {
+    return delegate().searchImages(term);
+  }
+
+  @Override
+  public Set<String> load(final InputStream imagePayload)
+      throws DockerException, InterruptedException {
+    return delegate().load(imagePayload);
+  }
+
+  @Override
+  public Set<String> load(final InputStream imagePayload, final ProgressHandler handler)
+      throws DockerException, InterruptedException {
+    return delegate().load(imagePayload, handler);
+  }
+
+  @Override
+  public void create(final String image, final InputStream imagePayload)
+      throws DockerException, InterruptedException {
+    delegate().create(image, imagePayload);
+  }
+
+  @Override
+  public void create(final String image, final InputStream imagePayload, final ProgressHandler handler)
+      throws DockerException, InterruptedException {
+    delegate().create(image, imagePayload, handler);
+  }
+
+  @Override
+  public InputStream save(final String... images)
+      throws DockerException, IOException, InterruptedException {
+    return delegate().save(images);
+  }
+
+  @Override
+  public InputStream saveMultiple(final String... images)
+      throws DockerException, IOException, InterruptedException {
+    return delegate().saveMultiple(images);
+  }
+
+  @Override
+  public TopResults topContainer(final String containerId)
+      throws DockerException, InterruptedException {
+    return delegate().topContainer(containerId);
+  }
+
+  @Override
+  public TopResults topContainer(final String containerId, final String psArgs)
+      throws DockerException, InterruptedException {
+    return delegate().topContainer(containerId, psArgs);
+  }
+
+  @Override
+  public void pull(final String image)
+      throws DockerException, InterruptedException {
+    delegate().pull(image);
+  }
+
+  @Override
+  public void pull(final String image, final ProgressHandler handler)
+      throws DockerException, InterruptedException {
+    delegate().pull(image, handler);
+  }
+
+  @Override
+  public void pull(final String image, final RegistryAuth registryAuth)
+      throws DockerException, InterruptedException {
+    delegate().pull(image, registryAuth);
+  }
+
+  @Override
+  public void pull(final String image, final RegistryAuth registryAuth, final ProgressHandler handler)
+      throws DockerException, InterruptedException {
+    delegate().pull(image, registryAuth, handler);
+  }
+
+  @Override
+  public ImageInfo ensureImage(final String image) throws DockerException, InterruptedException {
+    return delegate().ensureImage(image);
+  }
+
+  @Override
+  public ImageInfo ensureImage(final String image, final ProgressHandler handler)
+      throws DockerException, InterruptedException {
+    return delegate().ensureImage(image, handler);
+  }
+
+  @Override
+  public PrefetchResult prefetch(final Collection<String> images) throws InterruptedException {
+    return delegate().prefetch(images);
+  }
+
+  @Override
+  public PrefetchResult prefetch(final Collection<String> images, final PrefetchOptions options)
+      throws InterruptedException {
+    return delegate().prefetch(images, options);
+  }
+
+  @Override
+  public void push(final String image)
+      throws DockerException, InterruptedException {
+    delegate().push(image);
+  }
+
+  @Override
+  public void push(final String image, final ProgressHandler handler)
+      throws DockerException, InterruptedException {
+    delegate().push(image, handler);
+  }
+
+  @Override
+  public void push(final String image, final RegistryAuth registryAuth)
+      throws DockerException, InterruptedException {
+    delegate().push(image, registryAuth);
+  }
+
+  @Override
+  public void push(final String image, final ProgressHandler handler, final RegistryAuth registryAuth)
+      throws DockerException, InterruptedException {
+    delegate().push(image, handler, registryAuth);
+  }
+
+  @Override
+  public void tag(final String image, final String name)
+      throws DockerException, InterruptedException {
+    delegate().tag(image, name);
+  }
+
+  @Override
+  public void tag(final String image, final String name, final boolean force)
+      throws DockerException, InterruptedException {
+    delegate().tag(image, name, force);
+  }
+
+  @Override
+  public String build(final Path directory, final BuildParam... params)
+      throws DockerException, InterruptedException, IOException {
+    return delegate().build(directory, params);
+  }
+
+  @Override
+  public String build(final Path directory, final String name, final BuildParam... params)
+      throws DockerException, InterruptedException, IOException {
+    return delegate().build(directory, name, params);
+  }
+
+  @Override
+  public String build(final Path directory, final ProgressHandler handler, final BuildParam... params)
+      throws DockerException, InterruptedException, IOException {
+    return delegate().build(directory, handler, params);
+  }
+
+  @Override
+  public String build(final Path directory, final String name, final ProgressHandler handler, final BuildParam... params)
+      throws DockerException, InterruptedException, IOException {
+    return delegate().build(directory, name, handler, params);
+  }
+
+  @Override
+  public String build(final Path directory, final String name, final String dockerfile, final ProgressHandler handler, final BuildParam... params)
+      throws DockerException, InterruptedException, IOException {
+    return delegate().build(directory, name, dockerfile, handler, params);
+  }
+
+  @Override
+  public List<ImageHistory> history(final String image)
+      throws InterruptedException, DockerException {
+    return delegate().history(image);
+  }
+
+  @Override
+  public ContainerCreation createContainer(final ContainerConfig config)
+      throws DockerException, InterruptedException {
+    return delegate().createContainer(config);
+  }
+
+  @Override
+  public ContainerCreation createContainer(final ContainerConfig config, final String name)
+      throws DockerException, InterruptedException {
+    return delegate().createContainer(config, name);
+  }
+
+  @Override
+  public void renameContainer(final String containerId, final String name)
+      throws DockerException, InterruptedException {
+    delegate().renameContainer(containerId, name);
+  }
+
+  @Override
+  public ContainerUpdate updateContainer(final String containerId, final HostConfig config)
+      throws DockerException, InterruptedException {
+    return delegate().updateContainer(containerId, config);
+  }
+
+  @Override
+  public void startContainer(final String containerId)
+      throws DockerException, InterruptedException {
+    delegate().startContainer(containerId);
+  }
+
+  @Override
+  public void stopContainer(final String containerId, final int secondsToWaitBeforeKilling)
+      throws DockerException, InterruptedException {
+    delegate().stopContainer(containerId, secondsToWaitBeforeKilling);
+  }
+
+  @Override
+  public void pauseContainer(final String containerId)
+      throws DockerException, InterruptedException {
+    delegate().pauseContainer(containerId);
+  }
+
+  @Override
+  public void unpauseContainer(final String containerId)
+      throws DockerException, InterruptedException {
+    delegate().unpauseContainer(containerId);
+  }
+
+  @Override
+  public void restartContainer(final String containerId)
+      throws DockerException, InterruptedException {
+    delegate().restartContainer(containerId);
+  }
+
+  @Override
+  public void restartContainer(final String containerId, final int secondsToWaitBeforeRestart)
+      throws DockerException, InterruptedException {
+    delegate().restartContainer(containerId, secondsToWaitBeforeRestart);
+  }
+
+  @Override
+  public ContainerExit waitContainer(final String containerId)
+      throws DockerException, InterruptedException {
+    return delegate().waitContainer(containerId);
+  }
+
+  @Override
+  public void killContainer(final String containerId)
+      throws DockerException, InterruptedException {
+    delegate().killContainer(containerId);
+  }
+
+  @Override
+  public void killContainer(final String containerId, final Signal signal)
+      throws DockerException, InterruptedException {
+    delegate().killContainer(containerId, signal);
+  }
+
+  @Override
+  public Distribution getDistribution(final String imageName)
+      throws DockerException, InterruptedException {
+    return delegate().getDistribution(imageName);
+  }
+
+  @Override
+  public void removeContainer(final String containerId)
+      throws DockerException, InterruptedException {
+    delegate().removeContainer(containerId);
+  }
+
+  @Override
+  public void removeContainer(final String containerId, final RemoveContainerParam... params)
+      throws DockerException, InterruptedException {
+    delegate().removeContainer(containerId, params);
+  }
+
+  @Override
+  public InputStream exportContainer(final String containerId)
+      throws DockerException, InterruptedException {
+    return delegate().exportContainer(containerId);
+  }
+
+  @Override
+  public InputStream archiveContainer(final String containerId, final String path)
+      throws DockerException, InterruptedException {
+    return delegate().archiveContainer(containerId, path);
+  }
+
+  @Override
+  public void copyFromContainer(final String containerId, final String path,
+                                final Path targetDirectory)
+      throws DockerException, InterruptedException, IOException {
+    delegate().copyFromContainer(containerId, path, targetDirectory);
+  }
+
+  @Override
+  public void copyFromContainer(final String containerId, final String path,
+                                final Path targetDirectory, final CopyFromContainerOptions options)
+      throws DockerException, InterruptedException, IOException {
+    delegate().copyFromContainer(containerId, path, targetDirectory, options);
+  }
+
+  @Override
+  public void copyToContainer(final Path directory, final String containerId, final String path)
+      throws DockerException, InterruptedException, IOException {
+    delegate().copyToContainer(directory, containerId, path);
+  }
+
+  @Override
+  public void copyToContainer(final InputStream tarStream, final String containerId, final String path)
+      throws DockerException, InterruptedException, IOException {
+    delegate().copyToContainer(tarStream, containerId, path);
+  }
+
+  @Override
+  public List<BulkOperationResult> startContainers(final Collection<String> containerIds,
+                                                   final int parallelism)
+      throws InterruptedException {
+    return delegate().startContainers(containerIds, parallelism);
+  }
+
+  @Override
+  public List<BulkOperationResult> stopContainers(final Collection<String> containerIds,
+                                                  final int secondsToWaitBeforeKilling,
+                                                  final int parallelism)
+      throws InterruptedException {
+    return delegate().stopContainers(containerIds, secondsToWaitBeforeKilling, parallelism);
+  }
+
+  @Override
+  public List<BulkOperationResult> killContainers(final Collection<String> containerIds,
+                                                  final Signal signal, final int parallelism)
+      throws InterruptedException {
+    return delegate().killContainers(containerIds, signal, parallelism);
+  }
+
+  @Override
+  public List<BulkOperationResult> pauseContainers(final Collection<String> containerIds,
+                                                   final int parallelism)
+      throws InterruptedException {
+    return delegate().pauseContainers(containerIds, parallelism);
+  }
+
+  @Override
+  public List<BulkOperationResult> unpauseContainers(final Collection<String> containerIds,
+                                                     final int parallelism)
+      throws InterruptedException {
+    return delegate().unpauseContainers(containerIds, parallelism);
+  }
+
+  @Override
+  public List<BulkOperationResult> removeContainers(final Collection<String> containerIds,
+                                                    final int parallelism,
+                                                    final RemoveContainerParam... params)
+      throws InterruptedException {
+    return delegate().removeContainers(containerIds, parallelism, params);
+  }
+
+  @Override
+  public List<BulkOperationResult> copyToContainers(final Path directory,
+                                                    final Collection<String> containerIds,
+                                                    final String path, final int parallelism)
+      throws InterruptedException, IOException {
+    return delegate().copyToContainers(directory, containerIds, path, parallelism);
+  }
+
+  @Override
+  public List<ContainerChange> inspectContainerChanges(final String containerId)
+      throws DockerException, InterruptedException {
+    return delegate().inspectContainerChanges(containerId);
+  }
+
+  @Override
+  public LogStream logs(final String containerId, final LogsParam... params)
+      throws DockerException, InterruptedException {
+    return delegate().logs(containerId, params);
+  }
+
+  @Override
+  public AggregatedLogStream aggregateLogs(final Collection<String> containerIds, final LogsParam... params)
+      throws DockerException, InterruptedException {
+    return delegate().aggregateLogs(containerIds, params);
+  }
+
+  @Override
+  public AggregatedLogStream aggregateLogs(final Collection<String> containerIds, final int maxBufferedBytes, final LogsParam... params)
+      throws DockerException, InterruptedException {
+    return delegate().aggregateLogs(containerIds, maxBufferedBytes, params);
+  }
+
+  @Override
+  public EventStream events(final EventsParam... params)
+      throws DockerException, InterruptedException {
+    return delegate().events(params);
+  }
+
+  @Override
+  public ExecCreation execCreate(final String containerId, final String[] cmd, final ExecCreateParam... params)
+      throws DockerException, InterruptedException {
+    return delegate().execCreate(containerId, cmd, params);
+  }
+
+  @Override
+  public LogStream execStart(final String execId, final ExecStartParameter... params)
+      throws DockerException, InterruptedException {
+    return delegate().execStart(execId, params);
+  }
+
+  @Override
+  public Swarm inspectSwarm()
+      throws DockerException, InterruptedException {
+    return delegate().inspectSwarm();
+  }
+
+  @Override
+  public String initSwarm(final SwarmInit swarmInit)
+      throws DockerException, InterruptedException {
+    return delegate().initSwarm(swarmInit);
+  }
+
+  @Override
+  public void joinSwarm(final SwarmJoin swarmJoin)
+      throws DockerException, InterruptedException {
+    delegate().joinSwarm(swarmJoin);
+  }
+
+  @Override
+  public void leaveSwarm()
+      throws DockerException, InterruptedException {
+    delegate().leaveSwarm();
+  }
+
+  @Override
+  public void leaveSwarm(final boolean force)
+      throws DockerException, InterruptedException {
+    delegate().leaveSwarm(force);
+  }
+
+  @Override
+  public void updateSwarm(final Long version, final boolean rotateWorkerToken, final boolean rotateManagerToken, final boolean rotateManagerUnlockKey, final SwarmSpec spec)
+      throws DockerException, InterruptedException {
+    delegate().updateSwarm(version, rotateWorkerToken, rotateManagerToken, rotateManagerUnlockKey, spec);
+  }
+
+  @Override
+  public void updateSwarm(final Long version, final boolean rotateWorkerToken, final boolean rotateManagerToken, final SwarmSpec spec)
+      throws DockerException, InterruptedException {
+    delegate().updateSwarm(version, rotateWorkerToken, rotateManagerToken, spec);
+  }
+
+  @Override
+  public void updateSwarm(final Long version, final boolean rotateWorkerToken, final SwarmSpec spec)
+      throws DockerException, InterruptedException {
+    delegate().updateSwarm(version, rotateWorkerToken, spec);
+  }
+
+  @Override
+  public void updateSwarm(final Long version, final SwarmSpec spec)
+      throws DockerException, InterruptedException {
+    delegate().updateSwarm(version, spec);
+  }
+
+  @Override
+  public UnlockKey unlockKey()
+      throws DockerException, InterruptedException {
+    return delegate().unlockKey();
+  }
+
+  @Override
+  public void unlock(final UnlockKey unlockKey)
+      throws DockerException, InterruptedException {
+    delegate().unlock(unlockKey);
+  }
+
+  @Override
+  public ServiceCreateResponse createService(final ServiceSpec spec)
+      throws DockerException, InterruptedException {
+    return delegate().createService(spec);
+  }
+
+  @Override
+  public ServiceCreateResponse createService(final ServiceSpec spec, final RegistryAuth registryAuth)
+      throws DockerException, InterruptedException {
+    return delegate().createService(spec, registryAuth);
+  }
+
+  @Override
+  public Service inspectService(final String serviceId)
+      throws DockerException, InterruptedException {
+    return delegate().inspectService(serviceId);
+  }
+
+  @Override
+  public void updateService(final String serviceId, final Long version, final ServiceSpec spec)
+      throws DockerException, InterruptedException {
+    delegate().updateService(serviceId, version, spec);
+  }
+
+  @Override
+  public void updateService(final String serviceId, final Long version, final ServiceSpec spec, final RegistryAuth registryAuth)
+      throws DockerException, InterruptedException {
+    delegate().updateService(serviceId, version, spec, registryAuth);
+  }
+
+  @Override
+  public List<Service> listServices()
+      throws DockerException, InterruptedException {
+    return delegate().listServices();
+  }
+
+  @Override
+  public List<Service> listServices(final Service.Criteria criteria)
+      throws DockerException, InterruptedException {
+    return delegate().listServices(criteria);
+  }
+
+  @Override
+  public void removeService(final String serviceId)
+      throws DockerException, InterruptedException {
+    delegate().removeService(serviceId);
+  }
+
+  @Override
+  public LogStream serviceLogs(final String serviceId, final LogsParam... params)
+      throws DockerException, InterruptedException {
+    return delegate().serviceLogs(serviceId, params);
+  }
+
+  @Override
+  public Task inspectTask(final String taskId)
+      throws DockerException, InterruptedException {
+    return delegate().inspectTask(taskId);
+  }
+
+  @Override
+  public List<Task> listTasks()
+      throws DockerException, InterruptedException {
+    return delegate().listTasks();
+  }
+
+  @Override
+  public List<Task> listTasks(final Task.Criteria criteria)
+      throws DockerException, InterruptedException {
+    return delegate().listTasks(criteria);
+  }
+
+  @Override
+  public void execResizeTty(final String execId, final Integer height, final Integer width)
+      throws DockerException, InterruptedException {
+    delegate().execResizeTty(execId, height, width);
+  }
+
+  @Override
+  public ExecState execInspect(final String execId)
+      throws DockerException, InterruptedException {
+    return delegate().execInspect(execId);
+  }
+
+  @Override
+  public ContainerStats stats(final String containerId)
+      throws DockerException, InterruptedException {
+    return delegate().stats(containerId);
+  }
+
+  @Override
+  public StatsStream statsStream(final String containerId)
+      throws DockerException, InterruptedException {
+    return delegate().statsStream(containerId);
+  }
+
+  @Override
+  public StatsStream statsStream(final String containerId, final int decimation)
+      throws DockerException, InterruptedException {
+    return delegate().statsStream(containerId, decimation);
+  }
+
+  @Override
+  public void statsStream(final String containerId, final int decimation, final StatsHandler handler)
+      throws DockerException, InterruptedException {
+    delegate().statsStream(containerId, decimation, handler);
+  }
+
+  @Override
+  public void resizeTty(final String containerId, final Integer height, final Integer width)
+      throws DockerException, InterruptedException {
+    delegate().resizeTty(containerId, height, width);
+  }
+
+  @Override
+  public List<Network> listNetworks(final ListNetworksParam... params)
+      throws DockerException, InterruptedException {
+    return delegate().listNetworks(params);
+  }
+
+  @Override
+  public Network inspectNetwork(final String networkId)
+      throws DockerException, InterruptedException {
+    return delegate().inspectNetwork(networkId);
+  }
+
+  @Override
+  public NetworkCreation createNetwork(final NetworkConfig networkConfig)
+      throws DockerException, InterruptedException {
+    return delegate().createNetwork(networkConfig);
+  }
+
+  @Override
+  public void removeNetwork(final String networkId)
+      throws DockerException, InterruptedException {
+    delegate().removeNetwork(networkId);
+  }
+
+  @Override
+  public void connectToNetwork(final String containerId, final String networkId)
+      throws DockerException, InterruptedException {
+    delegate().connectToNetwork(containerId, networkId);
+  }
+
+  @Override
+  public void connectToNetwork(final String networkId, final NetworkConnection networkConnection)
+      throws DockerException, InterruptedException {
+    delegate().connectToNetwork(networkId, networkConnection);
+  }
+
+  @Override
+  public void disconnectFromNetwork(final String containerId, final String networkId)
+      throws DockerException, InterruptedException {
+    delegate().disconnectFromNetwork(containerId, networkId);
+  }
+
+  @Override
+  public void disconnectFromNetwork(final String containerId, final String networkId, final boolean force)
+      throws DockerException, InterruptedException {
+    delegate().disconnectFromNetwork(containerId, networkId, force);
+  }
+
+  @Override
+  public void close() {
+    delegate().close();
+  }
+
+  @Override
+  public AsyncDockerClient async() {
+    return delegate().async();
+  }
+
+  @Override
+  public LogStream attachContainer(final String containerId, final AttachParameter... params)
+      throws DockerException, InterruptedException {
+    return delegate().attachContainer(containerId, params);
+  }
+
+  @Override
+  public String getHost() {
+    return delegate().getHost();
+  }
+
+  @Override
+  public Volume createVolume()
+      throws DockerException, InterruptedException {
+    return delegate().createVolume();
+  }
+
+  @Override
+  public Volume createVolume(final Volume volume)
+      throws DockerException, InterruptedException {
+    return delegate().createVolume(volume);
+  }
+
+  @Override
+  public Volume inspectVolume(final String volumeName)
+      throws DockerException, InterruptedException {
+    return delegate().inspectVolume(volumeName);
+  }
+
+  @Override
+  public void removeVolume(final Volume volume)
+      throws DockerException, InterruptedException {
+    delegate().removeVolume(volume);
+  }
+
+  @Override
+  public void removeVolume(final String volumeName)
+      throws DockerException, InterruptedException {
+    delegate().removeVolume(volumeName);
+  }
+
+  @Override
+  public VolumeList listVolumes(final ListVolumesParam... params)
+      throws DockerException, InterruptedException {
+    return delegate().listVolumes(params);
+  }
+
+  @Override
+  public List<Secret> listSecrets()
+      throws DockerException, InterruptedException {
+    return delegate().listSecrets();
+  }
+
+  @Override
+  public List<Secret> listSecrets(final Secret.Criteria criteria)
+      throws DockerException, InterruptedException {
+    return delegate().listSecrets(criteria);
+  }
+
+  @Override
+  public SecretCreateResponse createSecret(final SecretSpec secret)
+      throws DockerException, InterruptedException {
+    return delegate().createSecret(secret);
+  }
+
+  @Override
+  public Secret inspectSecret(final String secretId)
+      throws DockerException, InterruptedException {
+    return delegate().inspectSecret(secretId);
+  }
+
+  @Override
+  public void deleteSecret(final String secretId)
+      throws DockerException, InterruptedException {
+    delegate().deleteSecret(secretId);
+  }
+
+  @Override
+  public List<Config> listConfigs()
+      throws DockerException, InterruptedException {
+    return delegate().listConfigs();
+  }
+
+  @Override
+  public List<Config> listConfigs(final Config.Criteria criteria)
+      throws DockerException, InterruptedException {
+    return delegate().listConfigs(criteria);
+  }
+
+  @Override
+  public ConfigCreateResponse createConfig(final ConfigSpec config)
+      throws DockerException, InterruptedException {
+    return delegate().createConfig(config);
+  }
+
+  @Override
+  public Config inspectConfig(final String configId)
+      throws DockerException, InterruptedException {
+    return delegate().inspectConfig(configId);
+  }
+
+  @Override
+  public void deleteConfig(final String configId)
+      throws DockerException, InterruptedException {
+    delegate().deleteConfig(configId);
+  }
+
+  @Override
+  public void updateConfig(final String configId, final Long version, final ConfigSpec configSpec)
+      throws DockerException, InterruptedException {
+    delegate().updateConfig(configId, version, configSpec);
+  }
+
+  @Override
+  public List<Node> listNodes()
+      throws DockerException, InterruptedException {
+    return delegate().listNodes();
+  }
+
+  @Override
+  public List<Node> listNodes(final Node.Criteria criteria)
+      throws DockerException, InterruptedException {
+    return delegate().listNodes(criteria);
+  }
+
+  @Override
+  public NodeInfo inspectNode(final String nodeId)
+      throws DockerException, InterruptedException {
+    return delegate().inspectNode(nodeId);
+  }
+
+  @Override
+  public void updateNode(final String nodeId, final Long version, final NodeSpec nodeSpec)
+      throws DockerException, InterruptedException {
+    delegate().updateNode(nodeId, version, nodeSpec);
+  }
+
+  @Override
+  public void deleteNode(final String nodeId)
+      throws DockerException, InterruptedException {
+    delegate().deleteNode(nodeId);
+  }
+
+  @Override
+  public void deleteNode(final String nodeId, final boolean force)
+      throws DockerException, InterruptedException {
+    delegate().deleteNode(nodeId, force);
+  }
+
+}
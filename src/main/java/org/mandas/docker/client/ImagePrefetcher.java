@@ -0,0 +1,186 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import org.mandas.docker.client.DockerClient.ListImagesParam;
+import org.mandas.docker.client.PrefetchResult.ImageResult;
+import org.mandas.docker.client.PrefetchResult.Status;
+import org.mandas.docker.client.exceptions.DockerException;
+import org.mandas.docker.client.messages.Image;
+
+/**
+ * Pulls several images concurrently for {@link DockerClient#prefetch(Collection, PrefetchOptions)}.
+ *
+ * <p>The first image of every repository is started first, in the order given, then the further
+ * tags of every repository one after the other, each once the previous one is done. Pulls of 
+ * different repositories run side by side, while the further tags of a repository, which usually
+ * share most of their layers, find the layers of the earlier ones present. The daemon doesn't 
+ * report the layers of a remote image, so this is all the ordering can rely on.</p>
+ */
+class ImagePrefetcher {
+
+  private final DockerClient client;
+  private final PrefetchOptions options;
+  private final Semaphore pulls;
+  private final Map<String, Semaphore> registryPulls = new HashMap<>();
+
+  ImagePrefetcher(final DockerClient client, final PrefetchOptions options) {
+    this.client = client;
+    this.options = options;
+    this.pulls = new Semaphore(options.maxConcurrentPulls(), true);
+  }
+
+  PrefetchResult prefetch(final Collection<String> images) throws InterruptedException {
+    final long start = System.nanoTime();
+    final Map<String, ImageResult> results = new ConcurrentHashMap<>();
+    final List<Future<?>> futures = new ArrayList<>();
+    final CountDownLatch started = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    try {
+      // the permits of the first images are taken here, so that they are granted in order
+      for (final List<String> tags : repositories(images)) {
+        final Semaphore registry = registryPulls.computeIfAbsent(
+            new ImageRef(tags.get(0)).getRegistryName(),
+            name -> new Semaphore(options.maxConcurrentPullsPerRegistry(), true));
+        acquire(registry);
+        futures.add(executor.submit(() -> prefetch(tags, registry, started, start, results)));
+      }
+      started.countDown();
+      for (final Future<?> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          throw new IllegalStateException(e.getCause());
+        }
+      }
+      final List<ImageResult> ordered = new ArrayList<>();
+      for (final String image : images) {
+        ordered.add(results.get(image));
+      }
+      return new PrefetchResult(ordered, Duration.ofNanos(System.nanoTime() - start));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * @return the distinct images grouped by repository, in the order the repositories and their 
+   *     tags were first given
+   */
+  static List<List<String>> repositories(final Collection<String> images) {
+    final Map<String, List<String>> repositories = new LinkedHashMap<>();
+    for (final String image : new LinkedHashSet<>(images)) {
+      repositories.computeIfAbsent(repository(image), repository -> new ArrayList<>()).add(image);
+    }
+    return new ArrayList<>(repositories.values());
+  }
+
+  private static String repository(final String image) {
+    final String name = new ImageRef(image).getNormalizedName();
+    final int digest = name.indexOf('@');
+    return digest >= 0 ? name.substring(0, digest) : name.substring(0, name.lastIndexOf(':'));
+  }
+
+  private void acquire(final Semaphore registry) throws InterruptedException {
+    registry.acquire();
+    try {
+      pulls.acquire();
+    } catch (InterruptedException e) {
+      registry.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Prefetches the tags of a repository one after the other, the permits of the first one being
+   * already held. The further tags wait until the first image of every repository has started.
+   */
+  private void prefetch(final List<String> tags, final Semaphore registry,
+                        final CountDownLatch started, final long start,
+                        final Map<String, ImageResult> results) {
+    for (int i = 0; i < tags.size(); i++) {
+      final String image = tags.get(i);
+      ImageResult result;
+      try {
+        if (i > 0) {
+          started.await();
+          acquire(registry);
+        }
+        try {
+          result = result(image, start, isPresent(image) ? Status.PRESENT : pull(image), null);
+        } finally {
+          pulls.release();
+          registry.release();
+        }
+      } catch (DockerException | RuntimeException e) {
+        result = result(image, start, Status.FAILED, e);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        result = result(image, start, Status.FAILED, e);
+      }
+      if (options.listener() != null) {
+        options.listener().accept(result);
+      }
+      results.put(image, result);
+    }
+  }
+
+  private boolean isPresent(final String image) throws DockerException, InterruptedException {
+    final List<Image> present = client.listImages(ListImagesParam.byName(image));
+    if (present.isEmpty()) {
+      return false;
+    }
+    if (image.indexOf('@') >= 0 || !options.verifyDigests()) {
+      return true;
+    }
+    final String digest = "@" + client.getDistribution(image).descriptor().digest();
+    return present.stream()
+        .filter(candidate -> candidate.repoDigests() != null)
+        .anyMatch(candidate -> candidate.repoDigests().stream().anyMatch(d -> d.endsWith(digest)));
+  }
+
+  private Status pull(final String image) throws DockerException, InterruptedException {
+    client.pull(image, options.handler() != null
+        ? options.handler() : new AggregatingProgressHandler(new LoggingPullHandler(image)));
+    return Status.PULLED;
+  }
+
+  private static ImageResult result(final String image, final long start, final Status status,
+                                    final Exception exception) {
+    return new ImageResult(image, status, Duration.ofNanos(System.nanoTime() - start), exception);
+  }
+}
@@ -83,6 +83,30 @@ public class ImageRef {
     return registryUrl;
   }
 
+  /**
+   * The name of the image as the daemon resolves it, so that different spellings of the same
+   * image are equal: images of Docker Hub get their registry and their {@code library/} 
+   * namespace, and untagged images get the {@code latest} tag.
+   *
+   * @return the normalized name, e.g. {@code docker.io/library/busybox:latest}
+   */
+  public String getNormalizedName() {
+    String name = image;
+    if (DEFAULT_REGISTRY_URL.equals(registryUrl)) {
+      if (name.startsWith(registry + "/")) {
+        name = name.substring(registry.length() + 1);
+      }
+      if (name.indexOf('/') < 0) {
+        name = "library/" + name;
+      }
+      name = DEFAULT_REGISTRY + "/" + name;
+    }
+    if (name.indexOf('@') >= 0) {
+      return name;
+    }
+    return name + ":" + (tag != null ? tag : "latest");
+  }
+
   @Override
   public String toString() {
 	return "ImageRef{"
@@ -27,7 +27,8 @@ import java.nio.ByteBuffer;
 
 public class LogMessage {
 
-  final Stream stream;
+  // not final: a LogReader reusing its buffers updates the same message for every frame
+  Stream stream;
   final ByteBuffer content;
 
   public LogMessage(final int streamId, final ByteBuffer content) {
@@ -49,6 +50,18 @@ public class LogMessage {
     return content.asReadOnlyBuffer();
   }
 
+  /**
+   * Copies this message to a buffer of its own. Messages of a {@link LogReader} reusing its
+   * buffers must be copied in order to be retained after the next message is read.
+   *
+   * @return a copy of this message
+   */
+  public LogMessage copy() {
+    final ByteBuffer copy = ByteBuffer.allocate(content.remaining());
+    copy.put(content.duplicate()).flip();
+    return new LogMessage(stream, copy);
+  }
+
   public enum Stream {
     STDIN(0),
     STDOUT(1),
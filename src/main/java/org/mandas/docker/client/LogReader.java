@@ -35,49 +35,92 @@ public class LogReader implements Closeable {
   public static final int HEADER_SIZE = 8;
   public static final int FRAME_SIZE_OFFSET = 4;
 
+  private final boolean reuseBuffers;
+  private final byte[] headerBytes = new byte[HEADER_SIZE];
+  private final ByteBuffer header = ByteBuffer.wrap(headerBytes);
+  private byte[] frameBytes = new byte[0];
+  private ByteBuffer frame = ByteBuffer.wrap(frameBytes);
+  private LogMessage message;
+
   public LogReader(final InputStream stream) {
+    this(stream, false);
+  }
+
+  /**
+   * Creates a reader for the multiplexed stream of a container.
+   *
+   * <p>When {@code reuseBuffers} is set, frames are decoded into a buffer owned by the reader and
+   * the same {@link LogMessage} instance is returned on every call. A returned message is
+   * therefore only valid until the next call to {@link #nextMessage()}; use
+   * {@link LogMessage#copy()} to retain it for longer.
+   *
+   * @param stream the stream to read from
+   * @param reuseBuffers whether to decode every frame into the same buffer
+   */
+  public LogReader(final InputStream stream, final boolean reuseBuffers) {
     this.stream = stream;
+    this.reuseBuffers = reuseBuffers;
   }
 
   public LogMessage nextMessage() throws IOException {
     stream.mark(HEADER_SIZE);
 
     // Read header
-    final byte[] headerBytes = new byte[HEADER_SIZE];
-    final int n = readAllBytes(headerBytes);
+    final int n = readAllBytes(headerBytes, HEADER_SIZE);
     if (n == 0) {
       return null;
     }
-    final ByteBuffer header = ByteBuffer.wrap(headerBytes);
-    int streamId = header.get();
+    int streamId = header.get(0);
     final int idZ = header.getInt(0);
 
     // Read frame
-    final byte[] frame;
+    final int frameSize;
     // Header format is : {STREAM_TYPE, 0, 0, 0, SIZE1, SIZE2, SIZE3, SIZE4}
     if (idZ == 0 || idZ == 0x01000000 || idZ == 0x02000000) {
-      header.position(FRAME_SIZE_OFFSET);
-      final int frameSize = header.getInt();
-      frame = new byte[frameSize];
+      frameSize = header.getInt(FRAME_SIZE_OFFSET);
     } else {
       stream.reset();
       streamId = Stream.STDOUT.id();
-      frame = new byte[stream.available()];
+      frameSize = stream.available();
     }
 
-    int total = readAllBytes(frame);
+    final byte[] frame = frameBuffer(frameSize);
+    int total = readAllBytes(frame, frameSize);
     
-    if (total < frame.length) {
-      throw new EOFException("EOF before reading " + frame.length + " bytes. " + total + " read instead.");
+    if (total < frameSize) {
+      throw new EOFException("EOF before reading " + frameSize + " bytes. " + total + " read instead.");
     }
     
-    return new LogMessage(streamId, ByteBuffer.wrap(frame));
+    if (!reuseBuffers) {
+      return new LogMessage(streamId, ByteBuffer.wrap(frame));
+    }
+
+    this.frame.clear().limit(frameSize);
+    if (message == null) {
+      message = new LogMessage(streamId, this.frame);
+    } else {
+      message.stream = Stream.of(streamId);
+    }
+    return message;
+  }
+
+  private byte[] frameBuffer(final int frameSize) {
+    if (!reuseBuffers) {
+      return new byte[frameSize];
+    }
+    if (frameBytes.length < frameSize) {
+      // grow geometrically, so that a stream of increasing frames settles quickly
+      frameBytes = new byte[Math.max(frameSize, frameBytes.length * 2)];
+      frame = ByteBuffer.wrap(frameBytes);
+      message = null;
+    }
+    return frameBytes;
   }
 
-  private int readAllBytes(byte[] buf) throws IOException {
-	int total = 0;
-    while (total < buf.length) {
-      int result = stream.read(buf, total, buf.length - total);
+  private int readAllBytes(byte[] buf, int length) throws IOException {
+    int total = 0;
+    while (total < length) {
+      int result = stream.read(buf, total, length - total);
       if (result == -1) {
         break;
       }
@@ -25,6 +25,8 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
 
 public interface LogStream extends Iterator<LogMessage>, Closeable {
 
@@ -84,4 +86,34 @@ public interface LogStream extends Iterator<LogMessage>, Closeable {
    */
   void attach(OutputStream stdout, OutputStream stderr) throws IOException;
 
+  /**
+   * Pushes the messages of the {@link LogStream} to a {@link Flow.Subscriber} on a virtual thread.
+   *
+   * @param subscriber the subscriber receiving the messages
+   * @see #subscribe(Flow.Subscriber, Executor)
+   */
+  default void subscribe(Flow.Subscriber<? super LogMessage> subscriber) {
+    subscribe(subscriber, Thread::startVirtualThread);
+  }
+
+  /**
+   * Pushes the messages of the {@link LogStream} to a {@link Flow.Subscriber}.
+   *
+   * <p>A frame is only read from the underlying connection once the subscriber has requested it,
+   * so a slow subscriber holds back the container instead of buffering its output in memory.
+   * Messages are read and delivered by a task submitted to {@code executor}, which returns as 
+   * soon as the outstanding demand is exhausted and is resubmitted by the next
+   * {@link Flow.Subscription#request(long)}. While there is demand, the task blocks until the
+   * next frame arrives, so a followed stream holds a thread of {@code executor} for as long as
+   * its container is idle; many followed streams need as many threads, such as virtual ones. The
+   * stream is closed when it is exhausted, fails or the subscription is cancelled.</p>
+   *
+   * <p>A stream supports a single subscriber and should not be iterated while subscribed to. 
+   * If the stream reuses its buffers, a message is only valid until {@code onNext} returns.</p>
+   *
+   * @param subscriber the subscriber receiving the messages
+   * @param executor the executor reading and delivering the messages
+   */
+  void subscribe(Flow.Subscriber<? super LogMessage> subscriber, Executor executor);
+
 }
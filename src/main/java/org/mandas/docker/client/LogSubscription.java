@@ -0,0 +1,162 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pushes the frames of a {@link DefaultLogStream} to a {@link Flow.Subscriber}, reading the
+ * next frame only when the subscriber has signalled demand for it. Frames are read and delivered
+ * on a task of the given executor, which is released whenever the outstanding demand drops to
+ * zero. While there is demand, the task blocks on the connection until the next frame arrives.
+ * Every signal to the subscriber, including the error of an invalid request, is issued by the
+ * task, so that signals are never concurrent.
+ */
+class LogSubscription implements Flow.Subscription, Runnable {
+
+  private static final Logger log = LoggerFactory.getLogger(LogSubscription.class);
+
+  private final DefaultLogStream stream;
+  private final Flow.Subscriber<? super LogMessage> subscriber;
+  private final Executor executor;
+  private final AtomicLong demand = new AtomicLong();
+  // number of drain requests since the running task last checked; the task only exits at zero
+  private final AtomicInteger pending = new AtomicInteger();
+  private volatile boolean done;
+  // an invalid request, signalled by the draining task
+  private volatile Throwable invalid;
+
+  LogSubscription(final DefaultLogStream stream, final Flow.Subscriber<? super LogMessage> subscriber,
+                  final Executor executor) {
+    this.stream = stream;
+    this.subscriber = subscriber;
+    this.executor = executor;
+  }
+
+  @Override
+  public void request(final long n) {
+    if (done) {
+      return;
+    }
+    if (n <= 0) {
+      if (invalid == null) {
+        invalid = new IllegalArgumentException("Non-positive subscription request: " + n);
+      }
+      // unblocks a pending read of the draining task, which then signals the error
+      closeQuietly();
+      drain();
+      return;
+    }
+    demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+    drain();
+  }
+
+  @Override
+  public void cancel() {
+    if (!done) {
+      done = true;
+      // unblocks a pending read of the draining task
+      closeQuietly();
+    }
+  }
+
+  private void drain() {
+    if (pending.getAndIncrement() != 0) {
+      return;
+    }
+    try {
+      executor.execute(this);
+    } catch (RejectedExecutionException e) {
+      fail(e);
+    }
+  }
+
+  @Override
+  public void run() {
+    int missed = 1;
+    do {
+      while (!done) {
+        if (invalid != null) {
+          fail(invalid);
+          return;
+        }
+        if (demand.get() == 0) {
+          break;
+        }
+        final LogMessage message;
+        try {
+          message = stream.poll();
+        } catch (IOException | RuntimeException e) {
+          fail(invalid != null ? invalid : e);
+          return;
+        }
+        if (message == null) {
+          complete();
+          return;
+        }
+        if (demand.get() != Long.MAX_VALUE) {
+          demand.decrementAndGet();
+        }
+        try {
+          subscriber.onNext(message);
+        } catch (RuntimeException e) {
+          log.warn("Log subscriber failed, cancelling its subscription", e);
+          cancel();
+          return;
+        }
+      }
+      missed = pending.addAndGet(-missed);
+    } while (missed != 0);
+  }
+
+  private void complete() {
+    if (!done) {
+      done = true;
+      closeQuietly();
+      subscriber.onComplete();
+    }
+  }
+
+  private void fail(final Throwable t) {
+    // errors caused by cancelling the subscription are not signalled
+    if (!done) {
+      done = true;
+      closeQuietly();
+      subscriber.onError(t);
+    }
+  }
+
+  private void closeQuietly() {
+    try {
+      stream.close();
+    } catch (IOException e) {
+      log.debug("Failed to close log stream", e);
+    }
+  }
+}
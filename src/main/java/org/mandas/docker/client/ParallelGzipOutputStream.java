@@ -0,0 +1,186 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A gzip stream compressing blocks of its input on several threads, the way pigz does.
+ *
+ * <p>Every block becomes an independent gzip member and the members are written in order, which
+ * is a valid gzip stream for any multi-member aware reader, such as dockerd or
+ * {@link java.util.zip.GZIPInputStream}. Compressed blocks are slightly larger than a single 
+ * stream as no dictionary is shared between them. At most two blocks per thread are in flight, 
+ * so memory use is bounded by the block size and the thread count.</p>
+ */
+class ParallelGzipOutputStream extends OutputStream {
+
+  static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+  private static final byte[] HEADER = {
+      0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff
+  };
+
+  private final OutputStream out;
+  private final int blockSize;
+  private final int level;
+  private final int maxInFlight;
+  private final ForkJoinPool pool;
+  private final ArrayDeque<Future<byte[]>> inFlight = new ArrayDeque<>();
+  private byte[] block;
+  private int length;
+  private boolean written;
+  private boolean closed;
+
+  ParallelGzipOutputStream(final OutputStream out, final int blockSize, final int threads) {
+    this(out, blockSize, threads, Deflater.DEFAULT_COMPRESSION);
+  }
+
+  ParallelGzipOutputStream(final OutputStream out, final int blockSize, final int threads,
+                           final int level) {
+    if (blockSize <= 0 || threads <= 0) {
+      throw new IllegalArgumentException("blockSize and threads must be positive");
+    }
+    this.out = out;
+    this.blockSize = blockSize;
+    this.level = level;
+    this.maxInFlight = threads * 2;
+    this.pool = new ForkJoinPool(threads);
+    this.block = new byte[blockSize];
+  }
+
+  @Override
+  public void write(final int b) throws IOException {
+    block[length++] = (byte) b;
+    if (length == blockSize) {
+      submit();
+    }
+  }
+
+  @Override
+  public void write(final byte[] b, final int off, final int len) throws IOException {
+    int offset = off;
+    int remaining = len;
+    while (remaining > 0) {
+      final int chunk = Math.min(remaining, blockSize - length);
+      System.arraycopy(b, offset, block, length, chunk);
+      length += chunk;
+      offset += chunk;
+      remaining -= chunk;
+      if (length == blockSize) {
+        submit();
+      }
+    }
+  }
+
+  /**
+   * Writes the members compressed so far. The block being filled is not compressed early, as
+   * that would shrink the members.
+   */
+  @Override
+  public void flush() throws IOException {
+    while (!inFlight.isEmpty()) {
+      writeNext();
+    }
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      if (length > 0 || !written) {
+        submit();
+      }
+      flush();
+    } finally {
+      pool.shutdownNow();
+      out.close();
+    }
+  }
+
+  private void submit() throws IOException {
+    final byte[] input = block;
+    final int size = length;
+    inFlight.add(pool.submit(() -> compress(input, size, level)));
+    written = true;
+    block = new byte[blockSize];
+    length = 0;
+    while (inFlight.size() >= maxInFlight) {
+      writeNext();
+    }
+  }
+
+  private void writeNext() throws IOException {
+    try {
+      out.write(inFlight.remove().get());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while compressing");
+    } catch (ExecutionException e) {
+      throw new IOException("Failed to compress block", e.getCause());
+    }
+  }
+
+  static byte[] compress(final byte[] input, final int length, final int level) {
+    final Deflater deflater = new Deflater(level, true);
+    try {
+      deflater.setInput(input, 0, length);
+      deflater.finish();
+      // deflate may expand incompressible input slightly
+      byte[] output = new byte[HEADER.length + length + length / 1000 + 64 + 8];
+      System.arraycopy(HEADER, 0, output, 0, HEADER.length);
+      int position = HEADER.length;
+      while (!deflater.finished()) {
+        if (position == output.length - 8) {
+          output = Arrays.copyOf(output, output.length * 2);
+        }
+        position += deflater.deflate(output, position, output.length - 8 - position);
+      }
+      final CRC32 crc = new CRC32();
+      crc.update(input, 0, length);
+      writeIntLE(output, position, (int) crc.getValue());
+      writeIntLE(output, position + 4, length);
+      return Arrays.copyOf(output, position + 8);
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static void writeIntLE(final byte[] buffer, final int offset, final int value) {
+    buffer[offset] = (byte) value;
+    buffer[offset + 1] = (byte) (value >>> 8);
+    buffer[offset + 2] = (byte) (value >>> 16);
+    buffer[offset + 3] = (byte) (value >>> 24);
+  }
+}
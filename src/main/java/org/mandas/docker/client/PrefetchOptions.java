@@ -0,0 +1,108 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import java.util.function.Consumer;
+
+/**
+ * How {@link DockerClient#prefetch(java.util.Collection, PrefetchOptions)} pulls images.
+ *
+ * @param maxConcurrentPulls the maximum number of images pulled at a time
+ * @param maxConcurrentPullsPerRegistry the maximum number of images pulled at a time from the
+ *     same registry
+ * @param verifyDigests whether an image present under a tag is compared with the registry, and 
+ *     pulled if the tag has moved; if not, any image present is skipped
+ * @param handler the handler receiving the progress of every pull, called from several threads at
+ *     once, or null to log a summary of every pull
+ * @param listener notified as each image is done, or null
+ */
+public record PrefetchOptions(
+  int maxConcurrentPulls,
+  int maxConcurrentPullsPerRegistry,
+  boolean verifyDigests,
+  ProgressHandler handler,
+  Consumer<PrefetchResult.ImageResult> listener
+) {
+
+  public PrefetchOptions {
+    if (maxConcurrentPulls < 1 || maxConcurrentPullsPerRegistry < 1) {
+      throw new IllegalArgumentException("Concurrent pulls must be positive");
+    }
+  }
+
+  /**
+   * Four pulls at a time, two per registry, with digests verified.
+   *
+   * @return the default options
+   */
+  public static PrefetchOptions defaults() {
+    return builder().build();
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public static class Builder {
+    private int maxConcurrentPulls = 4;
+    private int maxConcurrentPullsPerRegistry = 2;
+    private boolean verifyDigests = true;
+    private ProgressHandler handler;
+    private Consumer<PrefetchResult.ImageResult> listener;
+
+    public Builder maxConcurrentPulls(int maxConcurrentPulls) {
+      this.maxConcurrentPulls = maxConcurrentPulls;
+      return this;
+    }
+
+    public Builder maxConcurrentPullsPerRegistry(int maxConcurrentPullsPerRegistry) {
+      this.maxConcurrentPullsPerRegistry = maxConcurrentPullsPerRegistry;
+      return this;
+    }
+
+    public Builder verifyDigests(boolean verifyDigests) {
+      this.verifyDigests = verifyDigests;
+      return this;
+    }
+
+    /**
+     * Sets the handler receiving the progress messages of all the pulls, from several threads at
+     * once.
+     * 
+     * @param handler the progress handler
+     * @return Builder
+     */
+    public Builder handler(ProgressHandler handler) {
+      this.handler = handler;
+      return this;
+    }
+
+    public Builder listener(Consumer<PrefetchResult.ImageResult> listener) {
+      this.listener = listener;
+      return this;
+    }
+
+    public PrefetchOptions build() {
+      return new PrefetchOptions(maxConcurrentPulls, maxConcurrentPullsPerRegistry, verifyDigests,
+          handler, listener);
+    }
+  }
+}
@@ -0,0 +1,70 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * The outcome of {@link DockerClient#prefetch(java.util.Collection, PrefetchOptions)}.
+ *
+ * @param images the result of every image, in the order they were given
+ * @param elapsed the time the whole prefetch took
+ */
+public record PrefetchResult(
+  List<ImageResult> images,
+  Duration elapsed
+) {
+
+  public enum Status {
+    /** The image was pulled. */
+    PULLED,
+    /** The image was present already, and was not pulled. */
+    PRESENT,
+    /** The image could not be pulled. */
+    FAILED
+  }
+
+  /**
+   * @param image the image, as it was given
+   * @param status what became of the image
+   * @param elapsed the time the image took, including waiting for its turn
+   * @param exception the exception the image failed with, or null
+   */
+  public record ImageResult(
+    String image,
+    Status status,
+    Duration elapsed,
+    Exception exception
+  ) {}
+
+  public long count(Status status) {
+    return images.stream().filter(image -> image.status() == status).count();
+  }
+
+  /**
+   * @return the number of images pulled per second over the whole prefetch
+   */
+  public double pullsPerSecond() {
+    final double seconds = elapsed.toNanos() / 1e9;
+    return seconds > 0 ? count(Status.PULLED) / seconds : 0;
+  }
+}
@@ -0,0 +1,159 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+
+import org.mandas.docker.client.exceptions.DockerException;
+import org.mandas.docker.client.messages.ProgressMessage;
+
+/**
+ * Shares a pull among the threads asking for the same image at the same time.
+ *
+ * <p>The first thread to pull an image under a key leads the pull. The threads asking for the 
+ * same key while it is in flight follow it: their handlers receive the progress messages from 
+ * then on, and they return or throw when the leader does. A follower whose handler throws gets 
+ * its handler's exception without disturbing the pull. If the leader is interrupted, or its own 
+ * call context is cancelled or expires, the followers start over and one of them leads a new 
+ * pull.</p>
+ */
+class PullFlights {
+
+  /**
+   * Pulls an image, reporting its progress to the given handler.
+   */
+  @FunctionalInterface
+  interface Pull {
+    void pull(ProgressHandler handler) throws DockerException, InterruptedException;
+  }
+
+  private final ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<>();
+
+  void pull(final String key, final ProgressHandler handler, final Pull pull)
+      throws DockerException, InterruptedException {
+    while (true) {
+      final Flight flight = new Flight(handler);
+      final Flight existing = flights.putIfAbsent(key, flight);
+      if (existing == null) {
+        lead(key, flight, pull);
+        return;
+      }
+      if (follow(key, existing, handler)) {
+        return;
+      }
+    }
+  }
+
+  private void lead(final String key, final Flight flight, final Pull pull)
+      throws DockerException, InterruptedException {
+    try {
+      pull.pull(flight);
+      flight.done.complete(null);
+    } catch (DockerException | InterruptedException | RuntimeException e) {
+      if (e instanceof InterruptedException || CallContext.isCurrentOver()) {
+        // the failure is the leader's own, the followers may still pull
+        flight.done.cancel(false);
+      } else {
+        flight.done.completeExceptionally(e);
+      }
+      throw e;
+    } finally {
+      // an error must not leave the followers waiting
+      flight.done.completeExceptionally(new IllegalStateException("Pull of " + key + " failed"));
+      flights.remove(key, flight);
+    }
+  }
+
+  /**
+   * @return false if the pull must be started over, as its leader gave it up
+   */
+  private boolean follow(final String key, final Flight flight, final ProgressHandler handler)
+      throws DockerException, InterruptedException {
+    final Follower follower = new Follower(handler);
+    flight.followers.add(follower);
+    try {
+      flight.done.get();
+    } catch (CancellationException e) {
+      flights.remove(key, flight);
+      return false;
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof DockerException) {
+        throw (DockerException) cause;
+      }
+      throw (RuntimeException) cause;
+    } finally {
+      flight.followers.remove(follower);
+    }
+    if (follower.failure != null) {
+      throw follower.failure;
+    }
+    return true;
+  }
+
+  private static class Flight implements ProgressHandler {
+
+    private final ProgressHandler leader;
+    private final List<Follower> followers = new CopyOnWriteArrayList<>();
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+    private Flight(final ProgressHandler leader) {
+      this.leader = leader;
+    }
+
+    @Override
+    public void progress(final ProgressMessage message) throws DockerException {
+      for (final Follower follower : followers) {
+        follower.progress(message);
+      }
+      leader.progress(message);
+    }
+  }
+
+  private static class Follower {
+
+    private final ProgressHandler handler;
+    private volatile DockerException failure;
+
+    private Follower(final ProgressHandler handler) {
+      this.handler = handler;
+    }
+
+    private void progress(final ProgressMessage message) {
+      if (failure != null) {
+        return;
+      }
+      try {
+        handler.progress(message);
+      } catch (DockerException e) {
+        failure = e;
+      } catch (RuntimeException e) {
+        failure = new DockerException(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,46 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import java.time.Duration;
+
+import org.mandas.docker.Nullable;
+
+/**
+ * A request made to the docker daemon, see {@link DockerClientListener}.
+ *
+ * @param method the HTTP method
+ * @param endpoint the endpoint template without the API version, e.g. {@code containers/{id}/json}
+ * @param status the HTTP status, or null if no response was received
+ * @param latency the time until the response headers were received or the request failed
+ * @param responseBytes the length of the response body, or -1 if unknown (e.g. a stream)
+ * @param exception the class of the exception failing the request, or null if a response was received
+ */
+public record RequestEvent(
+  String method,
+  String endpoint,
+  @Nullable
+  Integer status,
+  Duration latency,
+  long responseBytes,
+  @Nullable
+  Class<? extends Throwable> exception
+) {}
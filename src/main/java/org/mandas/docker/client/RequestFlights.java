@@ -0,0 +1,122 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.mandas.docker.client.exceptions.DockerException;
+import org.mandas.docker.client.exceptions.DockerTimeoutException;
+import org.mandas.docker.client.exceptions.OperationCancelledException;
+
+/**
+ * Shares a read among the threads making the same request at the same time.
+ *
+ * <p>The first thread to make a request under a key sends it. The threads making the same request
+ * while it is in flight wait for it and return the same decoded result, or throw the same 
+ * exception. A result is never kept once its request is done, so nothing read is older than the
+ * call reading it. If the sending thread is interrupted, or its own call context is cancelled or 
+ * expires, the waiting threads start over and one of them sends the request again.</p>
+ */
+class RequestFlights {
+
+  /**
+   * Sends a request and decodes its response.
+   */
+  @FunctionalInterface
+  interface Request<T> {
+    T send() throws DockerException, InterruptedException;
+  }
+
+  private final ConcurrentMap<String, CompletableFuture<Object>> flights = new ConcurrentHashMap<>();
+
+  @SuppressWarnings("unchecked")
+  <T> T request(final String method, final URI uri, final String type, final Request<T> request)
+      throws DockerException, InterruptedException {
+    final String key = method + " " + uri + " " + type;
+    while (true) {
+      final CompletableFuture<Object> flight = new CompletableFuture<>();
+      final CompletableFuture<Object> existing = flights.putIfAbsent(key, flight);
+      if (existing == null) {
+        return lead(key, flight, request);
+      }
+      try {
+        return (T) await(method, uri, existing);
+      } catch (CancellationException e) {
+        // abandoned by the sending thread
+        flights.remove(key, existing);
+      } catch (ExecutionException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof DockerException) {
+          throw (DockerException) cause;
+        }
+        throw (RuntimeException) cause;
+      }
+    }
+  }
+
+  private <T> T lead(final String key, final CompletableFuture<Object> flight,
+                     final Request<T> request) throws DockerException, InterruptedException {
+    try {
+      final T result = request.send();
+      flight.complete(result);
+      return result;
+    } catch (DockerException | InterruptedException | RuntimeException e) {
+      if (e instanceof InterruptedException || CallContext.isCurrentOver()) {
+        // the failure is the sending thread's own, the others may still make it
+        flight.cancel(false);
+      } else {
+        flight.completeExceptionally(e);
+      }
+      throw e;
+    } finally {
+      // an error must not leave the other threads waiting
+      flight.completeExceptionally(new IllegalStateException("Request " + key + " failed"));
+      flights.remove(key, flight);
+    }
+  }
+
+  private static Object await(final String method, final URI uri,
+                              final CompletableFuture<Object> flight)
+      throws ExecutionException, DockerException, InterruptedException {
+    // a thread waiting for another one's request still keeps to its own call context
+    final CallContext context = CallContext.current();
+    final Duration remaining = context != null ? context.remaining() : null;
+    try {
+      return remaining == null
+          ? flight.get() : flight.get(remaining.toNanos(), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      throw new DockerTimeoutException(method, uri, e);
+    } catch (InterruptedException e) {
+      if (context != null && context.isCancelled()) {
+        throw new OperationCancelledException(method, uri, e);
+      }
+      throw e;
+    }
+  }
+}
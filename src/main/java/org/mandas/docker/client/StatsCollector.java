@@ -0,0 +1,445 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.mandas.docker.client.exceptions.ContainerNotFoundException;
+import org.mandas.docker.client.exceptions.DockerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Follows the stats streams of many containers and keeps the handful of figures most consumers
+ * are after, see {@link StatsSnapshot}.
+ *
+ * <p>Every container is followed on a virtual thread of its own. Samples are not bound to
+ * {@link org.mandas.docker.client.messages.ContainerStats}; the fields needed are picked from the
+ * token stream into a primitive array and every other field is skipped, so following a container
+ * allocates next to nothing per sample. Snapshots are computed from the two latest samples when
+ * requested.</p>
+ *
+ * <p>A stream that fails is reopened after a second. The stream of a container that stops or is
+ * removed ends and its last snapshot is kept until the container is {@link #remove(String)
+ * removed} from the collector.</p>
+ */
+public class StatsCollector implements Closeable {
+
+  private static final Logger log = LoggerFactory.getLogger(StatsCollector.class);
+
+  static final long RESUBSCRIBE_DELAY_MILLIS = 1000;
+
+  // the columns of a sample
+  private static final int READ_SECONDS = 0;
+  private static final int READ_NANOS = 1;
+  private static final int CPU_TOTAL = 2;
+  private static final int CPU_SYSTEM = 3;
+  private static final int ONLINE_CPUS = 4;
+  private static final int PRE_CPU_TOTAL = 5;
+  private static final int PRE_CPU_SYSTEM = 6;
+  private static final int MEMORY_USAGE = 7;
+  private static final int MEMORY_LIMIT = 8;
+  private static final int MEMORY_INACTIVE_FILE = 9;
+  private static final int MEMORY_CACHE = 10;
+  private static final int NETWORK_RX = 11;
+  private static final int NETWORK_TX = 12;
+  private static final int BLOCK_IO_READ = 13;
+  private static final int BLOCK_IO_WRITE = 14;
+  static final int COLUMNS = 15;
+
+  private final DefaultDockerClient client;
+  private final JsonFactory factory = ObjectMapperProvider.objectMapper().getFactory();
+  private final Map<String, Series> series = new ConcurrentHashMap<>();
+  private volatile boolean closed;
+
+  /**
+   * Creates a collector following containers through the given client.
+   *
+   * @param client the client to open the stats streams with
+   */
+  public StatsCollector(final DefaultDockerClient client) {
+    this.client = client;
+  }
+
+  /**
+   * Starts following the stats of a container, unless it is already followed.
+   *
+   * @param containerId the id of the container
+   */
+  public void add(final String containerId) {
+    if (closed) {
+      throw new IllegalStateException("Stats collector has been closed");
+    }
+    series.computeIfAbsent(containerId, id -> {
+      final Series added = new Series(id);
+      added.reader = Thread.ofVirtual().name("docker-stats-" + id).start(() -> follow(added));
+      return added;
+    });
+  }
+
+  /**
+   * Starts following the stats of several containers.
+   *
+   * @param containerIds the ids of the containers
+   */
+  public void addAll(final Collection<String> containerIds) {
+    for (final String containerId : containerIds) {
+      add(containerId);
+    }
+  }
+
+  /**
+   * Stops following the stats of a container and drops its figures.
+   *
+   * @param containerId the id of the container
+   */
+  public void remove(final String containerId) {
+    final Series removed = series.remove(containerId);
+    if (removed != null) {
+      removed.stop();
+    }
+  }
+
+  /**
+   * Returns the latest figures of a container.
+   *
+   * @param containerId the id of the container
+   * @return the figures, or null if the container is not followed or no sample was received yet
+   */
+  public StatsSnapshot snapshot(final String containerId) {
+    final Series followed = series.get(containerId);
+    return followed == null ? null : followed.snapshot();
+  }
+
+  /**
+   * Returns the latest figures of every container followed that has received a sample.
+   *
+   * @return the figures per container id
+   */
+  public Map<String, StatsSnapshot> snapshot() {
+    final Map<String, StatsSnapshot> snapshots = new LinkedHashMap<>();
+    for (final Series followed : series.values()) {
+      final StatsSnapshot snapshot = followed.snapshot();
+      if (snapshot != null) {
+        snapshots.put(followed.containerId, snapshot);
+      }
+    }
+    return snapshots;
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    for (final String containerId : series.keySet()) {
+      remove(containerId);
+    }
+  }
+
+  private void follow(final Series followed) {
+    final long[] sample = new long[COLUMNS];
+    try {
+      while (!followed.stopped) {
+        boolean failed = false;
+        try (final InputStream stream = client.openStatsStream(followed.containerId);
+            final JsonParser parser = factory.createParser(stream)) {
+          followed.stream = stream;
+          if (followed.stopped) {
+            break;
+          }
+          while (parser.nextToken() == JsonToken.START_OBJECT) {
+            parseSample(parser, sample);
+            followed.add(sample);
+          }
+        } catch (ContainerNotFoundException e) {
+          break;
+        } catch (DockerException | IOException | RuntimeException e) {
+          if (followed.stopped) {
+            break;
+          }
+          log.debug("Stats stream of container {} failed", followed.containerId, e);
+          failed = true;
+        }
+        if (!failed) {
+          break;
+        }
+        Thread.sleep(RESUBSCRIBE_DELAY_MILLIS);
+      }
+    } catch (InterruptedException e) {
+      // stopped
+    }
+  }
+
+  static void parseSample(final JsonParser parser, final long[] sample) throws IOException {
+    Arrays.fill(sample, 0);
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      final String field = parser.currentName();
+      parser.nextToken();
+      switch (field) {
+        case "read":
+          parseRead(parser.getText(), sample);
+          break;
+        case "cpu_stats":
+          parseCpu(parser, sample, CPU_TOTAL, CPU_SYSTEM, ONLINE_CPUS);
+          break;
+        case "precpu_stats":
+          parseCpu(parser, sample, PRE_CPU_TOTAL, PRE_CPU_SYSTEM, -1);
+          break;
+        case "memory_stats":
+          parseMemory(parser, sample);
+          break;
+        case "networks":
+          parseNetworks(parser, sample);
+          break;
+        case "blkio_stats":
+          parseBlockIo(parser, sample);
+          break;
+        default:
+          parser.skipChildren();
+          break;
+      }
+    }
+  }
+
+  private static void parseRead(final String read, final long[] sample) {
+    try {
+      final Instant instant = Instant.parse(read);
+      sample[READ_SECONDS] = instant.getEpochSecond();
+      sample[READ_NANOS] = instant.getNano();
+    } catch (DateTimeParseException e) {
+      log.debug("Failed to parse stats timestamp {}", read, e);
+    }
+  }
+
+  private static void parseCpu(final JsonParser parser, final long[] sample, final int total,
+                               final int system, final int onlineCpus) throws IOException {
+    if (parser.currentToken() != JsonToken.START_OBJECT) {
+      parser.skipChildren();
+      return;
+    }
+    int percpu = 0;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      final String field = parser.currentName();
+      parser.nextToken();
+      if ("system_cpu_usage".equals(field)) {
+        sample[system] = longValue(parser);
+      } else if ("online_cpus".equals(field) && onlineCpus >= 0) {
+        sample[onlineCpus] = longValue(parser);
+      } else if ("cpu_usage".equals(field) && parser.currentToken() == JsonToken.START_OBJECT) {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          final String usage = parser.currentName();
+          parser.nextToken();
+          if ("total_usage".equals(usage)) {
+            sample[total] = longValue(parser);
+          } else if ("percpu_usage".equals(usage) && parser.currentToken() == JsonToken.START_ARRAY) {
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+              percpu++;
+            }
+          } else {
+            parser.skipChildren();
+          }
+        }
+      } else {
+        parser.skipChildren();
+      }
+    }
+    // older daemons do not report online_cpus
+    if (onlineCpus >= 0 && sample[onlineCpus] == 0) {
+      sample[onlineCpus] = percpu;
+    }
+  }
+
+  private static void parseMemory(final JsonParser parser, final long[] sample) throws IOException {
+    if (parser.currentToken() != JsonToken.START_OBJECT) {
+      parser.skipChildren();
+      return;
+    }
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      final String field = parser.currentName();
+      parser.nextToken();
+      if ("usage".equals(field)) {
+        sample[MEMORY_USAGE] = longValue(parser);
+      } else if ("limit".equals(field)) {
+        sample[MEMORY_LIMIT] = longValue(parser);
+      } else if ("stats".equals(field) && parser.currentToken() == JsonToken.START_OBJECT) {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          final String stat = parser.currentName();
+          parser.nextToken();
+          // cgroup v1 reports total_inactive_file, cgroup v2 inactive_file
+          if ("total_inactive_file".equals(stat) || "inactive_file".equals(stat)) {
+            sample[MEMORY_INACTIVE_FILE] = longValue(parser);
+          } else if ("cache".equals(stat)) {
+            sample[MEMORY_CACHE] = longValue(parser);
+          } else {
+            parser.skipChildren();
+          }
+        }
+      } else {
+        parser.skipChildren();
+      }
+    }
+  }
+
+  private static void parseNetworks(final JsonParser parser, final long[] sample) throws IOException {
+    if (parser.currentToken() != JsonToken.START_OBJECT) {
+      parser.skipChildren();
+      return;
+    }
+    // one object per interface
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        parser.skipChildren();
+        continue;
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        final String field = parser.currentName();
+        parser.nextToken();
+        if ("rx_bytes".equals(field)) {
+          sample[NETWORK_RX] += longValue(parser);
+        } else if ("tx_bytes".equals(field)) {
+          sample[NETWORK_TX] += longValue(parser);
+        } else {
+          parser.skipChildren();
+        }
+      }
+    }
+  }
+
+  private static void parseBlockIo(final JsonParser parser, final long[] sample) throws IOException {
+    if (parser.currentToken() != JsonToken.START_OBJECT) {
+      parser.skipChildren();
+      return;
+    }
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      final String field = parser.currentName();
+      parser.nextToken();
+      if (!"io_service_bytes_recursive".equals(field) || parser.currentToken() != JsonToken.START_ARRAY) {
+        parser.skipChildren();
+        continue;
+      }
+      while (parser.nextToken() == JsonToken.START_OBJECT) {
+        int column = -1;
+        long value = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          final String entry = parser.currentName();
+          parser.nextToken();
+          if ("op".equals(entry)) {
+            final String op = parser.getText();
+            column = "read".equalsIgnoreCase(op) ? BLOCK_IO_READ : "write".equalsIgnoreCase(op) ? BLOCK_IO_WRITE : -1;
+          } else if ("value".equals(entry)) {
+            value = longValue(parser);
+          } else {
+            parser.skipChildren();
+          }
+        }
+        if (column >= 0) {
+          sample[column] += value;
+        }
+      }
+    }
+  }
+
+  private static long longValue(final JsonParser parser) throws IOException {
+    return parser.currentToken().isNumeric() ? parser.getLongValue() : 0;
+  }
+
+  private static double rate(final long[] latest, final long[] previous, final int column) {
+    final double seconds = (latest[READ_SECONDS] - previous[READ_SECONDS])
+        + (latest[READ_NANOS] - previous[READ_NANOS]) / 1e9;
+    final long delta = latest[column] - previous[column];
+    // a counter going backwards was reset by a restart
+    return seconds > 0 && delta > 0 ? delta / seconds : 0;
+  }
+
+  static StatsSnapshot snapshot(final String containerId, final long[] latest,
+                                final long[] previous, final boolean hasPrevious) {
+    double cpuPercent = 0;
+    final long cpuDelta = latest[CPU_TOTAL] - latest[PRE_CPU_TOTAL];
+    final long systemDelta = latest[CPU_SYSTEM] - latest[PRE_CPU_SYSTEM];
+    if (cpuDelta > 0 && systemDelta > 0) {
+      cpuPercent = (double) cpuDelta / systemDelta * latest[ONLINE_CPUS] * 100.0;
+    }
+    final long cache = latest[MEMORY_INACTIVE_FILE] > 0 ? latest[MEMORY_INACTIVE_FILE] : latest[MEMORY_CACHE];
+    final long workingSet = cache < latest[MEMORY_USAGE] ? latest[MEMORY_USAGE] - cache : latest[MEMORY_USAGE];
+    return new StatsSnapshot(containerId,
+        Instant.ofEpochSecond(latest[READ_SECONDS], latest[READ_NANOS]),
+        cpuPercent,
+        latest[MEMORY_USAGE],
+        workingSet,
+        latest[MEMORY_LIMIT],
+        hasPrevious ? rate(latest, previous, NETWORK_RX) : 0,
+        hasPrevious ? rate(latest, previous, NETWORK_TX) : 0,
+        hasPrevious ? rate(latest, previous, BLOCK_IO_READ) : 0,
+        hasPrevious ? rate(latest, previous, BLOCK_IO_WRITE) : 0);
+  }
+
+  private static class Series {
+    private final String containerId;
+    private final long[] latest = new long[COLUMNS];
+    private final long[] previous = new long[COLUMNS];
+    private int samples;
+    private volatile boolean stopped;
+    private volatile InputStream stream;
+    private Thread reader;
+
+    private Series(final String containerId) {
+      this.containerId = containerId;
+    }
+
+    private synchronized void add(final long[] sample) {
+      System.arraycopy(latest, 0, previous, 0, COLUMNS);
+      System.arraycopy(sample, 0, latest, 0, COLUMNS);
+      samples++;
+    }
+
+    private synchronized StatsSnapshot snapshot() {
+      if (samples == 0) {
+        return null;
+      }
+      return StatsCollector.snapshot(containerId, latest, previous, samples > 1);
+    }
+
+    private void stop() {
+      stopped = true;
+      final InputStream current = stream;
+      if (current != null) {
+        try {
+          current.close();
+        } catch (IOException e) {
+          log.debug("Failed to close stats stream of container {}", containerId, e);
+        }
+      }
+      reader.interrupt();
+    }
+  }
+}
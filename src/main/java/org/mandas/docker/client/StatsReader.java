@@ -0,0 +1,94 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.mandas.docker.client.messages.ContainerStats;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class StatsReader implements Closeable {
+
+  private final ObjectMapper objectMapper;
+  private final int decimation;
+  private JsonParser parser;
+  private final InputStream stream;
+
+  public StatsReader(final InputStream stream, final ObjectMapper objectMapper) {
+    this(stream, objectMapper, 1);
+  }
+
+  /**
+   * Creates a reader for the stats stream of a container, decoding only every 
+   * {@code decimation}-th sample. The samples in between are skipped token by token without 
+   * being bound.
+   *
+   * @param stream the stream to read from
+   * @param objectMapper the object mapper to decode the samples with
+   * @param decimation the number of samples read for every sample returned
+   */
+  public StatsReader(final InputStream stream, final ObjectMapper objectMapper, final int decimation) {
+    if (decimation < 1) {
+      throw new IllegalArgumentException("decimation must be positive");
+    }
+    this.stream = stream;
+    this.objectMapper = objectMapper;
+    this.decimation = decimation;
+  }
+
+  public ContainerStats nextMessage() throws IOException {
+    if (this.parser == null) {
+      this.parser = objectMapper.getFactory().createParser(stream);
+    }
+
+    // If the parser is closed, there's no new sample
+    if (this.parser.isClosed()) {
+      return null;
+    }
+
+    for (int skipped = 1; skipped < decimation; skipped++) {
+      if (parser.nextToken() == null) {
+        return null;
+      }
+      if (parser.currentToken() == JsonToken.START_OBJECT) {
+        parser.skipChildren();
+      }
+    }
+
+    // Read tokens until we get a start object
+    if (parser.nextToken() == null) {
+      return null;
+    }
+
+    return parser.readValueAs(ContainerStats.class);
+  }
+
+  @Override
+  public void close() throws IOException {
+    stream.close();
+  }
+
+}
@@ -0,0 +1,51 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import java.time.Instant;
+
+/**
+ * The latest figures of a container collected by a {@link StatsCollector}. Rates are computed
+ * between the two latest samples and are zero until a second sample has been received.
+ *
+ * @param containerId the id of the container
+ * @param read the time dockerd took the latest sample
+ * @param cpuPercent the CPU usage, as the docker CLI reports it: 100% per fully used CPU
+ * @param memoryUsage the memory usage in bytes, including the page cache
+ * @param memoryWorkingSet the memory usage in bytes without the inactive page cache
+ * @param memoryLimit the memory limit in bytes
+ * @param networkRxBytesPerSecond the bytes received per second over all networks
+ * @param networkTxBytesPerSecond the bytes sent per second over all networks
+ * @param blockIoReadBytesPerSecond the bytes read per second from all block devices
+ * @param blockIoWriteBytesPerSecond the bytes written per second to all block devices
+ */
+public record StatsSnapshot(
+  String containerId,
+  Instant read,
+  double cpuPercent,
+  long memoryUsage,
+  long memoryWorkingSet,
+  long memoryLimit,
+  double networkRxBytesPerSecond,
+  double networkTxBytesPerSecond,
+  double blockIoReadBytesPerSecond,
+  double blockIoWriteBytesPerSecond
+) {}
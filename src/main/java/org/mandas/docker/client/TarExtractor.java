@@ -0,0 +1,315 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Extracts a tar stream into a directory, as the archives of {@code archiveContainer} are.
+ *
+ * <p>Entries are written straight from the stream. Entries filtered out are skipped over without
+ * being buffered. With more than one thread, files up to {@link #SMALL_FILE} bytes are read into 
+ * memory, up to {@link #MAX_BUFFERED} bytes in total, and written by a pool while the next entries 
+ * are read; larger files are always written by the reading thread.</p>
+ *
+ * <p>Entries resolving outside of the target directory fail the extraction, as do links replacing 
+ * a directory and entries whose path passes through a symbolic link, whether an earlier entry 
+ * created it or it was there before; a symbolic link in place of a file is replaced rather than 
+ * written through. Links are created once every file has been written, and directory permissions 
+ * and times are set last, as writing into a directory changes its time; attributes are never set on a symbolic link or through it. An entry repeated
+ * in the archive is written once the pending write of its earlier occurrence is done, the last
+ * occurrence wins.</p>
+ */
+class TarExtractor {
+
+  private static final Logger log = LoggerFactory.getLogger(TarExtractor.class);
+
+  static final int SMALL_FILE = 1024 * 1024;
+  static final int MAX_BUFFERED = 64 * 1024 * 1024;
+
+  private static final PosixFilePermission[] PERMISSIONS = {
+      PosixFilePermission.OTHERS_EXECUTE, PosixFilePermission.OTHERS_WRITE,
+      PosixFilePermission.OTHERS_READ, PosixFilePermission.GROUP_EXECUTE,
+      PosixFilePermission.GROUP_WRITE, PosixFilePermission.GROUP_READ,
+      PosixFilePermission.OWNER_EXECUTE, PosixFilePermission.OWNER_WRITE,
+      PosixFilePermission.OWNER_READ
+  };
+
+  private final Path target;
+  private final CopyFromContainerOptions options;
+  private final List<PathMatcher> includes = new ArrayList<>();
+  private final List<PathMatcher> excludes = new ArrayList<>();
+  private final boolean posix;
+  private Path realTarget;
+
+  TarExtractor(final Path targetDirectory, final CopyFromContainerOptions options) {
+    this.target = targetDirectory.toAbsolutePath().normalize();
+    this.options = options;
+    final FileSystem fileSystem = target.getFileSystem();
+    for (final String pattern : options.includes()) {
+      includes.add(fileSystem.getPathMatcher("glob:" + pattern));
+    }
+    for (final String pattern : options.excludes()) {
+      excludes.add(fileSystem.getPathMatcher("glob:" + pattern));
+    }
+    this.posix = fileSystem.supportedFileAttributeViews().contains("posix");
+  }
+
+  /**
+   * Extracts the archive. The stream is read to its end but not closed.
+   *
+   * @param in the tar stream
+   * @throws IOException if the archive could not be read, an entry could not be written or an 
+   *     entry resolves outside of the target directory
+   * @throws InterruptedException if the thread is interrupted
+   */
+  void extract(final InputStream in) throws IOException, InterruptedException {
+    Files.createDirectories(target);
+    realTarget = target.toRealPath();
+    final List<TarArchiveEntry> directories = new ArrayList<>();
+    final List<TarArchiveEntry> links = new ArrayList<>();
+    final int threads = options.threads();
+    final int maxWrites = threads * 4;
+    final ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+    final Semaphore writes = new Semaphore(maxWrites);
+    final Semaphore buffered = new Semaphore(MAX_BUFFERED);
+    final AtomicReference<IOException> failure = new AtomicReference<>();
+    final Map<Path, CountDownLatch> pending = new ConcurrentHashMap<>();
+    try {
+      final TarArchiveInputStream tarIn = new TarArchiveInputStream(in);
+      TarArchiveEntry entry;
+      while ((entry = tarIn.getNextEntry()) != null && failure.get() == null) {
+        if (!selected(entry.getName())) {
+          continue;
+        }
+        final Path path = resolve(entry.getName());
+        if (entry.isDirectory()) {
+          checkNoLinks(path, entry.getName(), true);
+          Files.createDirectories(path);
+          directories.add(entry);
+          continue;
+        }
+        if (entry.isSymbolicLink() || entry.isLink()) {
+          links.add(entry);
+          continue;
+        }
+        if (!entry.isFile()) {
+          log.debug("Skipping {}, neither a file, a directory nor a link", entry.getName());
+          continue;
+        }
+        checkNoLinks(path, entry.getName(), false);
+        Files.createDirectories(path.getParent());
+        checkInside(path.getParent(), entry.getName());
+        if (Files.isSymbolicLink(path)) {
+          // replaced rather than written through
+          Files.delete(path);
+        }
+        // a repeated entry must not race with the pending write of its earlier occurrence
+        final CountDownLatch previous = pending.get(path);
+        if (previous != null) {
+          previous.await();
+        }
+        if (executor == null || entry.getSize() > SMALL_FILE) {
+          write(path, tarIn, entry.getSize());
+          setAttributes(path, entry);
+          continue;
+        }
+
+        final int size = (int) entry.getSize();
+        writes.acquire();
+        buffered.acquire(size);
+        final byte[] content = tarIn.readNBytes(size);
+        final TarArchiveEntry file = entry;
+        final CountDownLatch written = new CountDownLatch(1);
+        pending.put(path, written);
+        executor.execute(() -> {
+          try {
+            Files.write(path, content, CREATE, WRITE, TRUNCATE_EXISTING, LinkOption.NOFOLLOW_LINKS);
+            setAttributes(path, file);
+          } catch (IOException e) {
+            failure.compareAndSet(null, e);
+          } finally {
+            pending.remove(path, written);
+            written.countDown();
+            buffered.release(size);
+            writes.release();
+          }
+        });
+      }
+      // wait for the pending writes
+      writes.acquire(maxWrites);
+      if (failure.get() != null) {
+        throw failure.get();
+      }
+
+      for (final TarArchiveEntry link : links) {
+        link(link);
+      }
+      for (int i = directories.size() - 1; i >= 0; i--) {
+        final TarArchiveEntry directory = directories.get(i);
+        setAttributes(resolve(directory.getName()), directory);
+      }
+    } finally {
+      if (executor != null) {
+        executor.shutdownNow();
+      }
+    }
+  }
+
+  private boolean selected(final String name) {
+    final Path path = target.getFileSystem().getPath(name);
+    if (!includes.isEmpty() && includes.stream().noneMatch(matcher -> matcher.matches(path))) {
+      return false;
+    }
+    return excludes.stream().noneMatch(matcher -> matcher.matches(path));
+  }
+
+  private Path resolve(final String name) throws IOException {
+    final Path path = target.resolve(name).normalize();
+    if (!path.startsWith(target)) {
+      throw new IOException("Archive entry " + name + " resolves outside of " + target);
+    }
+    return path;
+  }
+
+  private static void write(final Path path, final InputStream in, final long size)
+      throws IOException {
+    // not closed, closing it would close the archive
+    final ReadableByteChannel source = Channels.newChannel(in);
+    try (final FileChannel channel =
+             FileChannel.open(path, CREATE, WRITE, TRUNCATE_EXISTING, LinkOption.NOFOLLOW_LINKS)) {
+      long position = 0;
+      while (position < size) {
+        final long count = channel.transferFrom(source, position, size - position);
+        if (count == 0) {
+          throw new EOFException("Archive ended within " + path);
+        }
+        position += count;
+      }
+    }
+  }
+
+  private void link(final TarArchiveEntry entry) throws IOException {
+    final Path path = resolve(entry.getName());
+    // the links created so far are checked as well
+    checkNoLinks(path, entry.getName(), false);
+    if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+      throw new IOException("Archive entry " + entry.getName() + " replaces a directory with a link");
+    }
+    Files.createDirectories(path.getParent());
+    checkInside(path.getParent(), entry.getName());
+    Files.deleteIfExists(path);
+    if (entry.isSymbolicLink()) {
+      Files.createSymbolicLink(path, target.getFileSystem().getPath(entry.getLinkName()));
+      return;
+    }
+    final Path existing = resolve(entry.getLinkName());
+    checkNoLinks(existing, entry.getName(), false);
+    if (!Files.exists(existing)) {
+      log.debug("Skipping {}, its target {} was not extracted", entry.getName(), entry.getLinkName());
+      return;
+    }
+    Files.createLink(path, existing);
+  }
+
+  /**
+   * Fails if a directory on the way from the target directory to the path, or the path itself if
+   * asked to, is a symbolic link, as writing through it could reach outside of the target.
+   */
+  private void checkNoLinks(final Path path, final String name, final boolean self)
+      throws IOException {
+    final Path relative = target.relativize(path);
+    if (relative.toString().isEmpty()) {
+      return;
+    }
+    final int count = self ? relative.getNameCount() : relative.getNameCount() - 1;
+    Path current = target;
+    for (int i = 0; i < count; i++) {
+      current = current.resolve(relative.getName(i));
+      if (Files.isSymbolicLink(current)) {
+        throw new IOException("Archive entry " + name + " passes through the link " + current);
+      }
+      if (!Files.exists(current, LinkOption.NOFOLLOW_LINKS)) {
+        return;
+      }
+    }
+  }
+
+  private void checkInside(final Path directory, final String name) throws IOException {
+    if (!directory.toRealPath().startsWith(realTarget)) {
+      throw new IOException("Archive entry " + name + " resolves outside of " + target);
+    }
+  }
+
+  private void setAttributes(final Path path, final TarArchiveEntry entry) throws IOException {
+    if (Files.isSymbolicLink(path)) {
+      // the attributes would be set on the link target
+      return;
+    }
+    if (options.preservePermissions() && posix) {
+      Files.setPosixFilePermissions(path, permissions(entry.getMode()));
+    }
+    if (options.preserveModificationTimes()) {
+      Files.setLastModifiedTime(path, entry.getLastModifiedTime());
+    }
+  }
+
+  static Set<PosixFilePermission> permissions(final int mode) {
+    final Set<PosixFilePermission> permissions = EnumSet.noneOf(PosixFilePermission.class);
+    for (int i = 0; i < PERMISSIONS.length; i++) {
+      if ((mode & (1 << i)) != 0) {
+        permissions.add(PERMISSIONS[i]);
+      }
+    }
+    return permissions;
+  }
+}
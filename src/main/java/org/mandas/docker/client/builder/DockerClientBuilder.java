@@ -32,10 +32,14 @@ import static org.mandas.docker.client.DockerHost.defaultPort;
 import java.net.URI;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.hc.client5.http.config.ConnectionConfig;
 import org.apache.hc.client5.http.config.RequestConfig;
@@ -53,9 +57,11 @@ import org.glassfish.jersey.client.ClientConfig;
 import org.glassfish.jersey.client.ClientProperties;
 import org.glassfish.jersey.client.RequestEntityProcessing;
 import org.glassfish.jersey.jackson.JacksonFeature;
+import org.mandas.docker.client.BuildContextOptions;
 import org.mandas.docker.client.DefaultDockerClient;
 import org.mandas.docker.client.DockerCertificates;
 import org.mandas.docker.client.DockerCertificatesStore;
+import org.mandas.docker.client.DockerClientListener;
 import org.mandas.docker.client.DockerHost;
 import org.mandas.docker.client.ObjectMapperProvider;
 import org.mandas.docker.client.auth.ConfigFileRegistryAuthSupplier;
@@ -75,6 +81,23 @@ public class DockerClientBuilder {
     CHUNKED,
     BUFFERED;
   }
+
+  /**
+   * How requests are sent to the daemon.
+   */
+  public enum Transport {
+    /**
+     * The Apache HTTP client, for every kind of URI.
+     */
+    APACHE,
+    /**
+     * A {@link java.nio.channels.SocketChannel} connected to the unix socket of the daemon, with a
+     * minimal HTTP/1.1 client of its own; only for {@code unix://} URIs. It replaces the Apache
+     * HTTP client only: requests are still built, filtered and read through Jersey, so the cost of
+     * building the Jersey client and of its per-request processing remains.
+     */
+    SOCKET_CHANNEL;
+  }
   
   private static final String UNIX_SCHEME = "unix";
   private static long DEFAULT_CONNECT_TIMEOUT_MILLIS = SECONDS.toMillis(5);
@@ -92,6 +115,16 @@ public class DockerClientBuilder {
   private Map<String, Object> headers = new HashMap<>();
   private Client client;
   private EntityProcessing entityProcessing;
+  private ExecutorService asyncExecutorService;
+  private ExecutorService tailExecutorService;
+  private boolean useVirtualThreads;
+  private boolean reuseLogBuffers;
+  private BuildContextOptions buildContextOptions;
+  private Transport transport = Transport.APACHE;
+  private int streamingConnectionPoolSize;
+  private long streamingReadTimeoutMillis = -1;
+  private boolean coalesceReads;
+  private final List<DockerClientListener> listeners = new ArrayList<>();
 
   private ClientConfig updateProxy(ClientConfig config) {
     ProxyConfiguration proxyConfiguration = proxyFromEnv();
@@ -116,17 +149,8 @@ public class DockerClientBuilder {
     return config;
   }
   
-  private Client createClient() {
-    final HttpClientConnectionManager cm = getConnectionManager(connectionPoolSize);
-
-    Builder builder = RequestConfig.custom()
-        .setConnectionRequestTimeout(Timeout.ofMilliseconds(connectTimeoutMillis));
-
-    if (uri.getScheme().equals("unix")) {
-    	builder = builder.setUnixDomainSocket(Paths.get(uri.getPath()));
-    }
-    
-    final RequestConfig requestConfig = builder.build();
+  private Client createClient(final int connectionPoolSize, final long readTimeoutMillis) {
+    final DockerClientListener listener = listeners.isEmpty() ? null : new DockerClientListeners(listeners);
 
     ClientConfig config = new ClientConfig(JacksonFeature.class);
     
@@ -134,13 +158,36 @@ public class DockerClientBuilder {
       config = updateProxy(config);
     }
     
-    config
-      .connectorProvider(new Apache5ConnectorProvider())
-      .property(Apache5ClientProperties.CONNECTION_MANAGER, cm)
-      .property(Apache5ClientProperties.CONNECTION_MANAGER_SHARED, "true")
-      .property(Apache5ClientProperties.REQUEST_CONFIG, requestConfig)
-      .property(Apache5ClientProperties.RETRY_STRATEGY, new DefaultHttpRequestRetryStrategy(0, TimeValue.ZERO_MILLISECONDS));
-    
+    if (transport == Transport.SOCKET_CHANNEL) {
+      final Path socket = Paths.get(uri.getPath());
+      config.connectorProvider((client, runtimeConfig) -> new UnixSocketConnector(socket,
+          connectionPoolSize, connectTimeoutMillis, readTimeoutMillis, listener));
+    } else {
+      HttpClientConnectionManager cm = getConnectionManager(connectionPoolSize, readTimeoutMillis);
+      if (listener != null) {
+        cm = new InstrumentedConnectionManager(cm, listener);
+      }
+
+      Builder builder = RequestConfig.custom()
+          .setConnectionRequestTimeout(Timeout.ofMilliseconds(connectTimeoutMillis));
+
+      if (uri.getScheme().equals("unix")) {
+      	builder = builder.setUnixDomainSocket(Paths.get(uri.getPath()));
+      }
+      
+      final RequestConfig requestConfig = builder.build();
+
+      config
+        .connectorProvider(new Apache5ConnectorProvider())
+        .property(Apache5ClientProperties.CONNECTION_MANAGER, cm)
+        .property(Apache5ClientProperties.CONNECTION_MANAGER_SHARED, "true")
+        .property(Apache5ClientProperties.REQUEST_CONFIG, requestConfig)
+        .property(Apache5ClientProperties.RETRY_STRATEGY, new DefaultHttpRequestRetryStrategy(0, TimeValue.ZERO_MILLISECONDS));
+    }
+
+    if (listener != null) {
+      config.register(new ListenerInterceptor(listener));
+    }
 
     if (entityProcessing != null) {
       switch (entityProcessing) {
@@ -157,6 +204,8 @@ public class DockerClientBuilder {
 
     return ClientBuilder.newBuilder()
         .withConfig(config)
+        .executorService(ofNullable(asyncExecutorService)
+            .orElseGet(Executors::newVirtualThreadPerTaskExecutor))
         .build();
   }
   
@@ -282,6 +331,36 @@ public class DockerClientBuilder {
     return this;
   }
 
+  /**
+   * Gives the calls holding their connection for long their own connection pool, so that they
+   * can't take all the connections of the short calls. These are the logs, events, attach, exec
+   * start, stats stream and wait calls, the pull, push, build, load and create calls, and the
+   * archive transfers; inspecting, listing, creating or starting a container and all other calls 
+   * keep the pool of {@link #connectionPoolSize(int)}.
+   * 
+   * <p>By default, or with a size of 0, all calls share the same pool.
+   *
+   * @param streamingConnectionPoolSize the size of the pool of the long calls
+   * @return Builder
+   */
+  public DockerClientBuilder streamingConnectionPoolSize(final int streamingConnectionPoolSize) {
+    this.streamingConnectionPoolSize = streamingConnectionPoolSize;
+    return this;
+  }
+
+  /**
+   * Sets the socket timeout of the pool of {@link #streamingConnectionPoolSize(int)}, e.g. 0 to
+   * follow logs or events for any time without a message. Defaults to the 
+   * {@link #readTimeoutMillis(long)}.
+   *
+   * @param streamingReadTimeoutMillis read timeout of the long calls in milliseconds
+   * @return Builder
+   */
+  public DockerClientBuilder streamingReadTimeoutMillis(final long streamingReadTimeoutMillis) {
+    this.streamingReadTimeoutMillis = streamingReadTimeoutMillis;
+    return this;
+  }
+
   /**
    * Allows connecting to Docker Daemon using HTTP proxy.
    *
@@ -325,6 +404,125 @@ public class DockerClientBuilder {
     return this;
   }
   
+  /**
+   * Selects how requests are sent to the daemon, see {@link Transport}. Defaults to
+   * {@link Transport#APACHE}.
+   * 
+   * <p>{@link Transport#SOCKET_CHANNEL} replaces the Apache HTTP client and its connection 
+   * manager by a minimal HTTP/1.1 client on a JDK socket channel; requests still go through 
+   * Jersey. As a blocked read of a socket channel ends when its thread is interrupted, a
+   * {@link org.mandas.docker.client.CallContext#cancel() cancelled} call is aborted on platform
+   * threads too. It keeps the {@link #connectionPoolSize(int)} and the timeouts, but requires a
+   * {@code unix://} URI.
+   * 
+   * @param transport the transport
+   * @return Builder
+   */
+  public DockerClientBuilder transport(final Transport transport) {
+    this.transport = requireNonNull(transport, "transport");
+    return this;
+  }
+
+  /**
+   * Sets the executor service running the requests issued through {@link DefaultDockerClient#async()}.
+   * 
+   * <p>By default every asynchronous request runs on its own virtual thread, so that many
+   * concurrent requests are multiplexed onto a small number of carrier threads. Note that the
+   * number of requests actually in flight is still bounded by {@link #connectionPoolSize(int)}.
+   * 
+   * @param asyncExecutorService the executor service for asynchronous requests
+   * @return Builder
+   */
+  public DockerClientBuilder asyncExecutorService(final ExecutorService asyncExecutorService) {
+    this.asyncExecutorService = asyncExecutorService;
+    return this;
+  }
+  
+  /**
+   * Sets a shared executor service tailing the progress of pull, push, build, load and create
+   * calls. By default a dedicated platform thread is started (and stopped) for every such call.
+   * 
+   * <p>The executor is not shut down when the client is closed. A bounded executor limits the
+   * number of concurrent tails; callers exceeding it wait until a tail slot is free.
+   * 
+   * @param tailExecutorService the executor service tailing progress streams
+   * @return Builder
+   */
+  public DockerClientBuilder tailExecutorService(final ExecutorService tailExecutorService) {
+    this.tailExecutorService = tailExecutorService;
+    return this;
+  }
+
+  /**
+   * Tails the progress of pull, push, build, load and create calls on virtual threads, unless
+   * a {@link #tailExecutorService(ExecutorService)} is set. Asynchronous requests already run on 
+   * virtual threads unless an {@link #asyncExecutorService(ExecutorService)} is set.
+   * 
+   * @param useVirtualThreads whether to use virtual threads
+   * @return Builder
+   */
+  public DockerClientBuilder useVirtualThreads(final boolean useVirtualThreads) {
+    this.useVirtualThreads = useVirtualThreads;
+    return this;
+  }
+
+  /**
+   * Decodes the frames of {@code logs}, {@code attachContainer} and {@code execStart} streams into
+   * a single reusable buffer instead of allocating new arrays for every frame. 
+   * 
+   * <p>When enabled, a {@link org.mandas.docker.client.LogMessage} returned by a 
+   * {@link org.mandas.docker.client.LogStream} is only valid until the next message is read; use 
+   * {@link org.mandas.docker.client.LogMessage#copy()} to retain it. Disabled by default.
+   * 
+   * @param reuseLogBuffers whether to reuse log frame buffers
+   * @return Builder
+   */
+  public DockerClientBuilder reuseLogBuffers(final boolean reuseLogBuffers) {
+    this.reuseLogBuffers = reuseLogBuffers;
+    return this;
+  }
+  
+  /**
+   * Makes concurrent identical read calls share one request. A thread calling e.g. 
+   * {@code inspectContainer(id)} while another thread's identical call is waiting for the daemon 
+   * waits for that call and gets the same result, or the same exception.
+   * 
+   * <p>Only calls decoding their response are shared, never the ones returning a stream. A result 
+   * is not kept once its request is done, so it is never older than the call; but it is the same 
+   * instance for all the threads sharing it, which must not modify it. Disabled by default.
+   * 
+   * @param coalesceReads whether to share identical concurrent read calls
+   * @return Builder
+   */
+  public DockerClientBuilder coalesceReads(final boolean coalesceReads) {
+    this.coalesceReads = coalesceReads;
+    return this;
+  }
+
+  /**
+   * Sets how the directories sent by build and copyToContainer calls are archived, e.g. with how 
+   * many threads they are compressed. Defaults to {@link BuildContextOptions#defaults()}.
+   * 
+   * @param buildContextOptions the build context options
+   * @return Builder
+   */
+  public DockerClientBuilder buildContextOptions(final BuildContextOptions buildContextOptions) {
+    this.buildContextOptions = buildContextOptions;
+    return this;
+  }
+  
+  /**
+   * Adds a listener receiving the timings of every request and connection lease of the client,
+   * see {@link DockerClientListener}. May be called several times to add several listeners.
+   * 
+   * @param listener the listener
+   * @return Builder
+   */
+  public DockerClientBuilder listener(final DockerClientListener listener) {
+    this.listeners.add(requireNonNull(listener, "listener"));
+    return this;
+  }
+
   private String toRegExp(String hostnameWithWildcards) {
     return hostnameWithWildcards.replace(".", "\\.").replace("*", ".*");
   }
@@ -367,13 +565,25 @@ public class DockerClientBuilder {
           "An HTTPS URI for DOCKER_HOST must be provided to use Docker client certificates");
     }
     
+    if (transport == Transport.SOCKET_CHANNEL && !uri.getScheme().equals(UNIX_SCHEME)) {
+      throw new IllegalArgumentException(
+          "A unix URI for DOCKER_HOST must be provided to use the socket channel transport");
+    }
+    
     if (uri.getScheme().startsWith(UNIX_SCHEME)) {
       this.useProxy = false;
     }
     
-    this.client = createClient()
+    this.client = createClient(connectionPoolSize, readTimeoutMillis)
         .register(ObjectMapperProvider.class);
     
+    Client streamingClient = null;
+    if (streamingConnectionPoolSize > 0) {
+      streamingClient = createClient(streamingConnectionPoolSize,
+          streamingReadTimeoutMillis >= 0 ? streamingReadTimeoutMillis : readTimeoutMillis)
+          .register(ObjectMapperProvider.class);
+    }
+    
     if (uri.getScheme().equals(UNIX_SCHEME)) {
       this.sanitizedUri = URI.create("unix://localhost:80"); // Jersey requires a host which the Apache connector won't use
     } else {
@@ -385,10 +595,16 @@ public class DockerClientBuilder {
       registryAuthSupplier(new ConfigFileRegistryAuthSupplier());
     }
     
-    return new DefaultDockerClient(apiVersion, registryAuthSupplier, sanitizedUri, client, headers);
+    ExecutorService tailExecutor = tailExecutorService;
+    if (tailExecutor == null && useVirtualThreads) {
+      tailExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+    
+    return new DefaultDockerClient(apiVersion, registryAuthSupplier, sanitizedUri, client, headers,
+        tailExecutor, reuseLogBuffers, buildContextOptions, streamingClient, coalesceReads);
   }
 
-  private HttpClientConnectionManager getConnectionManager(int connectionPoolSize) {
+  private HttpClientConnectionManager getConnectionManager(int connectionPoolSize, long readTimeoutMillis) {
     PoolingHttpClientConnectionManagerBuilder builder = PoolingHttpClientConnectionManagerBuilder.create()
       .setMaxConnTotal(connectionPoolSize)
       .setMaxConnPerRoute(connectionPoolSize)
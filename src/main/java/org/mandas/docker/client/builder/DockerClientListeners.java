@@ -0,0 +1,66 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client.builder;
+
+import java.util.List;
+
+import org.mandas.docker.client.ConnectionLeaseEvent;
+import org.mandas.docker.client.DockerClientListener;
+import org.mandas.docker.client.RequestEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Dispatches events to every registered listener, so that a failing listener neither fails the
+ * call nor starves the other listeners.
+ */
+class DockerClientListeners implements DockerClientListener {
+
+  private static final Logger log = LoggerFactory.getLogger(DockerClientListeners.class);
+
+  private final List<DockerClientListener> listeners;
+
+  DockerClientListeners(final List<DockerClientListener> listeners) {
+    this.listeners = List.copyOf(listeners);
+  }
+
+  @Override
+  public void requestCompleted(final RequestEvent event) {
+    for (final DockerClientListener listener : listeners) {
+      try {
+        listener.requestCompleted(event);
+      } catch (RuntimeException e) {
+        log.warn("Listener {} failed", listener, e);
+      }
+    }
+  }
+
+  @Override
+  public void connectionLeased(final ConnectionLeaseEvent event) {
+    for (final DockerClientListener listener : listeners) {
+      try {
+        listener.connectionLeased(event);
+      } catch (RuntimeException e) {
+        log.warn("Listener {} failed", listener, e);
+      }
+    }
+  }
+}
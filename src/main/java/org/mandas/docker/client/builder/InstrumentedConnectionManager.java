@@ -0,0 +1,120 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client.builder;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.io.HttpClientConnectionManager;
+import org.apache.hc.client5.http.io.LeaseRequest;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.ConnPoolControl;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.mandas.docker.client.ConnectionLeaseEvent;
+import org.mandas.docker.client.DockerClientListener;
+
+/**
+ * Reports how long every lease of a connection waited for the pool, along with the pool figures
+ * right after the lease.
+ */
+class InstrumentedConnectionManager implements HttpClientConnectionManager {
+
+  private final HttpClientConnectionManager delegate;
+  private final DockerClientListener listener;
+
+  InstrumentedConnectionManager(final HttpClientConnectionManager delegate,
+                                final DockerClientListener listener) {
+    this.delegate = delegate;
+    this.listener = listener;
+  }
+
+  @Override
+  public LeaseRequest lease(final String id, final HttpRoute route, final Timeout requestTimeout,
+                            final Object state) {
+    final long start = System.nanoTime();
+    final LeaseRequest lease = delegate.lease(id, route, requestTimeout, state);
+    return new LeaseRequest() {
+      @Override
+      public ConnectionEndpoint get(final Timeout timeout)
+          throws InterruptedException, ExecutionException, TimeoutException {
+        try {
+          final ConnectionEndpoint endpoint = lease.get(timeout);
+          leased(start, null);
+          return endpoint;
+        } catch (InterruptedException | ExecutionException | TimeoutException | RuntimeException e) {
+          leased(start, e);
+          throw e;
+        }
+      }
+
+      @Override
+      public boolean cancel() {
+        return lease.cancel();
+      }
+    };
+  }
+
+  @SuppressWarnings("unchecked")
+  private void leased(final long start, final Exception failure) {
+    final Duration wait = Duration.ofNanos(System.nanoTime() - start);
+    PoolStats stats = new PoolStats(-1, -1, -1, -1);
+    if (delegate instanceof ConnPoolControl) {
+      stats = ((ConnPoolControl<HttpRoute>) delegate).getTotalStats();
+    }
+    listener.connectionLeased(new ConnectionLeaseEvent(wait, stats.getLeased(), stats.getPending(),
+        stats.getAvailable(), stats.getMax(), failure == null ? null : failure.getClass()));
+  }
+
+  @Override
+  public void release(final ConnectionEndpoint endpoint, final Object newState,
+                      final TimeValue validDuration) {
+    delegate.release(endpoint, newState, validDuration);
+  }
+
+  @Override
+  public void connect(final ConnectionEndpoint endpoint, final TimeValue connectTimeout,
+                      final HttpContext context) throws IOException {
+    delegate.connect(endpoint, connectTimeout, context);
+  }
+
+  @Override
+  public void upgrade(final ConnectionEndpoint endpoint, final HttpContext context)
+      throws IOException {
+    delegate.upgrade(endpoint, context);
+  }
+
+  @Override
+  public void close(final CloseMode closeMode) {
+    delegate.close(closeMode);
+  }
+
+  @Override
+  public void close() throws IOException {
+    delegate.close();
+  }
+}
@@ -0,0 +1,130 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client.builder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.glassfish.jersey.client.spi.PostInvocationInterceptor;
+import org.glassfish.jersey.client.spi.PreInvocationInterceptor;
+import org.mandas.docker.client.DockerClientListener;
+import org.mandas.docker.client.RequestEvent;
+
+import jakarta.ws.rs.client.ClientRequestContext;
+import jakarta.ws.rs.client.ClientResponseContext;
+
+/**
+ * Times every request of the client and reports it to a {@link DockerClientListener}. Being a
+ * Jersey invocation interceptor, it also sees requests failing before a response was received.
+ */
+class ListenerInterceptor implements PreInvocationInterceptor, PostInvocationInterceptor {
+
+  private static final String START_PROPERTY = ListenerInterceptor.class.getName() + ".start";
+
+  private static final Pattern API_VERSION = Pattern.compile("v\\d+(\\.\\d+)*");
+
+  // collections whose members are addressed by id or name
+  private static final Set<String> COLLECTIONS = Set.of("containers", "exec", "networks",
+      "volumes", "services", "tasks", "nodes", "secrets", "configs");
+
+  // collections whose member names may contain slashes
+  private static final Set<String> NAMED_COLLECTIONS = Set.of("images", "plugins", "distribution");
+
+  // the actions on a collection, rather than on one of its members
+  private static final Set<String> COLLECTION_ACTIONS = Set.of("json", "create", "prune", "load",
+      "get", "search", "pull", "privileges");
+
+  // the actions on a member of a named collection
+  private static final Set<String> MEMBER_ACTIONS = Set.of("json", "history", "push", "tag", "get",
+      "enable", "disable", "upgrade", "set");
+
+  private final DockerClientListener listener;
+
+  ListenerInterceptor(final DockerClientListener listener) {
+    this.listener = listener;
+  }
+
+  @Override
+  public void beforeRequest(final ClientRequestContext requestContext) {
+    requestContext.setProperty(START_PROPERTY, System.nanoTime());
+  }
+
+  @Override
+  public void afterRequest(final ClientRequestContext requestContext,
+                           final ClientResponseContext responseContext) {
+    listener.requestCompleted(new RequestEvent(requestContext.getMethod(),
+        endpoint(requestContext.getUri().getRawPath()), responseContext.getStatus(),
+        latency(requestContext), responseContext.getLength(), null));
+  }
+
+  @Override
+  public void onException(final ClientRequestContext requestContext,
+                          final ExceptionContext exceptionContext) {
+    final Integer status = exceptionContext.getResponseContext()
+        .map(ClientResponseContext::getStatus)
+        .orElse(null);
+    final long length = exceptionContext.getResponseContext()
+        .map(ClientResponseContext::getLength)
+        .orElse(-1);
+    final Throwable failure = exceptionContext.getThrowables().peekLast();
+    listener.requestCompleted(new RequestEvent(requestContext.getMethod(),
+        endpoint(requestContext.getUri().getRawPath()), status, latency(requestContext), length,
+        failure == null ? null : failure.getClass()));
+  }
+
+  private static Duration latency(final ClientRequestContext requestContext) {
+    final Object start = requestContext.getProperty(START_PROPERTY);
+    return start == null ? Duration.ZERO : Duration.ofNanos(System.nanoTime() - (Long) start);
+  }
+
+  /**
+   * Replaces the ids and names in the path of a request with placeholders and strips the API
+   * version, e.g. {@code /v1.41/containers/4fa6e0f0c678/json} becomes {@code containers/{id}/json}.
+   */
+  static String endpoint(final String path) {
+    final List<String> segments = new ArrayList<>();
+    for (final String segment : path.split("/")) {
+      if (!segment.isEmpty()) {
+        segments.add(segment);
+      }
+    }
+    if (!segments.isEmpty() && API_VERSION.matcher(segments.get(0)).matches()) {
+      segments.remove(0);
+    }
+    if (segments.size() > 1) {
+      final String collection = segments.get(0);
+      final String member = segments.get(1);
+      if (COLLECTIONS.contains(collection) && !COLLECTION_ACTIONS.contains(member)) {
+        segments.set(1, "{id}");
+      } else if (NAMED_COLLECTIONS.contains(collection) && !COLLECTION_ACTIONS.contains(member)) {
+        final String last = segments.get(segments.size() - 1);
+        final int end = segments.size() > 2 && MEMBER_ACTIONS.contains(last)
+            ? segments.size() - 1 : segments.size();
+        segments.subList(1, end).clear();
+        segments.add(1, "{name}");
+      }
+    }
+    return String.join("/", segments);
+  }
+}
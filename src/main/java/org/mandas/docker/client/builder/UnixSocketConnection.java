@@ -0,0 +1,221 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client.builder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A connection of {@link UnixSocketConnector}: a non-blocking {@link SocketChannel} with a read
+ * and a write buffer, waiting on its own {@link Selector} so that reads time out and the waiting
+ * thread can be interrupted.
+ */
+class UnixSocketConnection implements Closeable {
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private final SocketChannel channel;
+  private final Selector selector;
+  private final SelectionKey key;
+  private final ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE).flip();
+  private final ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE);
+  private final OutputStream output = new ChannelOutputStream();
+  private final StringBuilder line = new StringBuilder();
+  private long timeoutMillis;
+
+  private UnixSocketConnection(final SocketChannel channel, final Selector selector)
+      throws IOException {
+    this.channel = channel;
+    this.selector = selector;
+    this.key = channel.register(selector, 0);
+  }
+
+  static UnixSocketConnection open(final UnixDomainSocketAddress address) throws IOException {
+    final SocketChannel channel = SocketChannel.open(address);
+    try {
+      channel.configureBlocking(false);
+      return new UnixSocketConnection(channel, Selector.open());
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * @param timeoutMillis the longest wait for the daemon, or 0 to wait forever
+   */
+  void timeout(final long timeoutMillis) {
+    this.timeoutMillis = timeoutMillis;
+  }
+
+  /**
+   * An idle connection is stale if the daemon closed it, or sent something it wasn't asked for.
+   */
+  boolean isStale() {
+    if (in.hasRemaining()) {
+      return true;
+    }
+    try {
+      in.clear();
+      final int read = channel.read(in);
+      in.flip();
+      return read != 0;
+    } catch (IOException e) {
+      return true;
+    }
+  }
+
+  /**
+   * @return the next line without its line terminator, or null if the daemon closed the connection
+   */
+  String readLine() throws IOException {
+    line.setLength(0);
+    while (true) {
+      while (in.hasRemaining()) {
+        final char c = (char) (in.get() & 0xff);
+        if (c == '\n') {
+          final int end = line.length();
+          return end > 0 && line.charAt(end - 1) == '\r'
+              ? line.substring(0, end - 1) : line.toString();
+        }
+        line.append(c);
+      }
+      if (!fill()) {
+        return line.length() == 0 ? null : line.toString();
+      }
+    }
+  }
+
+  int read(final byte[] b, final int off, final int len) throws IOException {
+    if (!in.hasRemaining() && !fill()) {
+      return -1;
+    }
+    final int n = Math.min(len, in.remaining());
+    in.get(b, off, n);
+    return n;
+  }
+
+  /**
+   * @return a buffered stream writing to the channel; closing it only flushes it
+   */
+  OutputStream output() {
+    return output;
+  }
+
+  private boolean fill() throws IOException {
+    in.compact();
+    try {
+      int read;
+      while ((read = channel.read(in)) == 0) {
+        await(SelectionKey.OP_READ);
+      }
+      return read > 0;
+    } finally {
+      in.flip();
+    }
+  }
+
+  private void drain() throws IOException {
+    out.flip();
+    try {
+      writeFully(out);
+    } finally {
+      out.clear();
+    }
+  }
+
+  private void writeFully(final ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.write(buffer) == 0) {
+        await(SelectionKey.OP_WRITE);
+      }
+    }
+  }
+
+  private void await(final int operation) throws IOException {
+    key.interestOps(operation);
+    final int ready = selector.select(timeoutMillis);
+    selector.selectedKeys().clear();
+    if (Thread.currentThread().isInterrupted()) {
+      throw new InterruptedIOException();
+    }
+    if (ready == 0 && timeoutMillis > 0) {
+      throw new SocketTimeoutException("Timed out after " + timeoutMillis + "ms");
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      selector.close();
+    } finally {
+      channel.close();
+    }
+  }
+
+  private class ChannelOutputStream extends OutputStream {
+
+    @Override
+    public void write(final int b) throws IOException {
+      if (!out.hasRemaining()) {
+        drain();
+      }
+      out.put((byte) b);
+    }
+
+    @Override
+    public void write(final byte[] b, int off, int len) throws IOException {
+      if (len >= BUFFER_SIZE) {
+        // large writes, such as archive blocks, go to the channel without a copy
+        drain();
+        writeFully(ByteBuffer.wrap(b, off, len));
+        return;
+      }
+      while (len > 0) {
+        if (!out.hasRemaining()) {
+          drain();
+        }
+        final int n = Math.min(len, out.remaining());
+        out.put(b, off, n);
+        off += n;
+        len -= n;
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      drain();
+    }
+
+    @Override
+    public void close() throws IOException {
+      flush();
+    }
+  }
+}
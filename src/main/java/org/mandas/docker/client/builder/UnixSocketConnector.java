@@ -0,0 +1,546 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client.builder;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.ProtocolException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.UnixDomainSocketAddress;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.client.ClientRequest;
+import org.glassfish.jersey.client.ClientResponse;
+import org.glassfish.jersey.client.RequestEntityProcessing;
+import org.glassfish.jersey.client.spi.AsyncConnectorCallback;
+import org.glassfish.jersey.client.spi.Connector;
+import org.mandas.docker.client.ConnectionLeaseEvent;
+import org.mandas.docker.client.DockerClientListener;
+
+import jakarta.ws.rs.ProcessingException;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * A Jersey {@link Connector} talking HTTP/1.1 to the docker daemon over its unix socket, with a
+ * {@link java.nio.channels.SocketChannel} per connection instead of the Apache HTTP client.
+ *
+ * <p>Connections are kept alive in a pool of at most {@code maxConnections}, a connection being 
+ * returned to the pool once its response is read to the end. A response is read according to its
+ * {@code Content-Length}, as chunks, or, for the raw streams of attach and exec and for a
+ * {@code 101 Switching Protocols} upgrade, until the daemon closes the connection; such a
+ * connection is not reused.</p>
+ */
+class UnixSocketConnector implements Connector {
+
+  private final UnixDomainSocketAddress address;
+  private final int maxConnections;
+  private final long connectTimeoutMillis;
+  private final int readTimeoutMillis;
+  private final DockerClientListener listener;
+  private final Semaphore permits;
+  private final ConcurrentLinkedDeque<UnixSocketConnection> idle = new ConcurrentLinkedDeque<>();
+  private final AtomicInteger leased = new AtomicInteger();
+  private final AtomicInteger pending = new AtomicInteger();
+  private volatile boolean closed;
+
+  UnixSocketConnector(final Path socket, final int maxConnections, final long connectTimeoutMillis,
+                      final long readTimeoutMillis, final DockerClientListener listener) {
+    this.address = UnixDomainSocketAddress.of(socket);
+    this.maxConnections = maxConnections;
+    this.connectTimeoutMillis = connectTimeoutMillis;
+    this.readTimeoutMillis = (int) readTimeoutMillis;
+    this.listener = listener;
+    this.permits = new Semaphore(maxConnections, true);
+  }
+
+  @Override
+  public ClientResponse apply(final ClientRequest request) {
+    final UnixSocketConnection connection;
+    try {
+      connection = lease(
+          request.resolveProperty(ClientProperties.CONNECT_TIMEOUT, (int) connectTimeoutMillis));
+    } catch (IOException e) {
+      throw new ProcessingException(e);
+    }
+    try {
+      connection.timeout(request.resolveProperty(ClientProperties.READ_TIMEOUT, readTimeoutMillis));
+      write(request, connection);
+      return read(request, connection);
+    } catch (IOException e) {
+      release(connection, false);
+      throw new ProcessingException(e);
+    } catch (RuntimeException e) {
+      release(connection, false);
+      throw e;
+    }
+  }
+
+  @Override
+  public Future<?> apply(final ClientRequest request, final AsyncConnectorCallback callback) {
+    final FutureTask<ClientResponse> task = new FutureTask<>(() -> {
+      try {
+        final ClientResponse response = apply(request);
+        callback.response(response);
+        return response;
+      } catch (RuntimeException e) {
+        callback.failure(e);
+        throw e;
+      }
+    });
+    Thread.ofVirtual().name("docker-unix-socket").start(task);
+    return task;
+  }
+
+  @Override
+  public String getName() {
+    return "Unix domain socket channel";
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    UnixSocketConnection connection;
+    while ((connection = idle.pollFirst()) != null) {
+      closeQuietly(connection);
+    }
+  }
+
+  private UnixSocketConnection lease(final long connectTimeoutMillis) throws IOException {
+    final long start = System.nanoTime();
+    pending.incrementAndGet();
+    try {
+      final boolean acquired;
+      if (connectTimeoutMillis > 0) {
+        acquired = permits.tryAcquire(connectTimeoutMillis, TimeUnit.MILLISECONDS);
+      } else {
+        permits.acquire();
+        acquired = true;
+      }
+      if (!acquired) {
+        throw new SocketTimeoutException("Timed out after " + connectTimeoutMillis
+            + "ms waiting for one of " + maxConnections + " connections");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      leased(start, e);
+      throw new InterruptedIOException("Interrupted waiting for a connection");
+    } catch (IOException e) {
+      leased(start, e);
+      throw e;
+    } finally {
+      pending.decrementAndGet();
+    }
+    leased.incrementAndGet();
+    try {
+      UnixSocketConnection connection;
+      while ((connection = idle.pollFirst()) != null) {
+        if (!connection.isStale()) {
+          leased(start, null);
+          return connection;
+        }
+        closeQuietly(connection);
+      }
+      connection = UnixSocketConnection.open(address);
+      leased(start, null);
+      return connection;
+    } catch (IOException | RuntimeException e) {
+      leased.decrementAndGet();
+      permits.release();
+      leased(start, e);
+      throw e;
+    }
+  }
+
+  private void leased(final long start, final Exception failure) {
+    if (listener != null) {
+      listener.connectionLeased(new ConnectionLeaseEvent(Duration.ofNanos(System.nanoTime() - start),
+          leased.get(), pending.get(), idle.size(), maxConnections,
+          failure == null ? null : failure.getClass()));
+    }
+  }
+
+  private void release(final UnixSocketConnection connection, final boolean reusable) {
+    if (reusable && !closed) {
+      idle.addFirst(connection);
+    } else {
+      closeQuietly(connection);
+    }
+    leased.decrementAndGet();
+    permits.release();
+  }
+
+  private static void write(final ClientRequest request, final UnixSocketConnection connection)
+      throws IOException {
+    final OutputStream out = connection.output();
+    if (!request.hasEntity()) {
+      out.write(head(request, -1, false));
+      out.flush();
+      return;
+    }
+    if (request.resolveProperty(ClientProperties.REQUEST_ENTITY_PROCESSING,
+        RequestEntityProcessing.CHUNKED) == RequestEntityProcessing.BUFFERED) {
+      request.enableBuffering();
+    }
+    request.setStreamProvider(length -> {
+      out.write(head(request, length, length < 0));
+      return length < 0 ? new BufferedOutputStream(new ChunkedOutputStream(out), 8192) : out;
+    });
+    request.writeEntity();
+    out.flush();
+  }
+
+  private static byte[] head(final ClientRequest request, final long length, final boolean chunked) {
+    final URI uri = request.getUri();
+    final StringBuilder head = new StringBuilder(256)
+        .append(request.getMethod()).append(' ')
+        .append(uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath())
+        .append(uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery())
+        .append(" HTTP/1.1\r\nHost: ")
+        .append(uri.getHost() == null ? "localhost" : uri.getHost())
+        .append("\r\n");
+    for (final Map.Entry<String, List<String>> header : request.getStringHeaders().entrySet()) {
+      final String name = header.getKey();
+      if (name.equalsIgnoreCase("Host") || name.equalsIgnoreCase("Content-Length")
+          || name.equalsIgnoreCase("Transfer-Encoding")) {
+        continue;
+      }
+      for (final String value : header.getValue()) {
+        head.append(name).append(": ").append(value).append("\r\n");
+      }
+    }
+    if (chunked) {
+      head.append("Transfer-Encoding: chunked\r\n");
+    } else if (length >= 0) {
+      head.append("Content-Length: ").append(length).append("\r\n");
+    }
+    return head.append("\r\n").toString().getBytes(ISO_8859_1);
+  }
+
+  private ClientResponse read(final ClientRequest request, final UnixSocketConnection connection)
+      throws IOException {
+    String statusLine;
+    int status;
+    do {
+      statusLine = connection.readLine();
+      if (statusLine == null) {
+        throw new EOFException("The daemon closed the connection without a response");
+      }
+      status = status(statusLine);
+      if (status / 100 == 1 && status != 101) {
+        // an interim response, such as 100 Continue, is followed by the actual one
+        String skipped;
+        while ((skipped = connection.readLine()) != null && !skipped.isEmpty()) {
+          // skip its headers
+        }
+      }
+    } while (status / 100 == 1 && status != 101);
+
+    final int space = statusLine.indexOf(' ', statusLine.indexOf(' ') + 1);
+    final ClientResponse response = new ClientResponse(
+        statusType(status, space < 0 ? "" : statusLine.substring(space + 1)), request);
+    long length = -1;
+    boolean chunked = false;
+    boolean keepAlive = true;
+    String header;
+    while ((header = connection.readLine()) != null && !header.isEmpty()) {
+      final int colon = header.indexOf(':');
+      if (colon <= 0) {
+        throw new ProtocolException("Malformed header: " + header);
+      }
+      final String name = header.substring(0, colon).trim();
+      final String value = header.substring(colon + 1).trim();
+      if (name.equalsIgnoreCase("Content-Length")) {
+        length = Long.parseLong(value);
+      } else if (name.equalsIgnoreCase("Transfer-Encoding")) {
+        chunked = value.equalsIgnoreCase("chunked");
+      } else if (name.equalsIgnoreCase("Connection")) {
+        keepAlive = !value.equalsIgnoreCase("close");
+      }
+      response.header(name, value);
+    }
+    if (header == null) {
+      throw new EOFException("The daemon closed the connection within the response headers");
+    }
+
+    final Body body;
+    if (status == 101) {
+      body = new RawBody(connection);
+    } else if (request.getMethod().equals("HEAD") || status == 204 || status == 304) {
+      body = new FixedLengthBody(connection, 0, keepAlive);
+    } else if (chunked) {
+      body = new ChunkedBody(connection, keepAlive);
+    } else if (length >= 0) {
+      body = new FixedLengthBody(connection, length, keepAlive);
+    } else {
+      body = new RawBody(connection);
+    }
+    response.setEntityStream(body);
+    return response;
+  }
+
+  private static int status(final String statusLine) throws ProtocolException {
+    final int space = statusLine.indexOf(' ');
+    if (!statusLine.startsWith("HTTP/1.") || space < 0 || statusLine.length() < space + 4) {
+      throw new ProtocolException("Malformed status line: " + statusLine);
+    }
+    try {
+      return Integer.parseInt(statusLine.substring(space + 1, space + 4));
+    } catch (NumberFormatException e) {
+      throw new ProtocolException("Malformed status line: " + statusLine);
+    }
+  }
+
+  private static Response.StatusType statusType(final int status, final String reasonPhrase) {
+    final Response.Status known = Response.Status.fromStatusCode(status);
+    if (known != null) {
+      return known;
+    }
+    return new Response.StatusType() {
+      @Override
+      public int getStatusCode() {
+        return status;
+      }
+
+      @Override
+      public Response.Status.Family getFamily() {
+        return Response.Status.Family.familyOf(status);
+      }
+
+      @Override
+      public String getReasonPhrase() {
+        return reasonPhrase;
+      }
+    };
+  }
+
+  private static void closeQuietly(final UnixSocketConnection connection) {
+    try {
+      connection.close();
+    } catch (IOException e) {
+      // the connection is discarded anyway
+    }
+  }
+
+  /**
+   * A response body, returning its connection to the pool as soon as it is read to the end, or 
+   * closing the connection if the body is closed before.
+   */
+  private abstract class Body extends InputStream {
+
+    final UnixSocketConnection connection;
+    private final boolean reusable;
+    private boolean done;
+    private boolean released;
+
+    Body(final UnixSocketConnection connection, final boolean reusable) {
+      this.connection = connection;
+      this.reusable = reusable;
+    }
+
+    abstract int readBody(byte[] b, int off, int len) throws IOException;
+
+    @Override
+    public int read() throws IOException {
+      final byte[] b = new byte[1];
+      final int n = read(b, 0, 1);
+      return n < 0 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+      if (released && !done) {
+        throw new IOException("Stream closed");
+      }
+      if (done) {
+        return -1;
+      }
+      if (len == 0) {
+        return 0;
+      }
+      final int n;
+      try {
+        n = readBody(b, off, len);
+      } catch (IOException e) {
+        release(false);
+        throw e;
+      }
+      if (n < 0) {
+        done = true;
+        release(reusable);
+      }
+      return n;
+    }
+
+    final void finished() {
+      done = true;
+      release(reusable);
+    }
+
+    private void release(final boolean reuse) {
+      if (!released) {
+        released = true;
+        UnixSocketConnector.this.release(connection, reuse);
+      }
+    }
+
+    @Override
+    public void close() {
+      release(done && reusable);
+    }
+  }
+
+  private class FixedLengthBody extends Body {
+
+    private long remaining;
+
+    FixedLengthBody(final UnixSocketConnection connection, final long length,
+                    final boolean keepAlive) {
+      super(connection, keepAlive);
+      this.remaining = length;
+      if (length == 0) {
+        finished();
+      }
+    }
+
+    @Override
+    int readBody(final byte[] b, final int off, final int len) throws IOException {
+      if (remaining == 0) {
+        return -1;
+      }
+      final int n = connection.read(b, off, (int) Math.min(len, remaining));
+      if (n < 0) {
+        throw new EOFException("The daemon closed the connection with " + remaining
+            + " bytes of the response left");
+      }
+      remaining -= n;
+      if (remaining == 0) {
+        finished();
+      }
+      return n;
+    }
+  }
+
+  private class ChunkedBody extends Body {
+
+    private long remaining;
+    private boolean first = true;
+
+    ChunkedBody(final UnixSocketConnection connection, final boolean keepAlive) {
+      super(connection, keepAlive);
+    }
+
+    @Override
+    int readBody(final byte[] b, final int off, final int len) throws IOException {
+      if (remaining == 0) {
+        if (!first) {
+          line(); // the line break ending the previous chunk
+        }
+        first = false;
+        final String size = line();
+        final int extension = size.indexOf(';');
+        try {
+          remaining = Long.parseLong((extension < 0 ? size : size.substring(0, extension)).trim(),
+              16);
+        } catch (NumberFormatException e) {
+          throw new ProtocolException("Malformed chunk size: " + size);
+        }
+        if (remaining == 0) {
+          while (!line().isEmpty()) {
+            // skip the trailers
+          }
+          return -1;
+        }
+      }
+      final int n = connection.read(b, off, (int) Math.min(len, remaining));
+      if (n < 0) {
+        throw new EOFException("The daemon closed the connection within a chunk");
+      }
+      remaining -= n;
+      return n;
+    }
+
+    private String line() throws IOException {
+      final String line = connection.readLine();
+      if (line == null) {
+        throw new EOFException("The daemon closed the connection between chunks");
+      }
+      return line;
+    }
+  }
+
+  private class RawBody extends Body {
+
+    RawBody(final UnixSocketConnection connection) {
+      super(connection, false);
+    }
+
+    @Override
+    int readBody(final byte[] b, final int off, final int len) throws IOException {
+      return connection.read(b, off, len);
+    }
+  }
+
+  private static class ChunkedOutputStream extends FilterOutputStream {
+
+    ChunkedOutputStream(final OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+      if (len > 0) {
+        out.write((Integer.toHexString(len) + "\r\n").getBytes(ISO_8859_1));
+        out.write(b, off, len);
+        out.write('\r');
+        out.write('\n');
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      out.write("0\r\n\r\n".getBytes(ISO_8859_1));
+      out.flush();
+    }
+  }
+}
@@ -0,0 +1,103 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+import org.mandas.docker.client.exceptions.DockerException;
+import org.mandas.docker.client.exceptions.ImagePullFailedException;
+import org.mandas.docker.client.messages.ProgressDetail;
+import org.mandas.docker.client.messages.ProgressMessage;
+
+public class AggregatingProgressHandlerTest {
+
+  private final List<ProgressMessage> received = new CopyOnWriteArrayList<>();
+
+  @Test
+  public void testSummarizesLayers() throws Exception {
+    final AggregatingProgressHandler handler =
+        new AggregatingProgressHandler(received::add, Duration.ZERO);
+
+    handler.progress(ProgressMessage.builder().id("latest").status("Pulling from library/busybox")
+        .build());
+    handler.progress(layer("a", "Downloading", 500, 1000));
+    handler.progress(layer("b", "Downloading", 2000, 3000));
+    handler.progress(layer("a", "Download complete", null, null));
+    handler.progress(layer("a", "Extracting", 1000, 1000));
+    handler.progress(layer("a", "Pull complete", null, null));
+
+    final AggregatingProgressHandler.Snapshot snapshot = handler.snapshot();
+    assertThat(snapshot.layers()).isEqualTo(2);
+    assertThat(snapshot.completeLayers()).isEqualTo(1);
+    assertThat(snapshot.current()).isEqualTo(3000);
+    assertThat(snapshot.total()).isEqualTo(4000);
+    assertThat(snapshot.bytes()).isEqualTo(3500);
+
+    assertThat(received.get(0).status()).isEqualTo("Pulling from library/busybox");
+    assertThat(received).hasSize(6);
+    final ProgressMessage last = received.get(5);
+    assertThat(last.id()).isNull();
+    assertThat(last.progressDetail()).isEqualTo(new ProgressDetail(3000L, 0L, 4000L));
+    assertThat(last.progress()).startsWith("1/2 layers, 3.0 kB/4.0 kB, ");
+  }
+
+  @Test
+  public void testThrottlesSummaries() throws Exception {
+    final AggregatingProgressHandler handler =
+        new AggregatingProgressHandler(received::add, Duration.ofHours(1));
+
+    for (int i = 1; i <= 1000; i++) {
+      handler.progress(layer("a", "Downloading", i, 1000));
+    }
+    assertThat(received).isEmpty();
+
+    handler.progress(ProgressMessage.builder().status("Digest: sha256:1").build());
+    assertThat(received).hasSize(2);
+    assertThat(received.get(0).progressDetail()).isEqualTo(new ProgressDetail(1000L, 0L, 1000L));
+    assertThat(received.get(1).status()).isEqualTo("Digest: sha256:1");
+  }
+
+  @Test
+  public void testPassesErrorsImmediately() throws Exception {
+    final AggregatingProgressHandler handler = new AggregatingProgressHandler(
+        new LoggingPullHandler("busybox"), Duration.ofHours(1));
+
+    handler.progress(layer("a", "Downloading", 1, 1000));
+    assertThatThrownBy(() -> handler.progress(ProgressMessage.builder().error("denied").build()))
+        .isInstanceOf(ImagePullFailedException.class);
+  }
+
+  private static ProgressMessage layer(final String id, final String status, final Integer current,
+                                       final Integer total) throws DockerException {
+    return ProgressMessage.builder()
+        .id(id)
+        .status(status)
+        .progressDetail(new ProgressDetail(current == null ? null : current.longValue(), null,
+            total == null ? null : total.longValue()))
+        .build();
+  }
+}
@@ -0,0 +1,65 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class ArchivePipeTest {
+
+  @Test
+  public void testFailureAfterData() throws Exception {
+    try (InputStream in = ArchivePipe.start(out -> {
+      out.write(new byte[] {1, 2, 3});
+      throw new IOException("unreadable");
+    }, "test", 2, 1)) {
+      assertThat(in.readNBytes(3), is(new byte[] {1, 2, 3}));
+      final IOException e = assertThrows(IOException.class, in::read);
+      assertThat(e.getCause().getMessage(), is("unreadable"));
+    }
+  }
+
+  @Test
+  public void testCloseStopsProducer() throws Exception {
+    final CountDownLatch stopped = new CountDownLatch(1);
+    final InputStream in = ArchivePipe.start(out -> {
+      try {
+        while (true) {
+          out.write(0);
+        }
+      } finally {
+        stopped.countDown();
+      }
+    }, "test", 16, 1);
+    assertThat(in.read(), is(0));
+    in.close();
+
+    assertThat(stopped.await(5, TimeUnit.SECONDS), is(true));
+  }
+}
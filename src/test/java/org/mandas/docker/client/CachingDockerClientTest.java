@@ -0,0 +1,129 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mandas.docker.client.messages.Container;
+import org.mandas.docker.client.messages.ContainerInfo;
+
+class CachingDockerClientTest {
+
+  private final DockerClient delegate = mock(DockerClient.class);
+  private final PipedOutputStream events = new PipedOutputStream();
+  private CachingDockerClient client;
+
+  @BeforeEach
+  void setup() throws Exception {
+    when(delegate.events()).thenReturn(
+        new EventStream(new PipedInputStream(events), ObjectMapperProvider.objectMapper()));
+    when(delegate.inspectContainer("abc123")).thenReturn(
+        containerInfo("abc123", true), containerInfo("abc123", false));
+    client = CachingDockerClient.builder(delegate)
+        .containers(Duration.ofMinutes(1), 10)
+        .containerLists(Duration.ofMinutes(1), 10)
+        .build();
+    final long deadline = System.nanoTime() + 10_000_000_000L;
+    while (!client.isConnected() && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+  }
+
+  @AfterEach
+  void tearDown() {
+    client.close();
+  }
+
+  @Test
+  void testCachesUntilEvent() throws Exception {
+    assertThat(client.inspectContainer("abc123").state().running()).isTrue();
+    assertThat(client.inspectContainer("abc123").state().running()).isTrue();
+    verify(delegate, times(1)).inspectContainer("abc123");
+
+    events.write(("{\"Type\":\"container\",\"Action\":\"die\",\"Actor\":{\"ID\":\"abc123\"},"
+        + "\"time\":1700000000}\n").getBytes(StandardCharsets.UTF_8));
+    events.flush();
+
+    final long deadline = System.nanoTime() + 10_000_000_000L;
+    while (client.inspectContainer("abc123").state().running() && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(client.inspectContainer("abc123").state().running()).isFalse();
+  }
+
+  @Test
+  void testNetworkConnectInvalidatesContainer() throws Exception {
+    when(delegate.listContainers()).thenReturn(List.of(), List.of(container("abc123")));
+    assertThat(client.inspectContainer("abc123").state().running()).isTrue();
+    assertThat(client.listContainers()).isEmpty();
+
+    events.write(("{\"Type\":\"network\",\"Action\":\"connect\",\"Actor\":{\"ID\":\"net1\","
+        + "\"Attributes\":{\"container\":\"abc123\",\"name\":\"bridge\",\"type\":\"bridge\"}},"
+        + "\"time\":1700000000}\n").getBytes(StandardCharsets.UTF_8));
+    events.flush();
+
+    final long deadline = System.nanoTime() + 10_000_000_000L;
+    while (client.inspectContainer("abc123").state().running() && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(client.inspectContainer("abc123").state().running()).isFalse();
+    assertThat(client.listContainers()).extracting(Container::id).containsExactly("abc123");
+    verify(delegate, times(2)).listContainers();
+  }
+
+  @Test
+  void testInvalidatesOwnCalls() throws Exception {
+    assertThat(client.inspectContainer("abc123").state().running()).isTrue();
+    client.stopContainer("abc123", 10);
+    assertThat(client.inspectContainer("abc123").state().running()).isFalse();
+    verify(delegate, times(2)).inspectContainer("abc123");
+  }
+
+  @Test
+  void testInvalidatesOwnBulkCalls() throws Exception {
+    assertThat(client.inspectContainer("abc123").state().running()).isTrue();
+    client.stopContainers(List.of("abc123", "def456"), 10, 2);
+    assertThat(client.inspectContainer("abc123").state().running()).isFalse();
+    verify(delegate, times(2)).inspectContainer("abc123");
+  }
+
+  private static Container container(final String id) throws Exception {
+    return ObjectMapperProvider.objectMapper().readValue("{\"Id\":\"" + id + "\"}", Container.class);
+  }
+
+  private static ContainerInfo containerInfo(final String id, final boolean running) throws Exception {
+    return ObjectMapperProvider.objectMapper().readValue(
+        "{\"Id\":\"" + id + "\",\"State\":{\"Running\":" + running + "}}", ContainerInfo.class);
+  }
+}
@@ -0,0 +1,69 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+public class CallContextTest {
+
+  @Test
+  public void testNesting() {
+    assertThat(CallContext.current()).isNull();
+    try (CallContext outer = CallContext.withTimeout(Duration.ofSeconds(1))) {
+      try (CallContext inner = CallContext.withTimeout(Duration.ofHours(1))) {
+        assertThat(CallContext.current()).isSameAs(inner);
+        assertThat(inner.remaining()).isLessThanOrEqualTo(Duration.ofSeconds(1));
+        outer.cancel();
+        assertThat(inner.isCancelled()).isTrue();
+      }
+      assertThat(CallContext.current()).isSameAs(outer);
+      assertThat(Thread.currentThread().isInterrupted()).isTrue();
+    }
+    assertThat(CallContext.current()).isNull();
+    assertThat(Thread.currentThread().isInterrupted()).isFalse();
+  }
+
+  @Test
+  public void testExpiry() throws Exception {
+    try (CallContext context = CallContext.withTimeout(Duration.ofMillis(10))) {
+      Thread.sleep(20);
+      assertThat(context.isExpired()).isTrue();
+      assertThat(context.remaining()).isEqualTo(Duration.ZERO);
+    }
+    try (CallContext context = CallContext.open()) {
+      assertThat(context.isExpired()).isFalse();
+      assertThat(context.remaining()).isNull();
+    }
+  }
+
+  @Test
+  public void testCancelAfterClose() {
+    final CallContext context = CallContext.open();
+    context.close();
+    context.cancel();
+    assertThat(context.isCancelled()).isFalse();
+    assertThat(Thread.currentThread().isInterrupted()).isFalse();
+  }
+}
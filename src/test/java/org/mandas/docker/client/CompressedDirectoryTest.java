@@ -30,15 +30,21 @@ import com.google.common.io.Resources;
 
 import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.InputStream;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
 
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
 import org.junit.jupiter.api.Test;
 
@@ -107,4 +113,240 @@ public class CompressedDirectoryTest {
     }
   }
 
+
+  @Test
+  public void testFileWithParallelCompression() throws Exception {
+    final URL dockerDirectory = Resources.getResource("dockerDirectory");
+    final BuildContextOptions options = BuildContextOptions.builder()
+        .compressionThreads(4)
+        .blockSize(512)
+        .build();
+    try (CompressedDirectory dir = CompressedDirectory.create(Paths.get(dockerDirectory.toURI()), options);
+         BufferedInputStream fileIn = new BufferedInputStream(Files.newInputStream(dir.file()));
+         GzipCompressorInputStream gzipIn = new GzipCompressorInputStream(fileIn, true);
+         TarArchiveInputStream tarIn = new TarArchiveInputStream(gzipIn)) {
+
+      final List<String> names = new ArrayList<>();
+      TarArchiveEntry entry;
+      while ((entry = tarIn.getNextEntry()) != null) {
+        final String name = entry.getName();
+        names.add(name);
+      }
+      assertThat(names,
+                 containsInAnyOrder("Dockerfile", "bin/", "bin/date.sh",
+                                    "innerDir/", "innerDir/innerDockerfile"));
+    }
+  }
+
+  @Test
+  public void testOpenStreaming() throws Exception {
+    final URL dockerDirectory = Resources.getResource("dockerDirectory");
+    final BuildContextOptions options = BuildContextOptions.builder()
+        .streaming(true)
+        .build();
+    try (InputStream archive = CompressedDirectory.open(Paths.get(dockerDirectory.toURI()), options);
+         GzipCompressorInputStream gzipIn = new GzipCompressorInputStream(archive);
+         TarArchiveInputStream tarIn = new TarArchiveInputStream(gzipIn)) {
+
+      final List<String> names = new ArrayList<>();
+      TarArchiveEntry entry;
+      while ((entry = tarIn.getNextEntry()) != null) {
+        final String name = entry.getName();
+        names.add(name);
+      }
+      assertThat(names,
+                 containsInAnyOrder("Dockerfile", "bin/", "bin/date.sh",
+                                    "innerDir/", "innerDir/innerDockerfile"));
+    }
+  }
+
+  @Test
+  public void testIgnoreRules() throws Exception {
+    final Path directory = Paths.get(Resources.getResource("dockerDirectoryWithIgnore").toURI());
+    final CompressedDirectory.IgnoreRules rules = new CompressedDirectory.IgnoreRules(
+        directory.getFileSystem(),
+        CompressedDirectory.parseDockerIgnore(directory.resolve(".dockerignore")));
+
+    assertThat(rules.isExclude(rules.match(Paths.get("foo.ignore"))), is(true));
+    assertThat(rules.isExclude(rules.match(Paths.get("subdir2/foo.ignore"))), is(true));
+    assertThat(rules.isExclude(rules.match(Paths.get("subdir2/do-not.ignore"))), is(false));
+    assertThat(rules.isExclude(rules.match(Paths.get("subdir3/do.keep"))), is(false));
+    assertThat(rules.isExclude(rules.match(Paths.get("subdir/a/b"))), is(true));
+    assertThat(rules.isExclude(rules.match(Paths.get("Dockerfile"))), is(false));
+
+    // nothing under subdir is included again, but subdir3/*.keep is
+    final Path subdir = Paths.get("subdir");
+    assertThat(rules.excludesSubtree(subdir, rules.match(subdir)), is(true));
+    final Path subdir3 = Paths.get("subdir3");
+    assertThat(rules.excludesSubtree(subdir3, rules.match(subdir3)), is(false));
+  }
+
+  @Test
+  public void testCachedArchive() throws Exception {
+    final Path tempDir = Files.createTempDirectory("dockerDirectoryCached");
+    final Path cacheDir = Files.createTempDirectory("dockerDirectoryCache");
+    Files.writeString(tempDir.resolve("Dockerfile"), "FROM scratch\n");
+    Files.createDirectory(tempDir.resolve("src"));
+    Files.writeString(tempDir.resolve("src/a.txt"), "a");
+    final BuildContextOptions options = BuildContextOptions.builder()
+        .cacheDirectory(cacheDir)
+        .build();
+
+    final Path first;
+    try (CompressedDirectory dir = CompressedDirectory.create(tempDir, options)) {
+      first = dir.file();
+    }
+    try (CompressedDirectory dir = CompressedDirectory.create(tempDir, options)) {
+      assertThat(dir.file(), is(first));
+    }
+
+    Files.writeString(tempDir.resolve("src/a.txt"), "changed");
+    Files.setLastModifiedTime(tempDir.resolve("src/a.txt"),
+        FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+    try (CompressedDirectory dir = CompressedDirectory.create(tempDir, options);
+         BufferedInputStream fileIn = new BufferedInputStream(Files.newInputStream(dir.file()));
+         GzipCompressorInputStream gzipIn = new GzipCompressorInputStream(fileIn, true);
+         TarArchiveInputStream tarIn = new TarArchiveInputStream(gzipIn)) {
+      assertThat(dir.file().equals(first), is(false));
+      assertThat(Files.exists(first), is(false));
+
+      final List<String> names = new ArrayList<>();
+      TarArchiveEntry entry;
+      while ((entry = tarIn.getNextEntry()) != null) {
+        names.add(entry.getName());
+        if (entry.getName().equals("src/a.txt")) {
+          assertThat(new String(tarIn.readAllBytes(), StandardCharsets.UTF_8), is("changed"));
+        }
+      }
+      assertThat(names, containsInAnyOrder("Dockerfile", "src/", "src/a.txt"));
+    }
+    try (Stream<Path> entries = Files.list(cacheDir.resolve("entries"))) {
+      // the unchanged entries are shared by both archives
+      assertThat(entries.count(), is(4L));
+    }
+  }
+
+  @Test
+  public void testCachedArchiveInUse() throws Exception {
+    final Path tempDir = Files.createTempDirectory("dockerDirectoryCached");
+    final Path cacheDir = Files.createTempDirectory("dockerDirectoryCache");
+    final Path dockerfile = Files.writeString(tempDir.resolve("Dockerfile"), "FROM alpine\n");
+    final BuildContextOptions options = BuildContextOptions.builder()
+        .cacheDirectory(cacheDir)
+        .build();
+
+    final Path first;
+    final Path second;
+    try (CompressedDirectory inUse = CompressedDirectory.create(tempDir, options)) {
+      first = inUse.file();
+      // the same archive used twice at once
+      try (CompressedDirectory again = CompressedDirectory.create(tempDir, options)) {
+        assertThat(again.file(), is(first));
+      }
+      Files.writeString(dockerfile, "FROM ubuntu\n");
+      Files.setLastModifiedTime(dockerfile, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+      try (CompressedDirectory dir = CompressedDirectory.create(tempDir, options)) {
+        second = dir.file();
+      }
+      // a concurrent build is still reading it
+      assertThat(Files.exists(first), is(true));
+    }
+
+    Files.writeString(dockerfile, "FROM debian\n");
+    Files.setLastModifiedTime(dockerfile, FileTime.fromMillis(System.currentTimeMillis() + 20_000));
+    try (CompressedDirectory dir = CompressedDirectory.create(tempDir, options)) {
+      assertThat(Files.exists(dir.file()), is(true));
+      assertThat(Files.exists(first), is(false));
+      assertThat(Files.exists(second), is(false));
+    }
+  }
+
+  @Test
+  public void testCacheEviction() throws Exception {
+    final Path tempDir = Files.createTempDirectory("dockerDirectoryCached");
+    final Path cacheDir = Files.createTempDirectory("dockerDirectoryCache");
+    final Path dockerfile = Files.writeString(tempDir.resolve("Dockerfile"), "FROM alpine\n");
+    final Path big = tempDir.resolve("big.bin");
+    final byte[] content = new byte[64 * 1024];
+    new Random(1).nextBytes(content);
+    Files.write(big, content);
+    final BuildContextOptions options = BuildContextOptions.builder()
+        .cacheDirectory(cacheDir)
+        .cacheMaxSize(32 * 1024)
+        .build();
+
+    try (CompressedDirectory dir = CompressedDirectory.create(tempDir, options)) {
+      assertThat(Files.exists(dir.file()), is(true));
+    }
+    // evicted down to the maximum size, the member of the random file alone exceeds it
+    final Path entries = cacheDir.resolve("entries");
+    try (Stream<Path> members = Files.list(entries)) {
+      assertThat(members.mapToLong(member -> member.toFile().length()).sum() <= 32 * 1024, is(true));
+    }
+
+    Files.writeString(dockerfile, "FROM ubuntu\n");
+    Files.setLastModifiedTime(dockerfile, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+    try (CompressedDirectory dir = CompressedDirectory.create(tempDir, options);
+         BufferedInputStream fileIn = new BufferedInputStream(Files.newInputStream(dir.file()));
+         GzipCompressorInputStream gzipIn = new GzipCompressorInputStream(fileIn, true);
+         TarArchiveInputStream tarIn = new TarArchiveInputStream(gzipIn)) {
+      TarArchiveEntry entry;
+      while ((entry = tarIn.getNextEntry()) != null) {
+        if (entry.getName().equals("big.bin")) {
+          assertThat(tarIn.readAllBytes(), is(content));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testCachedArchivesOfDifferentDirectories() throws Exception {
+    final Path cacheDir = Files.createTempDirectory("dockerDirectoryCache");
+    final FileTime mtime = FileTime.fromMillis(1_700_000_000_000L);
+    final BuildContextOptions options = BuildContextOptions.builder()
+        .cacheDirectory(cacheDir)
+        .build();
+
+    for (final String content : List.of("FROM alpine\n", "FROM ubuntu\n")) {
+      final Path tempDir = Files.createTempDirectory("dockerDirectoryCached");
+      Files.writeString(tempDir.resolve("Dockerfile"), content);
+      Files.setLastModifiedTime(tempDir.resolve("Dockerfile"), mtime);
+      Files.setLastModifiedTime(tempDir, mtime);
+      try (CompressedDirectory dir = CompressedDirectory.create(tempDir, options);
+           BufferedInputStream fileIn = new BufferedInputStream(Files.newInputStream(dir.file()));
+           GzipCompressorInputStream gzipIn = new GzipCompressorInputStream(fileIn, true);
+           TarArchiveInputStream tarIn = new TarArchiveInputStream(gzipIn)) {
+        final TarArchiveEntry entry = tarIn.getNextEntry();
+        assertThat(entry.getName(), is("Dockerfile"));
+        assertThat(new String(tarIn.readAllBytes(), StandardCharsets.UTF_8), is(content));
+      }
+    }
+  }
+
+  @Test
+  public void testCompressions() throws Exception {
+    final Path directory = Paths.get(Resources.getResource("dockerDirectory").toURI());
+    for (final ContextCompression compression : List.of(ContextCompression.IDENTITY,
+        ContextCompression.BZIP2, ContextCompression.XZ)) {
+      final BuildContextOptions options = BuildContextOptions.builder()
+          .compression(compression)
+          .compressionLevel(1)
+          .build();
+      try (CompressedDirectory dir = CompressedDirectory.create(directory, options);
+           BufferedInputStream fileIn = new BufferedInputStream(Files.newInputStream(dir.file()));
+           InputStream in = compression == ContextCompression.IDENTITY
+               ? fileIn : new CompressorStreamFactory().createCompressorInputStream(fileIn);
+           TarArchiveInputStream tarIn = new TarArchiveInputStream(in)) {
+
+        final List<String> names = new ArrayList<>();
+        TarArchiveEntry entry;
+        while ((entry = tarIn.getNextEntry()) != null) {
+          names.add(entry.getName());
+        }
+        assertThat(names,
+                   containsInAnyOrder("Dockerfile", "bin/", "bin/date.sh",
+                                      "innerDir/", "innerDir/innerDockerfile"));
+      }
+    }
+  }
 }
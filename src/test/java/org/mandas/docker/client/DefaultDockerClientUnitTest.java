@@ -26,30 +26,54 @@ import static java.util.Collections.singletonList;
 import static java.util.Collections.unmodifiableList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.io.Resources;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mandas.docker.client.DockerClient.BuildParam;
+import org.mandas.docker.client.DockerClient.LogsParam;
+import org.mandas.docker.client.DockerClient.RemoveContainerParam;
 import org.mandas.docker.client.DockerClient.Signal;
 import org.mandas.docker.client.builder.DockerClientBuilder;
 import org.mandas.docker.client.builder.DockerClientBuilder.EntityProcessing;
 import org.mandas.docker.client.exceptions.ConflictException;
+import org.mandas.docker.client.exceptions.ContainerNotFoundException;
 import org.mandas.docker.client.exceptions.DockerCertificateException;
 import org.mandas.docker.client.exceptions.DockerException;
 import org.mandas.docker.client.exceptions.NodeNotFoundException;
 import org.mandas.docker.client.exceptions.NonSwarmNodeException;
 import org.mandas.docker.client.exceptions.NotFoundException;
 import org.mandas.docker.client.messages.ContainerConfig;
+import org.mandas.docker.client.messages.ContainerExit;
+import org.mandas.docker.client.messages.ContainerInfo;
+import org.mandas.docker.client.messages.ContainerStats;
 import org.mandas.docker.client.messages.HostConfig;
 import org.mandas.docker.client.messages.HostConfig.Bind;
+import org.mandas.docker.client.messages.ProgressMessage;
 import org.mandas.docker.client.messages.swarm.ConfigSpec;
 import org.mandas.docker.client.messages.swarm.NodeSpec;
 import org.mandas.docker.client.messages.swarm.SwarmJoin;
@@ -59,10 +83,12 @@ import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.base.Preconditions;
 
+import mockwebserver3.Dispatcher;
 import mockwebserver3.MockResponse;
 import mockwebserver3.MockWebServer;
 import mockwebserver3.RecordedRequest;
 import okhttp3.HttpUrl;
+import okio.Buffer;
 import okio.ByteString;
 
 /**
@@ -686,6 +712,466 @@ class DefaultDockerClientUnitTest {
     }
   }
 
+  @Test
+  void testAsyncStartContainer() throws Exception {
+    try (final DefaultDockerClient dockerClient = builder.build()) {
+      server.enqueue(new MockResponse.Builder().code(204).build());
+
+      dockerClient.async().startContainer("1234").get(5, TimeUnit.SECONDS);
+
+      final RecordedRequest recordedRequest = server.takeRequest(5, TimeUnit.SECONDS);
+      assertThat(recordedRequest.getMethod()).isEqualTo("POST");
+      assertThat(recordedRequest.getUrl().encodedPath()).isEqualTo("/containers/1234/start");
+    }
+  }
+
+  @Test
+  void testAsyncWaitContainerOnStreamingClient() throws Exception {
+    // the wait outlasts the read timeout of the regular calls only
+    builder.readTimeoutMillis(500).streamingConnectionPoolSize(2).streamingReadTimeoutMillis(0);
+    try (final DefaultDockerClient dockerClient = builder.build()) {
+      server.enqueue(new MockResponse.Builder()
+          .code(200)
+          .addHeader("Content-Type", "application/json")
+          .body(createObjectNode().put("StatusCode", 3).toString())
+          .headersDelay(1500, TimeUnit.MILLISECONDS)
+          .build());
+
+      final ContainerExit exit = dockerClient.async().waitContainer("1234").get(5, TimeUnit.SECONDS);
+
+      assertThat(exit.statusCode()).isEqualTo(3L);
+      final RecordedRequest recordedRequest = server.takeRequest(5, TimeUnit.SECONDS);
+      assertThat(recordedRequest.getUrl().encodedPath()).isEqualTo("/containers/1234/wait");
+    }
+  }
+
+  @Test
+  void testAsyncInspectContainer() throws Exception {
+    try (final DefaultDockerClient dockerClient = builder.build()) {
+      enqueueServerApiResponse(200, createObjectNode()
+          .put("Id", "1234")
+          .put("Name", "/foo"));
+
+      final ContainerInfo info = dockerClient.async().inspectContainer("1234").get(5, TimeUnit.SECONDS);
+
+      assertThat(info.id()).isEqualTo("1234");
+      assertThat(info.name()).isEqualTo("/foo");
+    }
+  }
+
+  @Test
+  void testAsyncInspectMissingContainer() throws Exception {
+    try (final DefaultDockerClient dockerClient = builder.build()) {
+      server.enqueue(new MockResponse.Builder().code(404).build());
+
+      final CompletableFuture<ContainerInfo> future = dockerClient.async().inspectContainer("1234");
+
+      assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS))
+          .isInstanceOf(ExecutionException.class)
+          .hasCauseInstanceOf(ContainerNotFoundException.class);
+    }
+  }
+
+  @Test
+  void testPullOnSharedTailExecutor() throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(1);
+    builder.tailExecutorService(executor);
+
+    try (final DefaultDockerClient dockerClient = builder.build()) {
+      server.enqueue(new MockResponse.Builder()
+          .code(200)
+          .addHeader("Content-Type", "application/json")
+          .body("{\"status\":\"Pulling from library/busybox\",\"id\":\"latest\"}\n"
+              + "{\"status\":\"Download complete\",\"id\":\"abcdef\"}\n")
+          .build());
+
+      final List<ProgressMessage> messages = new CopyOnWriteArrayList<>();
+      dockerClient.pull("busybox:latest", messages::add);
+
+      assertThat(messages).extracting(ProgressMessage::status)
+          .containsExactly("Pulling from library/busybox", "Download complete");
+      assertThat(dockerClient.inFlightTails()).isZero();
+      // the shared executor must survive the call
+      assertThat(executor.isShutdown()).isFalse();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void testAggregateLogsOrderedByTimestamp() throws Exception {
+    server.setDispatcher(new Dispatcher() {
+      @Override
+      public MockResponse dispatch(RecordedRequest request) {
+        switch (request.getUrl().encodedPath()) {
+          case "/containers/first/logs":
+            return logsResponse("2024-01-01T00:00:01.000000001Z one\n", "2024-01-01T00:00:03Z three\n");
+          case "/containers/second/logs":
+            return logsResponse("2024-01-01T00:00:02.5Z two\n");
+          default:
+            return new MockResponse.Builder().code(404).build();
+        }
+      }
+    });
+
+    try (final DefaultDockerClient dockerClient = builder.build();
+        final AggregatedLogStream stream = dockerClient.aggregateLogs(asList("first", "second"),
+            LogsParam.stdout(), LogsParam.timestamps())) {
+      final List<String> lines = new ArrayList<>();
+      stream.forEachRemaining(message -> lines.add(message.containerId() + " "
+          + StandardCharsets.UTF_8.decode(message.message().content())));
+
+      assertThat(lines).containsExactly(
+          "first 2024-01-01T00:00:01.000000001Z one\n",
+          "second 2024-01-01T00:00:02.5Z two\n",
+          "first 2024-01-01T00:00:03Z three\n");
+      assertThat(stream.lag().get("first").messages()).isEqualTo(2);
+      assertThat(stream.lag().get("second").finished()).isTrue();
+    }
+  }
+
+  @Test
+  void testAggregateLogsResubscribes() throws Exception {
+    final AtomicInteger logRequests = new AtomicInteger();
+    final List<RecordedRequest> requests = new CopyOnWriteArrayList<>();
+    server.setDispatcher(new Dispatcher() {
+      @Override
+      public MockResponse dispatch(RecordedRequest request) {
+        requests.add(request);
+        if (request.getUrl().encodedPath().equals("/containers/first/json")) {
+          return new MockResponse.Builder()
+              .code(200)
+              .addHeader("Content-Type", "application/json")
+              .body("{\"State\":{\"Running\":" + (logRequests.get() < 2) + "}}")
+              .build();
+        }
+        if (logRequests.incrementAndGet() == 1) {
+          return logsResponse("2024-01-01T00:00:01Z one\n");
+        }
+        // the daemon only honours since in seconds, so the first line is sent again
+        return logsResponse("2024-01-01T00:00:01Z one\n", "2024-01-01T00:00:02Z two\n");
+      }
+    });
+
+    try (final DefaultDockerClient dockerClient = builder.build();
+        final AggregatedLogStream stream = dockerClient.aggregateLogs(singletonList("first"),
+            LogsParam.follow(), LogsParam.stdout(), LogsParam.tail(10))) {
+      final List<String> lines = new ArrayList<>();
+      stream.forEachRemaining(message -> lines.add(
+          StandardCharsets.UTF_8.decode(message.message().content()).toString()));
+
+      assertThat(lines).containsExactly("one\n", "two\n");
+      assertThat(stream.lag().get("first").resubscriptions()).isEqualTo(1);
+      assertThat(requests).filteredOn(request -> request.getUrl().encodedPath().endsWith("/logs"))
+          .last()
+          .satisfies(request -> {
+            assertThat(request.getUrl().queryParameter("since")).isEqualTo("1704067201");
+            assertThat(request.getUrl().queryParameter("tail")).isNull();
+            assertThat(request.getUrl().queryParameter("timestamps")).isEqualTo("true");
+          });
+    }
+  }
+
+  @Test
+  void testAggregateLogsThrowsRequestFailure() throws Exception {
+    final AtomicInteger failedRequests = new AtomicInteger();
+    server.setDispatcher(new Dispatcher() {
+      @Override
+      public MockResponse dispatch(RecordedRequest request) {
+        switch (request.getUrl().encodedPath()) {
+          case "/containers/first/logs":
+            failedRequests.incrementAndGet();
+            return new MockResponse.Builder().code(400).body("bad parameter").build();
+          case "/containers/second/logs":
+            return logsResponse("2024-01-01T00:00:01Z one\n");
+          default:
+            return new MockResponse.Builder()
+                .code(200)
+                .addHeader("Content-Type", "application/json")
+                .body("{\"State\":{\"Running\":false}}")
+                .build();
+        }
+      }
+    });
+
+    try (final DefaultDockerClient dockerClient = builder.build();
+        final AggregatedLogStream stream = dockerClient.aggregateLogs(asList("first", "second"),
+            LogsParam.follow(), LogsParam.stdout())) {
+      final List<String> lines = new ArrayList<>();
+      assertThatThrownBy(() -> stream.forEachRemaining(message -> lines.add(message.containerId())))
+          .hasMessageContaining("first")
+          .hasCauseInstanceOf(DockerException.class);
+      // the request is not retried, the other container goes on
+      stream.forEachRemaining(message -> lines.add(message.containerId()));
+
+      assertThat(lines).containsExactly("second");
+      assertThat(failedRequests.get()).isEqualTo(1);
+      assertThat(stream.lag().get("first").resubscriptions()).isZero();
+    }
+  }
+
+  @Test
+  void testStatsStreamWithDecimation() throws Exception {
+    final StringBuilder body = new StringBuilder();
+    for (int second = 1; second <= 5; second++) {
+      body.append("{\"read\":\"2024-01-01T00:00:0").append(second)
+          .append("Z\",\"networks\":{\"eth0\":{\"rx_bytes\":1}},\"cpu_stats\":{}}\n");
+    }
+    server.enqueue(new MockResponse.Builder()
+        .code(200)
+        .addHeader("Content-Type", "application/json")
+        .body(body.toString())
+        .build());
+
+    try (final DefaultDockerClient dockerClient = builder.build()) {
+      final List<ContainerStats> samples = new ArrayList<>();
+      dockerClient.statsStream("abc123", 2, samples::add);
+
+      assertThat(samples).extracting(stats -> stats.read().toInstant().getEpochSecond() % 60)
+          .containsExactly(2L, 4L);
+
+      final RecordedRequest recordedRequest = takeRequestImmediately();
+      assertThat(recordedRequest.getUrl().encodedPath()).isEqualTo("/containers/abc123/stats");
+      assertThat(recordedRequest.getUrl().queryParameter("stream")).isEqualTo("1");
+    }
+  }
+
+  @Test
+  void testBuildWithContextCompression() throws Exception {
+    server.enqueue(new MockResponse.Builder()
+        .code(200)
+        .addHeader("Content-Type", "application/json")
+        .body("{\"stream\":\"Successfully built abc123\\n\"}\n")
+        .build());
+
+    try (final DefaultDockerClient dockerClient = builder.build()) {
+      final Path directory = Paths.get(Resources.getResource("dockerDirectory").toURI());
+      final String imageId = dockerClient.build(directory, "test",
+          BuildParam.compression(ContextCompression.IDENTITY), BuildParam.noCache());
+
+      assertThat(imageId).isEqualTo("abc123");
+      final RecordedRequest recordedRequest = takeRequestImmediately();
+      assertThat(recordedRequest.getUrl().queryParameter("compression")).isNull();
+      assertThat(recordedRequest.getUrl().queryParameter("nocache")).isEqualTo("true");
+      // a plain tar starts with the name of its first entry, not with the gzip magic
+      final byte[] body = recordedRequest.getBody().toByteArray();
+      assertThat(body[0]).isNotEqualTo((byte) 0x1f);
+      assertThat(body.length % 512).isZero();
+    }
+  }
+
+  @Test
+  void testCopyToContainers() throws Exception {
+    final Set<String> bodies = ConcurrentHashMap.newKeySet();
+    server.setDispatcher(new Dispatcher() {
+      @Override
+      public MockResponse dispatch(RecordedRequest request) {
+        bodies.add(request.getBody().base64());
+        switch (request.getUrl().encodedPath()) {
+          case "/containers/missing/archive":
+            return new MockResponse.Builder().code(404).build();
+          case "/containers/stopping/archive":
+            return new MockResponse.Builder().code(409).build();
+          default:
+            return new MockResponse.Builder().code(200).build();
+        }
+      }
+    });
+
+    try (final DefaultDockerClient dockerClient = builder.build()) {
+      final Path directory = Paths.get(Resources.getResource("dockerDirectory").toURI());
+      final List<BulkOperationResult> results = dockerClient.copyToContainers(directory,
+          asList("first", "missing", "second", "stopping"), "/tmp", 2);
+
+      assertThat(results).extracting(BulkOperationResult::containerId, BulkOperationResult::outcome)
+          .containsExactly(
+              tuple("first", BulkOperationResult.Outcome.SUCCESS),
+              tuple("missing", BulkOperationResult.Outcome.NOT_FOUND),
+              tuple("second", BulkOperationResult.Outcome.SUCCESS),
+              tuple("stopping", BulkOperationResult.Outcome.CONFLICT));
+      // the archive was compressed once
+      assertThat(bodies).hasSize(1);
+    }
+  }
+
+  @Test
+  void testStopAndRemoveContainers() throws Exception {
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger peak = new AtomicInteger();
+    final List<String> removed = new CopyOnWriteArrayList<>();
+    server.setDispatcher(new Dispatcher() {
+      @Override
+      public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+        peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+        try {
+          Thread.sleep(50);
+          final String path = request.getUrl().encodedPath();
+          if (path.startsWith("/containers/missing")) {
+            return new MockResponse.Builder().code(404).build();
+          }
+          if (request.getMethod().equals("DELETE")) {
+            removed.add(path + "?" + request.getUrl().encodedQuery());
+          }
+          return new MockResponse.Builder().code(204).build();
+        } finally {
+          running.decrementAndGet();
+        }
+      }
+    });
+
+    try (final DefaultDockerClient dockerClient = builder.build()) {
+      final List<String> ids = asList("a", "b", "missing", "c", "d", "e");
+      final List<BulkOperationResult> stopped = dockerClient.stopContainers(ids, 10, 2);
+
+      assertThat(stopped).extracting(BulkOperationResult::containerId).containsExactlyElementsOf(ids);
+      assertThat(stopped).filteredOn(BulkOperationResult::isSuccess).hasSize(5);
+      assertThat(stopped.get(2).outcome()).isEqualTo(BulkOperationResult.Outcome.NOT_FOUND);
+      assertThat(peak.get()).isEqualTo(2);
+
+      final List<BulkOperationResult> results = dockerClient.removeContainers(asList("a", "b"), 4,
+          RemoveContainerParam.forceKill());
+      assertThat(results).allMatch(BulkOperationResult::isSuccess);
+      assertThat(removed).containsExactlyInAnyOrder("/containers/a?force=1",
+          "/containers/b?force=1");
+    }
+  }
+
+  @Test
+  void testConcurrentPullsShareOneRequest() throws Exception {
+    final AtomicInteger pulls = new AtomicInteger();
+    final CountDownLatch followerJoined = new CountDownLatch(1);
+    server.setDispatcher(new Dispatcher() {
+      @Override
+      public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+        pulls.incrementAndGet();
+        followerJoined.await(5, TimeUnit.SECONDS);
+        // give the follower time to attach to the flight
+        Thread.sleep(200);
+        return new MockResponse.Builder()
+            .code(200)
+            .addHeader("Content-Type", "application/json")
+            .body("{\"status\":\"Status: Downloaded newer image for busybox:latest\"}\n")
+            .build();
+      }
+    });
+
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try (final DefaultDockerClient dockerClient = builder.build()) {
+      final List<String> followerMessages = new CopyOnWriteArrayList<>();
+      final Future<?> leader = executor.submit(() -> {
+        dockerClient.pull("busybox:latest", message -> { });
+        return null;
+      });
+      final Future<?> follower = executor.submit(() -> {
+        Thread.sleep(100);
+        followerJoined.countDown();
+        dockerClient.pull("docker.io/library/busybox:latest",
+            message -> followerMessages.add(message.status()));
+        return null;
+      });
+      leader.get(10, TimeUnit.SECONDS);
+      follower.get(10, TimeUnit.SECONDS);
+
+      assertThat(pulls.get()).isEqualTo(1);
+      assertThat(followerMessages)
+          .containsExactly("Status: Downloaded newer image for busybox:latest");
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void testUntaggedPullDoesNotShareTaggedPull() throws Exception {
+    final List<String> tags = new CopyOnWriteArrayList<>();
+    final CountDownLatch bothSent = new CountDownLatch(2);
+    server.setDispatcher(new Dispatcher() {
+      @Override
+      public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+        tags.add(String.valueOf(request.getUrl().queryParameter("tag")));
+        bothSent.countDown();
+        // hold the first pull in flight until the second one is sent
+        bothSent.await(5, TimeUnit.SECONDS);
+        return new MockResponse.Builder()
+            .code(200)
+            .addHeader("Content-Type", "application/json")
+            .body("{\"status\":\"Status: Image is up to date\"}\n")
+            .build();
+      }
+    });
+
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try (final DefaultDockerClient dockerClient = builder.build()) {
+      final Future<?> all = executor.submit(() -> {
+        dockerClient.pull("busybox", message -> { });
+        return null;
+      });
+      final Future<?> latest = executor.submit(() -> {
+        dockerClient.pull("busybox:latest", message -> { });
+        return null;
+      });
+      all.get(10, TimeUnit.SECONDS);
+      latest.get(10, TimeUnit.SECONDS);
+
+      // the untagged pull asks for every tag
+      assertThat(tags).containsExactlyInAnyOrder("null", "latest");
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void testListener() throws Exception {
+    final List<RequestEvent> requests = new CopyOnWriteArrayList<>();
+    final List<ConnectionLeaseEvent> leases = new CopyOnWriteArrayList<>();
+    builder.listener(new DockerClientListener() {
+      @Override
+      public void requestCompleted(RequestEvent event) {
+        requests.add(event);
+      }
+
+      @Override
+      public void connectionLeased(ConnectionLeaseEvent event) {
+        leases.add(event);
+      }
+    });
+
+    try (final DefaultDockerClient dockerClient = builder.build()) {
+      enqueueServerApiResponse(200, createObjectNode().put("Id", "abc123"));
+      enqueueServerApiError(404, "No such container: def456");
+
+      dockerClient.inspectContainer("abc123");
+      assertThatThrownBy(() -> dockerClient.inspectContainer("def456"))
+          .isInstanceOf(ContainerNotFoundException.class);
+      server.close();
+      assertThatThrownBy(() -> dockerClient.inspectContainer("abc123"))
+          .isInstanceOf(DockerException.class);
+    }
+
+    assertThat(requests).extracting(RequestEvent::method, RequestEvent::endpoint, RequestEvent::status)
+        .containsExactly(
+            tuple("GET", "containers/{id}/json", 200),
+            tuple("GET", "containers/{id}/json", 404),
+            tuple("GET", "containers/{id}/json", null));
+    assertThat(requests.get(0).responseBytes()).isPositive();
+    assertThat(requests.get(0).exception()).isNull();
+    assertThat(requests.get(2).exception()).isNotNull();
+    assertThat(leases).isNotEmpty();
+    assertThat(leases.get(0).leased()).isEqualTo(1);
+  }
+
+  private static MockResponse logsResponse(final String... lines) {
+    final Buffer body = new Buffer();
+    for (final String line : lines) {
+      final byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+      body.writeByte(1).writeByte(0).writeByte(0).writeByte(0).writeInt(bytes.length).write(bytes);
+    }
+    return new MockResponse.Builder()
+        .code(200)
+        .addHeader("Content-Type", "application/vnd.docker.raw-stream")
+        .body(body)
+        .build();
+  }
+
   private void enqueueServerApiResponse(final int statusCode, final ObjectNode objectResponse) {
     server.enqueue(new MockResponse.Builder()
         .code(statusCode)
@@ -21,13 +21,25 @@
 
 package org.mandas.docker.client;
 
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
 
 import org.junit.jupiter.api.Test;
 
@@ -55,7 +67,150 @@ public class DefaultLogStreamTest {
     }
   }
 
+  @Test
+  public void testSubscribe() throws Exception {
+    when(reader.nextMessage()).thenReturn(
+        logMessage(LogMessage.Stream.STDOUT, "hello\n"),
+        logMessage(LogMessage.Stream.STDERR, "oops\n"),
+        logMessage(LogMessage.Stream.STDOUT, "world!\n"),
+        null
+    );
+
+    final RecordingSubscriber subscriber = new RecordingSubscriber();
+    logStream.subscribe(subscriber, Runnable::run);
+
+    subscriber.subscription.request(2);
+    assertThat(subscriber.messages, contains("hello\n", "oops\n"));
+    assertThat(subscriber.completed, is(false));
+    // no frame is read ahead of demand
+    verify(reader, times(2)).nextMessage();
+
+    subscriber.subscription.request(Long.MAX_VALUE);
+    assertThat(subscriber.messages, contains("hello\n", "oops\n", "world!\n"));
+    assertThat(subscriber.completed, is(true));
+    verify(reader).close();
+  }
+
+  @Test
+  public void testInvalidRequestSignalledAfterOnNext() throws Exception {
+    when(reader.nextMessage()).thenReturn(
+        logMessage(LogMessage.Stream.STDOUT, "hello\n"),
+        logMessage(LogMessage.Stream.STDOUT, "world!\n"));
+
+    final List<String> signals = new ArrayList<>();
+    final RecordingSubscriber subscriber = new RecordingSubscriber() {
+      @Override
+      public void onNext(LogMessage item) {
+        signals.add("onNext start");
+        subscription.request(0);
+        signals.add("onNext end");
+      }
+
+      @Override
+      public void onError(Throwable throwable) {
+        super.onError(throwable);
+        signals.add("onError");
+      }
+    };
+    logStream.subscribe(subscriber, Runnable::run);
+    subscriber.subscription.request(5);
+
+    assertThat(signals, contains("onNext start", "onNext end", "onError"));
+    assertThat(subscriber.error, is(instanceOf(IllegalArgumentException.class)));
+    verify(reader, times(1)).nextMessage();
+  }
+
+  @Test
+  public void testSubscribeTwice() throws Exception {
+    logStream.subscribe(new RecordingSubscriber(), Runnable::run);
+
+    final RecordingSubscriber subscriber = new RecordingSubscriber();
+    logStream.subscribe(subscriber, Runnable::run);
+
+    assertThat(subscriber.error, is(instanceOf(IllegalStateException.class)));
+  }
+
+  @Test
+  public void testAttachReusingBuffers() throws Exception {
+    final byte[] frames = frames(
+        logMessage(LogMessage.Stream.STDOUT, "hello\n"),
+        logMessage(LogMessage.Stream.STDERR, "oops, a longer message\n"),
+        logMessage(LogMessage.Stream.STDOUT, "world!\n"));
+
+    try (final LogStream stream = DefaultLogStream.create(new BufferedInputStream(new ByteArrayInputStream(frames)), true);
+    	final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+    	final ByteArrayOutputStream stderr = new ByteArrayOutputStream()) {
+    	stream.attach(stdout, stderr);
+
+    	assertThat(stdout.toString(), is("hello\nworld!\n"));
+    	assertThat(stderr.toString(), is("oops, a longer message\n"));
+    }
+  }
+
+  @Test
+  public void testReuseBuffers() throws Exception {
+    final byte[] frames = frames(
+        logMessage(LogMessage.Stream.STDOUT, "a longer first message\n"),
+        logMessage(LogMessage.Stream.STDERR, "short\n"));
+
+    try (final LogReader reader = new LogReader(new BufferedInputStream(new ByteArrayInputStream(frames)), true)) {
+      final LogMessage first = reader.nextMessage();
+      final LogMessage copy = first.copy();
+      final LogMessage second = reader.nextMessage();
+
+      assertThat(second, is(sameInstance(first)));
+      assertThat(second.stream(), is(LogMessage.Stream.STDERR));
+      assertThat(StandardCharsets.UTF_8.decode(second.content()).toString(), is("short\n"));
+      assertThat(copy, is(not(sameInstance(first))));
+      assertThat(copy.stream(), is(LogMessage.Stream.STDOUT));
+      assertThat(StandardCharsets.UTF_8.decode(copy.content()).toString(), is("a longer first message\n"));
+    }
+  }
+
+  private static byte[] frames(LogMessage... messages) {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (final LogMessage message : messages) {
+      final ByteBuffer content = message.content();
+      final ByteBuffer header = ByteBuffer.allocate(LogReader.HEADER_SIZE);
+      header.put(0, (byte) message.stream().id());
+      header.putInt(LogReader.FRAME_SIZE_OFFSET, content.remaining());
+      out.writeBytes(header.array());
+      final byte[] bytes = new byte[content.remaining()];
+      content.get(bytes);
+      out.writeBytes(bytes);
+    }
+    return out.toByteArray();
+  }
+
   private static LogMessage logMessage(LogMessage.Stream stream, String msg) {
     return new LogMessage(stream, ByteBuffer.wrap(msg.getBytes()));
   }
+
+  private static class RecordingSubscriber implements Flow.Subscriber<LogMessage> {
+
+    private final List<String> messages = new ArrayList<>();
+    Flow.Subscription subscription;
+    private boolean completed;
+    private Throwable error;
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(LogMessage item) {
+      messages.add(StandardCharsets.UTF_8.decode(item.content()).toString());
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      this.error = throwable;
+    }
+
+    @Override
+    public void onComplete() {
+      this.completed = true;
+    }
+  }
 }
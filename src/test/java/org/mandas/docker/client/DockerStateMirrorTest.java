@@ -0,0 +1,166 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mandas.docker.client.DockerClient.ListContainersParam;
+import org.mandas.docker.client.DockerStateMirror.ResourceListener;
+import org.mandas.docker.client.messages.Container;
+import org.mandas.docker.client.messages.VolumeList;
+
+class DockerStateMirrorTest {
+
+  private final DockerClient client = mock(DockerClient.class);
+  private final PipedOutputStream events = new PipedOutputStream();
+  private final List<String> changes = new CopyOnWriteArrayList<>();
+  private DockerStateMirror mirror;
+
+  @BeforeEach
+  void setup() throws Exception {
+    when(client.events(any())).thenReturn(
+        new EventStream(new PipedInputStream(events), ObjectMapperProvider.objectMapper()));
+    when(client.listContainers(any())).thenReturn(List.of(
+        container("abc123", "/web", "running", "web"),
+        container("def456", "/db", "exited", "db")));
+    when(client.listVolumes()).thenReturn(new VolumeList(null, null));
+
+    mirror = DockerStateMirror.builder(client).resyncInterval(null).build();
+    mirror.addContainerListener(new ResourceListener<Container>() {
+      @Override
+      public void added(Container resource) {
+        changes.add("added " + resource.id());
+      }
+
+      @Override
+      public void updated(Container previous, Container resource) {
+        changes.add("updated " + resource.id() + " " + resource.state());
+      }
+
+      @Override
+      public void deleted(Container resource) {
+        changes.add("deleted " + resource.id());
+      }
+    });
+    mirror.start();
+  }
+
+  @AfterEach
+  void tearDown() {
+    mirror.close();
+  }
+
+  @Test
+  void testIndexes() {
+    assertThat(changes).containsExactly("added abc123", "added def456");
+    assertThat(mirror.containerByName("web")).map(Container::id).hasValue("abc123");
+    assertThat(mirror.containersByLabel("app", "db")).extracting(Container::id).containsExactly("def456");
+    assertThat(mirror.containersByLabel("app")).extracting(Container::id)
+        .containsExactlyInAnyOrder("abc123", "def456");
+    assertThat(mirror.containersByState("running")).extracting(Container::id).containsExactly("abc123");
+  }
+
+  @Test
+  void testEvents() throws Exception {
+    when(client.listContainers(any(ListContainersParam.class), any(ListContainersParam.class)))
+        .thenReturn(List.of(container("def456", "/db", "running", "db")));
+
+    sendEvent("{\"Type\":\"container\",\"Action\":\"start\",\"Actor\":{\"ID\":\"def456\"},\"time\":1}");
+    sendEvent("{\"Type\":\"container\",\"Action\":\"destroy\",\"Actor\":{\"ID\":\"abc123\"},\"time\":2}");
+
+    final long deadline = System.nanoTime() + 10_000_000_000L;
+    while (changes.size() < 4 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(changes).containsExactly("added abc123", "added def456", "updated def456 running",
+        "deleted abc123");
+    assertThat(mirror.containersByState("running")).extracting(Container::id).containsExactly("def456");
+    assertThat(mirror.containersByState("exited")).isEmpty();
+    assertThat(mirror.containerByName("/web")).isEmpty();
+  }
+
+  @Test
+  void testEventDuringResync() throws Exception {
+    final CountDownLatch listing = new CountDownLatch(1);
+    final CountDownLatch listed = new CountDownLatch(1);
+    final List<Container> stale = List.of(
+        container("abc123", "/web", "running", "web"),
+        container("def456", "/db", "exited", "db"));
+    when(client.listContainers(any())).thenAnswer(invocation -> {
+      listing.countDown();
+      listed.await();
+      return stale;
+    });
+    when(client.listContainers(any(ListContainersParam.class), any(ListContainersParam.class)))
+        .thenReturn(List.of(container("def456", "/db", "running", "db")));
+
+    final CompletableFuture<Void> resync = CompletableFuture.runAsync(() -> {
+      try {
+        mirror.resync();
+      } catch (Exception e) {
+        throw new CompletionException(e);
+      }
+    });
+    assertThat(listing.await(10, TimeUnit.SECONDS)).isTrue();
+    sendEvent("{\"Type\":\"container\",\"Action\":\"start\",\"Actor\":{\"ID\":\"def456\"},\"time\":1}");
+    sendEvent("{\"Type\":\"container\",\"Action\":\"destroy\",\"Actor\":{\"ID\":\"abc123\"},\"time\":2}");
+    final long deadline = System.nanoTime() + 10_000_000_000L;
+    while (changes.size() < 4 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    listed.countDown();
+    resync.get(10, TimeUnit.SECONDS);
+
+    // the list predates both events
+    assertThat(changes).containsExactly("added abc123", "added def456", "updated def456 running",
+        "deleted abc123");
+    assertThat(mirror.containers()).extracting(Container::id).containsExactly("def456");
+    assertThat(mirror.containersByState("running")).extracting(Container::id).containsExactly("def456");
+    assertThat(mirror.containerByName("/web")).isEmpty();
+  }
+
+  private void sendEvent(final String json) throws Exception {
+    events.write((json + "\n").getBytes(StandardCharsets.UTF_8));
+    events.flush();
+  }
+
+  private static Container container(final String id, final String name, final String state,
+                                     final String app) throws Exception {
+    return ObjectMapperProvider.objectMapper().readValue("{\"Id\":\"" + id + "\",\"Names\":[\"" + name
+        + "\"],\"State\":\"" + state + "\",\"Labels\":{\"app\":\"" + app + "\"}}", Container.class);
+  }
+}
@@ -0,0 +1,156 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.mandas.docker.client.DockerClient.ListImagesParam;
+import org.mandas.docker.client.PrefetchResult.ImageResult;
+import org.mandas.docker.client.PrefetchResult.Status;
+import org.mandas.docker.client.exceptions.DockerException;
+import org.mandas.docker.client.messages.Descriptor;
+import org.mandas.docker.client.messages.Distribution;
+import org.mandas.docker.client.messages.Image;
+
+public class ImagePrefetcherTest {
+
+  private final DockerClient client = mock(DockerClient.class);
+
+  @Test
+  public void testPrefetch() throws Exception {
+    when(client.listImages(any(ListImagesParam.class))).thenReturn(List.of());
+    when(client.listImages(ListImagesParam.byName("a:1"))).thenReturn(List.of(image("a@sha256:1")));
+    when(client.listImages(ListImagesParam.byName("a:3"))).thenReturn(List.of(image("a@sha256:2")));
+    when(client.getDistribution("a:1")).thenReturn(distribution("sha256:1"));
+    when(client.getDistribution("a:3")).thenReturn(distribution("sha256:3"));
+    doThrow(new DockerException("unreachable")).when(client).pull(eq("b:1"), any(ProgressHandler.class));
+
+    final List<ImageResult> notified = new CopyOnWriteArrayList<>();
+    final PrefetchResult result = new ImagePrefetcher(client, PrefetchOptions.builder()
+        .listener(notified::add)
+        .build()).prefetch(List.of("a:1", "a:2", "a:3", "b:1"));
+
+    assertThat(result.images()).extracting(ImageResult::image)
+        .containsExactly("a:1", "a:2", "a:3", "b:1");
+    assertThat(result.images()).extracting(ImageResult::status)
+        .containsExactly(Status.PRESENT, Status.PULLED, Status.PULLED, Status.FAILED);
+    assertThat(result.images().get(3).exception()).isInstanceOf(DockerException.class);
+    assertThat(result.count(Status.PULLED)).isEqualTo(2);
+    assertThat(notified).hasSize(4);
+    verify(client, never()).pull(eq("a:1"), any(ProgressHandler.class));
+  }
+
+  @Test
+  public void testPrefetchWithoutVerifyingDigests() throws Exception {
+    when(client.listImages(any(ListImagesParam.class))).thenReturn(List.of(image("a@sha256:1")));
+
+    final PrefetchResult result = new ImagePrefetcher(client, PrefetchOptions.builder()
+        .verifyDigests(false)
+        .build()).prefetch(List.of("a:1"));
+
+    assertThat(result.count(Status.PRESENT)).isEqualTo(1);
+    verify(client, never()).getDistribution(any());
+  }
+
+  @Test
+  public void testPrefetchLimitsConcurrentPulls() throws Exception {
+    when(client.listImages(any(ListImagesParam.class))).thenReturn(List.of());
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger peak = new AtomicInteger();
+    doAnswer(invocation -> {
+      peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+      Thread.sleep(20);
+      running.decrementAndGet();
+      return null;
+    }).when(client).pull(any(String.class), any(ProgressHandler.class));
+
+    new ImagePrefetcher(client, PrefetchOptions.builder()
+        .maxConcurrentPulls(3)
+        .maxConcurrentPullsPerRegistry(1)
+        .build()).prefetch(List.of("a:1", "b:1", "c:1", "quay.io/d:1", "quay.io/e:1"));
+
+    assertThat(peak.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testPrefetchOrder() throws Exception {
+    when(client.listImages(any(ListImagesParam.class))).thenReturn(List.of());
+    final List<String> pulled = new CopyOnWriteArrayList<>();
+    doAnswer(invocation -> {
+      pulled.add(invocation.getArgument(0));
+      Thread.sleep(10);
+      return null;
+    }).when(client).pull(any(String.class), any(ProgressHandler.class));
+
+    new ImagePrefetcher(client, PrefetchOptions.builder()
+        .maxConcurrentPulls(1)
+        .build()).prefetch(List.of("a:1", "a:2", "b:1", "c:1"));
+
+    assertThat(pulled).containsExactly("a:1", "b:1", "c:1", "a:2");
+  }
+
+  @Test
+  public void testPrefetchPullsTagsOfARepositoryOneAfterTheOther() throws Exception {
+    when(client.listImages(any(ListImagesParam.class))).thenReturn(List.of());
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger peak = new AtomicInteger();
+    doAnswer(invocation -> {
+      peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+      Thread.sleep(20);
+      running.decrementAndGet();
+      return null;
+    }).when(client).pull(any(String.class), any(ProgressHandler.class));
+
+    new ImagePrefetcher(client, PrefetchOptions.builder()
+        .maxConcurrentPulls(4)
+        .maxConcurrentPullsPerRegistry(4)
+        .build()).prefetch(List.of("a:1", "a:2", "a:3"));
+
+    assertThat(peak.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void testRepositories() {
+    assertThat(ImagePrefetcher.repositories(List.of("a:1", "a:2", "b:1", "a:3", "b:2", "c", "a:1")))
+        .containsExactly(List.of("a:1", "a:2", "a:3"), List.of("b:1", "b:2"), List.of("c"));
+  }
+
+  private static Image image(final String repoDigest) {
+    return new Image("0", "id", "", List.of(), List.of(repoDigest), 0L, 0L, null);
+  }
+
+  private static Distribution distribution(final String digest) {
+    return new Distribution(new Descriptor("application/json", digest, 0L, null), null);
+  }
+}
@@ -35,6 +35,18 @@ class ImageRefTest {
     assertThat(sut.getTag()).isNull();
   }
 
+  @Test
+  void testNormalizedName() {
+    assertThat(new ImageRef("busybox").getNormalizedName())
+        .isEqualTo("docker.io/library/busybox:latest");
+    assertThat(new ImageRef("docker.io/library/busybox:latest").getNormalizedName())
+        .isEqualTo("docker.io/library/busybox:latest");
+    assertThat(new ImageRef("index.docker.io/foo/bar:1").getNormalizedName())
+        .isEqualTo("docker.io/foo/bar:1");
+    assertThat(new ImageRef("quay.io/foo/bar@sha256:12345").getNormalizedName())
+        .isEqualTo("quay.io/foo/bar@sha256:12345");
+  }
+
   @Test
   void testImageWithTag() {
     final ImageRef sut = new ImageRef("foobar:12345");
@@ -0,0 +1,68 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+
+public class ParallelGzipOutputStreamTest {
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    final byte[] data = new byte[100_000];
+    final Random random = new Random(42);
+    // half random, half repetitive, so that some blocks compress and some don't
+    random.nextBytes(data);
+    for (int i = data.length / 2; i < data.length; i++) {
+      data[i] = (byte) (i % 7);
+    }
+
+    final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try (ParallelGzipOutputStream out = new ParallelGzipOutputStream(compressed, 4096, 3)) {
+      out.write(data, 0, 10);
+      out.write(data[10]);
+      out.write(data, 11, data.length - 11);
+    }
+
+    assertThat(decompress(compressed.toByteArray()), is(data));
+  }
+
+  @Test
+  public void testEmpty() throws Exception {
+    final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    new ParallelGzipOutputStream(compressed, 4096, 2).close();
+
+    assertThat(decompress(compressed.toByteArray()).length, is(0));
+  }
+
+  private static byte[] decompress(final byte[] compressed) throws Exception {
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+      return in.readAllBytes();
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.mandas.docker.client.exceptions.ContainerNotFoundException;
+import org.mandas.docker.client.exceptions.DockerTimeoutException;
+
+public class RequestFlightsTest {
+
+  private static final URI URI = java.net.URI.create("unix://localhost:80/containers/abc/json");
+
+  private final RequestFlights flights = new RequestFlights();
+  private final AtomicInteger sent = new AtomicInteger();
+
+  @Test
+  public void testSharesConcurrentRequests() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    try {
+      final List<Future<Object>> results = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        results.add(executor.submit(() -> flights.request("GET", URI, "ContainerInfo", () -> {
+          sent.incrementAndGet();
+          release.await();
+          return new Object();
+        })));
+      }
+      while (sent.get() == 0) {
+        Thread.sleep(1);
+      }
+      Thread.sleep(50);
+      release.countDown();
+
+      final Object first = results.get(0).get();
+      for (final Future<Object> result : results) {
+        assertThat(result.get()).isSameAs(first);
+      }
+      assertThat(sent.get()).isEqualTo(1);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testDoesNotKeepResults() throws Exception {
+    flights.request("GET", URI, "ContainerInfo", () -> sent.incrementAndGet());
+    flights.request("GET", URI, "ContainerInfo", () -> sent.incrementAndGet());
+    flights.request("GET", URI, "ContainerStats", () -> sent.incrementAndGet());
+
+    assertThat(sent.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void testSharesFailures() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    try {
+      final Future<Object> leader = executor.submit(() -> flights.request("GET", URI, "ContainerInfo",
+          () -> {
+            sent.incrementAndGet();
+            release.await();
+            throw new ContainerNotFoundException("abc");
+          }));
+      while (sent.get() == 0) {
+        Thread.sleep(1);
+      }
+      final Future<Object> follower = executor.submit(() -> flights.request("GET", URI,
+          "ContainerInfo", () -> sent.incrementAndGet()));
+      Thread.sleep(50);
+      release.countDown();
+
+      assertThatThrownBy(leader::get).hasCauseInstanceOf(ContainerNotFoundException.class);
+      assertThatThrownBy(follower::get).hasCauseInstanceOf(ContainerNotFoundException.class);
+      assertThat(sent.get()).isEqualTo(1);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testLeaderDeadlineDoesNotFailWaiters() throws Exception {
+    final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    try {
+      final Future<Object> leader = executor.submit(() -> {
+        try (CallContext context = CallContext.withTimeout(Duration.ofMillis(200))) {
+          return flights.request("GET", URI, "ContainerInfo", () -> {
+            sent.incrementAndGet();
+            while (!context.isExpired()) {
+              Thread.sleep(5);
+            }
+            throw new DockerTimeoutException("GET", URI, null);
+          });
+        }
+      });
+      while (sent.get() == 0) {
+        Thread.sleep(1);
+      }
+      final Future<Object> waiter = executor.submit(() -> flights.request("GET", URI,
+          "ContainerInfo", () -> sent.incrementAndGet()));
+
+      assertThatThrownBy(leader::get).hasCauseInstanceOf(DockerTimeoutException.class);
+      // the waiter has no deadline, it sends the request again
+      assertThat(waiter.get()).isEqualTo(2);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,120 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.time.Instant;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mandas.docker.client.builder.DockerClientBuilder;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+import mockwebserver3.MockResponse;
+import mockwebserver3.MockWebServer;
+
+class StatsCollectorTest {
+
+  private static final String FIRST_SAMPLE = "{\"read\":\"2024-01-01T00:00:01Z\","
+      + "\"cpu_stats\":{\"cpu_usage\":{\"total_usage\":1000,\"percpu_usage\":[600,400]},\"system_cpu_usage\":100000},"
+      + "\"precpu_stats\":{\"cpu_usage\":{\"total_usage\":0},\"system_cpu_usage\":0},"
+      + "\"memory_stats\":{\"usage\":1000,\"limit\":4000,\"stats\":{\"cache\":300,\"pgfault\":1}},"
+      + "\"networks\":{\"eth0\":{\"rx_bytes\":100,\"tx_bytes\":10},\"eth1\":{\"rx_bytes\":100,\"tx_bytes\":10}},"
+      + "\"blkio_stats\":{\"io_service_bytes_recursive\":[{\"major\":8,\"op\":\"Read\",\"value\":1000},{\"op\":\"Write\",\"value\":0}]}}\n";
+
+  private static final String SECOND_SAMPLE = "{\"read\":\"2024-01-01T00:00:03Z\","
+      + "\"pids_stats\":{\"current\":3},"
+      + "\"cpu_stats\":{\"cpu_usage\":{\"total_usage\":3000},\"system_cpu_usage\":108000,\"online_cpus\":4},"
+      + "\"precpu_stats\":{\"cpu_usage\":{\"total_usage\":1000},\"system_cpu_usage\":100000,\"online_cpus\":4},"
+      + "\"memory_stats\":{\"usage\":2000,\"limit\":4000,\"stats\":{\"cache\":300,\"inactive_file\":500}},"
+      + "\"networks\":{\"eth0\":{\"rx_bytes\":300,\"tx_bytes\":10},\"eth1\":{\"rx_bytes\":300,\"tx_bytes\":30}},"
+      + "\"blkio_stats\":{\"io_service_bytes_recursive\":[{\"op\":\"read\",\"value\":5000},{\"op\":\"write\",\"value\":2000}]}}\n";
+
+  private final MockWebServer server = new MockWebServer();
+  private DockerClientBuilder builder;
+
+  @BeforeEach
+  void setup() throws Exception {
+    server.start();
+    builder = DockerClientBuilder.fromEnv();
+    builder.uri(server.url("/").uri());
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    server.close();
+  }
+
+  @Test
+  void testSnapshot() throws Exception {
+    server.enqueue(new MockResponse.Builder()
+        .code(200)
+        .addHeader("Content-Type", "application/json")
+        .body(FIRST_SAMPLE + SECOND_SAMPLE)
+        .build());
+
+    try (final DefaultDockerClient dockerClient = builder.build();
+        final StatsCollector collector = new StatsCollector(dockerClient)) {
+      collector.add("abc123");
+
+      final Instant second = Instant.parse("2024-01-01T00:00:03Z");
+      final long deadline = System.nanoTime() + 10_000_000_000L;
+      while ((collector.snapshot("abc123") == null || !collector.snapshot("abc123").read().equals(second))
+          && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+
+      final StatsSnapshot snapshot = collector.snapshot("abc123");
+      assertThat(snapshot.read()).isEqualTo(second);
+      // 2000 of 8000 system ticks over 4 cpus
+      assertThat(snapshot.cpuPercent()).isCloseTo(100.0, within(0.001));
+      assertThat(snapshot.memoryUsage()).isEqualTo(2000);
+      assertThat(snapshot.memoryWorkingSet()).isEqualTo(1500);
+      assertThat(snapshot.memoryLimit()).isEqualTo(4000);
+      // over two seconds
+      assertThat(snapshot.networkRxBytesPerSecond()).isCloseTo(200.0, within(0.001));
+      assertThat(snapshot.networkTxBytesPerSecond()).isCloseTo(10.0, within(0.001));
+      assertThat(snapshot.blockIoReadBytesPerSecond()).isCloseTo(2000.0, within(0.001));
+      assertThat(snapshot.blockIoWriteBytesPerSecond()).isCloseTo(1000.0, within(0.001));
+      assertThat(collector.snapshot()).containsOnlyKeys("abc123");
+    }
+  }
+
+  @Test
+  void testFirstSample() throws Exception {
+    final long[] sample = new long[StatsCollector.COLUMNS];
+    try (JsonParser parser =
+        ObjectMapperProvider.objectMapper().getFactory().createParser(FIRST_SAMPLE)) {
+      parser.nextToken();
+      StatsCollector.parseSample(parser, sample);
+    }
+
+    final StatsSnapshot snapshot = StatsCollector.snapshot("abc123", sample, new long[StatsCollector.COLUMNS], false);
+    // 1000 of 100000 system ticks over the two cpus of percpu_usage
+    assertThat(snapshot.cpuPercent()).isCloseTo(2.0, within(0.001));
+    assertThat(snapshot.memoryWorkingSet()).isEqualTo(700);
+    assertThat(snapshot.networkRxBytesPerSecond()).isZero();
+  }
+}
@@ -0,0 +1,220 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Instant;
+import java.util.Arrays;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TarExtractorTest {
+
+  private static final FileTime MTIME = FileTime.from(Instant.parse("2024-01-01T00:00:00Z"));
+
+  @TempDir
+  Path target;
+
+  @Test
+  public void testExtract() throws Exception {
+    final byte[] large = new byte[TarExtractor.SMALL_FILE + 1];
+    Arrays.fill(large, (byte) 'x');
+    final ByteArrayOutputStream archive = new ByteArrayOutputStream();
+    try (TarArchiveOutputStream tarOut = new TarArchiveOutputStream(archive)) {
+      directory(tarOut, "share/");
+      file(tarOut, "share/run.sh", "#!/bin/sh\n".getBytes(StandardCharsets.UTF_8), 0750);
+      file(tarOut, "share/large.bin", large, 0644);
+      file(tarOut, "share/debug.log", new byte[10], 0644);
+      final TarArchiveEntry link = new TarArchiveEntry("share/current", TarArchiveEntry.LF_SYMLINK);
+      link.setLinkName("run.sh");
+      tarOut.putArchiveEntry(link);
+      tarOut.closeArchiveEntry();
+    }
+
+    final CopyFromContainerOptions options = CopyFromContainerOptions.builder()
+        .exclude("**.log")
+        .threads(4)
+        .build();
+    new TarExtractor(target, options).extract(new ByteArrayInputStream(archive.toByteArray()));
+
+    final Path run = target.resolve("share/run.sh");
+    assertThat(Files.readString(run), is("#!/bin/sh\n"));
+    assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(run)), is("rwxr-x---"));
+    assertThat(Files.getLastModifiedTime(run), is(MTIME));
+    assertThat(Files.size(target.resolve("share/large.bin")), is((long) large.length));
+    assertThat(Files.exists(target.resolve("share/debug.log")), is(false));
+    assertThat(Files.readSymbolicLink(target.resolve("share/current")).toString(), is("run.sh"));
+    assertThat(Files.getLastModifiedTime(target.resolve("share")), is(MTIME));
+  }
+
+  @Test
+  public void testEntryOutsideOfTarget() throws Exception {
+    final ByteArrayOutputStream archive = new ByteArrayOutputStream();
+    try (TarArchiveOutputStream tarOut = new TarArchiveOutputStream(archive)) {
+      file(tarOut, "../evil.sh", new byte[1], 0755);
+    }
+
+    final IOException e = assertThrows(IOException.class,
+        () -> new TarExtractor(target, CopyFromContainerOptions.defaults())
+            .extract(new ByteArrayInputStream(archive.toByteArray())));
+    assertThat(e.getMessage(), containsString("outside"));
+    assertThat(Files.exists(target.resolveSibling("evil.sh")), is(false));
+  }
+
+  @Test
+  public void testLinkReplacingDirectory() throws Exception {
+    final Path outside = Files.createDirectory(target.resolveSibling(target.getFileName() + "-home"));
+    Files.setPosixFilePermissions(outside, PosixFilePermissions.fromString("rwx------"));
+    final FileTime before = Files.getLastModifiedTime(outside);
+    final ByteArrayOutputStream archive = new ByteArrayOutputStream();
+    try (TarArchiveOutputStream tarOut = new TarArchiveOutputStream(archive)) {
+      directory(tarOut, "d/");
+      final TarArchiveEntry link = new TarArchiveEntry("d", TarArchiveEntry.LF_SYMLINK);
+      link.setLinkName(outside.toString());
+      tarOut.putArchiveEntry(link);
+      tarOut.closeArchiveEntry();
+    }
+
+    try {
+      final IOException e = assertThrows(IOException.class,
+          () -> new TarExtractor(target, CopyFromContainerOptions.defaults())
+              .extract(new ByteArrayInputStream(archive.toByteArray())));
+      assertThat(e.getMessage(), containsString("replaces a directory"));
+      assertThat(Files.isSymbolicLink(target.resolve("d")), is(false));
+      assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(outside)), 
+          is("rwx------"));
+      assertThat(Files.getLastModifiedTime(outside), is(before));
+    } finally {
+      Files.delete(outside);
+    }
+  }
+
+  @Test
+  public void testEntryThroughLink() throws Exception {
+    final Path outside = Files.createDirectory(target.resolveSibling(target.getFileName() + "-x"));
+    final Path victim = Files.write(outside.resolve("victim"), "kept".getBytes(StandardCharsets.UTF_8));
+    final ByteArrayOutputStream archive = new ByteArrayOutputStream();
+    try (TarArchiveOutputStream tarOut = new TarArchiveOutputStream(archive)) {
+      final TarArchiveEntry link = new TarArchiveEntry("s", TarArchiveEntry.LF_SYMLINK);
+      link.setLinkName(outside.toString());
+      tarOut.putArchiveEntry(link);
+      tarOut.closeArchiveEntry();
+      final TarArchiveEntry through = new TarArchiveEntry("s/victim", TarArchiveEntry.LF_SYMLINK);
+      through.setLinkName("/etc/passwd");
+      tarOut.putArchiveEntry(through);
+      tarOut.closeArchiveEntry();
+    }
+
+    try {
+      final IOException e = assertThrows(IOException.class,
+          () -> new TarExtractor(target, CopyFromContainerOptions.defaults())
+              .extract(new ByteArrayInputStream(archive.toByteArray())));
+      assertThat(e.getMessage(), containsString("passes through the link"));
+      assertThat(Files.isSymbolicLink(victim), is(false));
+      assertThat(Files.readString(victim), is("kept"));
+    } finally {
+      Files.deleteIfExists(victim);
+      Files.delete(outside);
+    }
+  }
+
+  @Test
+  public void testFileThroughExistingLink() throws Exception {
+    final Path outside = Files.createDirectory(target.resolveSibling(target.getFileName() + "-y"));
+    final Path victim = Files.write(outside.resolve("victim"), "kept".getBytes(StandardCharsets.UTF_8));
+    Files.createSymbolicLink(target.resolve("s"), outside);
+    Files.createSymbolicLink(target.resolve("f"), victim);
+    final ByteArrayOutputStream through = new ByteArrayOutputStream();
+    try (TarArchiveOutputStream tarOut = new TarArchiveOutputStream(through)) {
+      file(tarOut, "s/victim", "replaced".getBytes(StandardCharsets.UTF_8), 0644);
+    }
+    final ByteArrayOutputStream replacing = new ByteArrayOutputStream();
+    try (TarArchiveOutputStream tarOut = new TarArchiveOutputStream(replacing)) {
+      file(tarOut, "f", "replaced".getBytes(StandardCharsets.UTF_8), 0644);
+    }
+
+    try {
+      assertThrows(IOException.class,
+          () -> new TarExtractor(target, CopyFromContainerOptions.defaults())
+              .extract(new ByteArrayInputStream(through.toByteArray())));
+      new TarExtractor(target, CopyFromContainerOptions.defaults())
+          .extract(new ByteArrayInputStream(replacing.toByteArray()));
+      assertThat(Files.isSymbolicLink(target.resolve("f")), is(false));
+      assertThat(Files.readString(target.resolve("f")), is("replaced"));
+      assertThat(Files.readString(victim), is("kept"));
+    } finally {
+      Files.delete(victim);
+      Files.delete(outside);
+    }
+  }
+
+  @Test
+  public void testRepeatedEntry() throws Exception {
+    final ByteArrayOutputStream archive = new ByteArrayOutputStream();
+    try (TarArchiveOutputStream tarOut = new TarArchiveOutputStream(archive)) {
+      for (int i = 0; i < 50; i++) {
+        final byte[] content = new byte[64 * 1024];
+        Arrays.fill(content, (byte) i);
+        file(tarOut, "data.bin", content, 0644);
+      }
+      file(tarOut, "data.bin", "last".getBytes(StandardCharsets.UTF_8), 0644);
+    }
+
+    final CopyFromContainerOptions options = CopyFromContainerOptions.builder().threads(4).build();
+    new TarExtractor(target, options).extract(new ByteArrayInputStream(archive.toByteArray()));
+
+    assertThat(Files.readString(target.resolve("data.bin")), is("last"));
+  }
+
+  private static void directory(TarArchiveOutputStream tarOut, String name) throws IOException {
+    final TarArchiveEntry entry = new TarArchiveEntry(name);
+    entry.setMode(040755);
+    entry.setModTime(MTIME);
+    tarOut.putArchiveEntry(entry);
+    tarOut.closeArchiveEntry();
+  }
+
+  private static void file(TarArchiveOutputStream tarOut, String name, byte[] content, int mode)
+      throws IOException {
+    final TarArchiveEntry entry = new TarArchiveEntry(name, true);
+    entry.setMode(0100000 | mode);
+    entry.setModTime(MTIME);
+    entry.setSize(content.length);
+    tarOut.putArchiveEntry(entry);
+    tarOut.write(content);
+    tarOut.closeArchiveEntry();
+  }
+}
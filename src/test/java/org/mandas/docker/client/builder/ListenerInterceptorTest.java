@@ -0,0 +1,42 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client.builder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class ListenerInterceptorTest {
+
+  @Test
+  void testEndpoint() {
+    assertThat(ListenerInterceptor.endpoint("/v1.41/containers/4fa6e0f0c678/json")).isEqualTo("containers/{id}/json");
+    assertThat(ListenerInterceptor.endpoint("/containers/json")).isEqualTo("containers/json");
+    assertThat(ListenerInterceptor.endpoint("/v1.41/containers/create")).isEqualTo("containers/create");
+    assertThat(ListenerInterceptor.endpoint("/exec/abc/start")).isEqualTo("exec/{id}/start");
+    assertThat(ListenerInterceptor.endpoint("/v1.41/images/localhost:5000/library/busybox:latest/json"))
+        .isEqualTo("images/{name}/json");
+    assertThat(ListenerInterceptor.endpoint("/images/library/busybox")).isEqualTo("images/{name}");
+    assertThat(ListenerInterceptor.endpoint("/images/create")).isEqualTo("images/create");
+    assertThat(ListenerInterceptor.endpoint("/v1.41/_ping")).isEqualTo("_ping");
+    assertThat(ListenerInterceptor.endpoint("/swarm/init")).isEqualTo("swarm/init");
+  }
+}
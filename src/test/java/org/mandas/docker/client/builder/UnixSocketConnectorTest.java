@@ -0,0 +1,287 @@
+/*-
+ * -\-\-
+ * docker-client
+ * --
+ * Copyright (C) 9/2019 - now Dimitris Mandalidis
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package org.mandas.docker.client.builder;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mandas.docker.client.CallContext;
+import org.mandas.docker.client.ConnectionLeaseEvent;
+import org.mandas.docker.client.DefaultDockerClient;
+import org.mandas.docker.client.DockerClient.LogsParam;
+import org.mandas.docker.client.DockerClientListener;
+import org.mandas.docker.client.LogStream;
+import org.mandas.docker.client.builder.DockerClientBuilder.Transport;
+import org.mandas.docker.client.exceptions.DockerTimeoutException;
+import org.mandas.docker.client.exceptions.OperationCancelledException;
+import org.mandas.docker.client.messages.ContainerConfig;
+import org.mandas.docker.client.messages.ContainerCreation;
+
+/**
+ * Runs the socket channel transport against a fake daemon listening on a unix socket.
+ */
+public class UnixSocketConnectorTest {
+
+  @TempDir
+  Path dir;
+
+  private Path socket;
+  private ServerSocketChannel server;
+  private final AtomicInteger connections = new AtomicInteger();
+  private final List<String> bodies = new CopyOnWriteArrayList<>();
+  private final List<ConnectionLeaseEvent> leases = new CopyOnWriteArrayList<>();
+  private DefaultDockerClient client;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    socket = dir.resolve("docker.sock");
+    server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+    server.bind(UnixDomainSocketAddress.of(socket));
+    Thread.ofVirtual().start(() -> {
+      try {
+        while (true) {
+          final SocketChannel channel = server.accept();
+          connections.incrementAndGet();
+          Thread.ofVirtual().start(() -> serve(channel));
+        }
+      } catch (IOException e) {
+        // closed
+      }
+    });
+    client = DockerClientBuilder.fromEnv()
+        .uri("unix://" + socket)
+        .transport(Transport.SOCKET_CHANNEL)
+        .readTimeoutMillis(500)
+        .listener(new DockerClientListener() {
+          @Override
+          public void connectionLeased(final ConnectionLeaseEvent event) {
+            leases.add(event);
+          }
+        })
+        .build();
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    client.close();
+    server.close();
+  }
+
+  @Test
+  public void testReusesConnections() throws Exception {
+    assertThat(client.ping()).isEqualTo("OK");
+    assertThat(client.ping()).isEqualTo("OK");
+    assertThat(client.ping()).isEqualTo("OK");
+
+    assertThat(connections.get()).isEqualTo(1);
+    assertThat(leases).hasSize(3);
+    assertThat(leases.get(2).max()).isEqualTo(100);
+    assertThat(leases.get(2).exception()).isNull();
+  }
+
+  @Test
+  public void testChunkedRequestAndResponse() throws Exception {
+    final ContainerCreation creation =
+        client.createContainer(ContainerConfig.builder().image("busybox").build());
+
+    assertThat(creation.id()).isEqualTo("abc");
+    assertThat(bodies).hasSize(1);
+    assertThat(bodies.get(0)).contains("\"Image\":\"busybox\"");
+    assertThat(client.ping()).isEqualTo("OK");
+    assertThat(connections.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void testRawStream() throws Exception {
+    try (LogStream logs = client.logs("abc", LogsParam.stdout())) {
+      assertThat(logs.readFully()).isEqualTo("hello\n");
+    }
+    assertThat(client.ping()).isEqualTo("OK");
+    assertThat(connections.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testReadTimeout() throws Exception {
+    assertThatThrownBy(() -> client.inspectContainer("silent"))
+        .isInstanceOf(DockerTimeoutException.class);
+    assertThat(client.ping()).isEqualTo("OK");
+  }
+
+  @Test
+  public void testCallContextDeadline() throws Exception {
+    final long start = System.nanoTime();
+    try (CallContext context = CallContext.withTimeout(Duration.ofMillis(100))) {
+      assertThatThrownBy(() -> client.inspectContainer("silent"))
+          .isInstanceOf(DockerTimeoutException.class);
+      assertThatThrownBy(() -> client.ping()).isInstanceOf(DockerTimeoutException.class);
+    }
+    assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(400));
+  }
+
+  @Test
+  public void testCallContextCancel() throws Exception {
+    try (CallContext context = CallContext.open()) {
+      Thread.ofVirtual().start(() -> {
+        try {
+          Thread.sleep(100);
+        } catch (InterruptedException e) {
+          return;
+        }
+        context.cancel();
+      });
+      assertThatThrownBy(() -> client.inspectContainer("silent"))
+          .isInstanceOf(OperationCancelledException.class);
+    }
+    assertThat(Thread.currentThread().isInterrupted()).isFalse();
+    assertThat(client.ping()).isEqualTo("OK");
+  }
+
+  @Test
+  public void testCallContextDeadlineDoesNotBoundStreams() throws Exception {
+    try (CallContext context = CallContext.withTimeout(Duration.ofMillis(100));
+         LogStream logs = client.logs("slow", LogsParam.stdout())) {
+      // idle for longer than the deadline, but not than the read timeout of the client
+      assertThat(logs.readFully()).isEqualTo("hello\nlater\n");
+    }
+  }
+
+  @Test
+  public void testStreamingPool() throws Exception {
+    try (DefaultDockerClient pooled = DockerClientBuilder.fromEnv()
+        .uri("unix://" + socket)
+        .transport(Transport.SOCKET_CHANNEL)
+        .connectionPoolSize(1)
+        .connectTimeoutMillis(200)
+        .streamingConnectionPoolSize(1)
+        .streamingReadTimeoutMillis(0)
+        .build();
+         LogStream logs = pooled.logs("abc", LogsParam.stdout(), LogsParam.follow())) {
+      assertThat(logs.next().content()).isEqualTo(UTF_8.encode("hello\n"));
+      // the followed logs hold the only streaming connection, not the control one
+      assertThat(pooled.ping()).isEqualTo("OK");
+      assertThatThrownBy(() -> pooled.logs("abc", LogsParam.stdout(), LogsParam.follow()))
+          .isInstanceOf(DockerTimeoutException.class);
+    }
+  }
+
+  private void serve(final SocketChannel channel) {
+    try (channel) {
+      final InputStream in = Channels.newInputStream(channel);
+      final OutputStream out = Channels.newOutputStream(channel);
+      String requestLine;
+      while ((requestLine = line(in)) != null) {
+        long length = 0;
+        boolean chunked = false;
+        String header;
+        while (!(header = line(in)).isEmpty()) {
+          final String name = header.substring(0, header.indexOf(':')).toLowerCase();
+          final String value = header.substring(header.indexOf(':') + 1).trim();
+          if (name.equals("content-length")) {
+            length = Long.parseLong(value);
+          } else if (name.equals("transfer-encoding")) {
+            chunked = value.equals("chunked");
+          }
+        }
+        final String body = chunked ? chunked(in) : new String(in.readNBytes((int) length), UTF_8);
+        if (!body.isEmpty()) {
+          bodies.add(body);
+        }
+        final String path = requestLine.split(" ")[1];
+        if (path.endsWith("/_ping")) {
+          write(out, "HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nOK");
+        } else if (path.endsWith("/containers/create")) {
+          write(out, "HTTP/1.1 201 Created\r\nContent-Type: application/json\r\n"
+              + "Transfer-Encoding: chunked\r\n\r\n"
+              + "9\r\n{\"Id\":\"ab\r\n8;ext=1\r\nc\",\"Warn\r\n9\r\nings\":[]}\r\n0\r\n\r\n");
+        } else if (path.contains("/logs")) {
+          write(out, "HTTP/1.1 200 OK\r\nContent-Type: application/vnd.docker.raw-stream\r\n\r\n");
+          out.write(new byte[] {1, 0, 0, 0, 0, 0, 0, 6});
+          write(out, "hello\n");
+          if (path.contains("/slow/")) {
+            Thread.sleep(300);
+            out.write(new byte[] {1, 0, 0, 0, 0, 0, 0, 6});
+            write(out, "later\n");
+          }
+          if (path.contains("follow")) {
+            Thread.sleep(5000);
+          }
+          return;
+        } else if (path.contains("/silent/")) {
+          Thread.sleep(2000);
+          return;
+        } else {
+          write(out, "HTTP/1.1 404 Not Found\r\nContent-Length: 0\r\n\r\n");
+        }
+      }
+    } catch (IOException | InterruptedException e) {
+      // the client went away
+    }
+  }
+
+  private static String chunked(final InputStream in) throws IOException {
+    final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    int size;
+    while ((size = Integer.parseInt(line(in), 16)) > 0) {
+      body.write(in.readNBytes(size));
+      line(in);
+    }
+    line(in);
+    return body.toString(UTF_8);
+  }
+
+  private static String line(final InputStream in) throws IOException {
+    final StringBuilder line = new StringBuilder();
+    int c;
+    while ((c = in.read()) != '\n') {
+      if (c < 0) {
+        return null;
+      }
+      line.append((char) c);
+    }
+    return line.toString().trim();
+  }
+
+  private static void write(final OutputStream out, final String s) throws IOException {
+    out.write(s.getBytes(ISO_8859_1));
+    out.flush();
+  }
+}